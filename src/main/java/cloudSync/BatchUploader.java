@@ -0,0 +1,99 @@
+package cloudSync;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import repository.PendingUploads;
+import util.Json;
+
+/**
+ * One upload pass for CloudSync and CloudSyncDenied: pending rows go out in
+ * POSTs of at most BATCH_SIZE rows, paged by id, each streamed from the
+ * database into a request body and sent through SyncHttp. A batch
+ * is marked uploaded as soon as the server accepts it, so a pass cut short
+ * by a network error keeps what got through and the next pass carries on
+ * from there. A compressed batch the server refuses is sent once more as
+ * plain JSON; see SyncHttp.
+ *
+ * The batch size comes from the system property cloudsync.batchSize
+ * (default 500).
+ */
+final class BatchUploader {
+
+    private BatchUploader() {
+    }
+
+    static final int BATCH_SIZE = Math.max(1, Integer.getInteger("cloudsync.batchSize", 500));
+
+    @FunctionalInterface
+    interface Source {
+        PendingUploads.Batch stream(long afterId, int limit, PendingUploads.BodyOpener body) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Marker {
+        void mark(PendingUploads.Batch sent, Set<String> failedCardUids) throws SQLException;
+    }
+
+    /** What a pass did. */
+    static final class Pass {
+        int sent; // rows posted and accepted
+        int rejected; // card UIDs the server sent back; their rows are still pending
+    }
+
+    /**
+     * Uploads every pending row. A non-2xx answer is thrown as an
+     * IOException.
+     */
+    static Pass uploadAll(String tag, String endpoint, Source source, Marker marker) throws Exception {
+        Pass pass = new Pass();
+        long cursor = 0;
+        int gzipStatus = 0; // what a refused compressed batch got; 0 = none refused
+        while (true) {
+            SyncHttp.Body body = gzipStatus != 0 ? new SyncHttp.Body(false) : new SyncHttp.Body();
+            PendingUploads.Batch batch = source.stream(cursor, BATCH_SIZE, body::open);
+            if (batch.rows == 0)
+                return pass; // nothing pending past the cursor; no request was made
+
+            SyncHttp.Response resp = SyncHttp.postJson(endpoint, body);
+            if (!resp.ok()) {
+                if (resp.sentGzip && gzipStatus == 0) {
+                    gzipStatus = resp.status; // same batch again, uncompressed
+                    continue;
+                }
+                // batches already accepted stay marked; SyncEngine backs off and retries the rest
+                throw new IOException("server answered " + resp.status + " after " + pass.sent + " row(s)");
+            }
+            if (gzipStatus != 0 && !resp.sentGzip)
+                SyncHttp.gzipRefused(gzipStatus); // plain worked where gzip did not
+            System.out.println(tag + " Uploaded " + batch.rows + " row(s) up to id " + batch.lastId);
+
+            Set<String> failed = failedCardUids(tag, resp.body);
+            marker.mark(batch, failed);
+
+            pass.sent += batch.rows;
+            pass.rejected += failed.size();
+            cursor = batch.lastId;
+            if (batch.rows < BATCH_SIZE)
+                return pass;
+        }
+    }
+
+    // the server answers with the card UIDs it did not take
+    private static Set<String> failedCardUids(String tag, String responseBody) {
+        if (responseBody == null || responseBody.isBlank())
+            return Set.of();
+        try {
+            List<String> failed = Json.STRING_LIST.readValue(responseBody);
+            if (!failed.isEmpty())
+                System.out.println(tag + " server rejected " + failed.size() + " card(s)");
+            return new HashSet<>(failed);
+        } catch (Exception parseEx) {
+            System.err.println(tag + " Failed to parse response: " + parseEx.getMessage());
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package cloudSync;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import repository.ChangeFeed;
+
+/**
+ * Runs every outbound sync stream (trans, Attendance_Denied, ...) from one
+ * scheduler thread, replacing a sleep loop and a ping per table.
+ *
+ * Each stream has a due time. Streams are driven by the ChangeFeed: a
+ * committed insert makes its table's stream due within the coalescing
+ * window, so a burst of taps goes up as one pass about a second after the
+ * first, and a stream with nothing new waits without touching the database.
+ * A failed pass (no connection, server error) backs off exponentially with
+ * jitter, so a returning connection is noticed within seconds without
+ * hammering a dead one. Every stream makes one pass at start-up for rows
+ * left from an earlier run. Rows the server rejected stay pending, so a pass
+ * that had any schedules a retry of its own, after rejectRetryMs and then
+ * twice as long each time the server rejects again (up to
+ * maxRejectRetryMs); only a stream with nothing left waits on the feed
+ * alone. wake(table) makes a stream due now, unless it is backing off.
+ *
+ * Streams share SyncHttp's client; passes run one at a time on the
+ * scheduler thread, so they never compete for the .accdb.
+ *
+ * System properties: cloudsync.coalesceMs (default 1000),
+ * cloudsync.idleMs (also poll this often when idle; default 0 = never),
+ * cloudsync.backoffMs (first retry, default 2000), cloudsync.maxBackoffMs
+ * (default 30000), cloudsync.rejectRetryMs (default 60000),
+ * cloudsync.maxRejectRetryMs (default 600000).
+ */
+public final class SyncEngine {
+
+    private SyncEngine() {
+    }
+
+    static final long COALESCE_MS = Math.max(0, Long.getLong("cloudsync.coalesceMs", 1_000));
+    static final long IDLE_MS = Math.max(0, Long.getLong("cloudsync.idleMs", 0));
+    static final long BACKOFF_MS = Math.max(100, Long.getLong("cloudsync.backoffMs", 2_000));
+    static final long MAX_BACKOFF_MS = Math.max(BACKOFF_MS, Long.getLong("cloudsync.maxBackoffMs", 30_000));
+    static final long REJECT_RETRY_MS = Math.max(1_000, Long.getLong("cloudsync.rejectRetryMs", 60_000));
+    static final long MAX_REJECT_RETRY_MS = Math.max(REJECT_RETRY_MS,
+            Long.getLong("cloudsync.maxRejectRetryMs", 600_000));
+
+    /** One stream's state, as seen by stats(). */
+    public static final class StreamStats {
+        public String table;
+        public long passes;
+        public long rowsSent;
+        public int failures; // consecutive
+        public int rejectedPasses; // consecutive passes that left rejected rows
+        public String lastError;
+        public long lastSuccessAt; // epoch ms, 0 = never
+        public long dueInMs; // -1 = waiting for changes
+    }
+
+    private static final class Stream {
+        final String table;
+        final String tag;
+        final String endpoint;
+        final BatchUploader.Source source;
+        final BatchUploader.Marker marker;
+
+        long dueAt; // monotonic ms; NEVER = waiting for changes
+        long passes;
+        long rowsSent;
+        int failures;
+        int rejectedPasses;
+        String lastError;
+        long lastSuccessAt;
+
+        Stream(String table, String tag, String endpoint, BatchUploader.Source source,
+                BatchUploader.Marker marker) {
+            this.table = table;
+            this.tag = tag;
+            this.endpoint = endpoint;
+            this.source = source;
+            this.marker = marker;
+        }
+    }
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, Stream> streams = new LinkedHashMap<>();
+
+    private static volatile boolean running = false;
+    private static Thread scheduler;
+
+    private static final ChangeFeed.Listener FEED = table -> schedule(table, COALESCE_MS);
+
+    /* ================= STREAMS ================= */
+
+    /** Adds (or replaces) the stream for {@code table}; it is due at once. */
+    static void register(String table, String tag, String endpoint, BatchUploader.Source source,
+            BatchUploader.Marker marker) {
+        synchronized (LOCK) {
+            Stream s = new Stream(table, tag, endpoint, source, marker);
+            s.dueAt = now();
+            streams.put(table, s);
+            LOCK.notifyAll();
+        }
+    }
+
+    /** Drops the stream for {@code table}; a pass in progress still finishes. */
+    static void unregister(String table) {
+        synchronized (LOCK) {
+            streams.remove(table);
+        }
+    }
+
+    /** Upload {@code table}'s pending rows now, unless the stream is backing off. */
+    public static void wake(String table) {
+        schedule(table, 0);
+    }
+
+    // due within delayMs; an earlier due time stands, a backoff is not cut short
+    private static void schedule(String table, long delayMs) {
+        synchronized (LOCK) {
+            Stream s = streams.get(table);
+            if (s == null || s.failures > 0)
+                return;
+            s.dueAt = Math.min(s.dueAt, now() + delayMs);
+            LOCK.notifyAll();
+        }
+    }
+
+    /* ================= LIFECYCLE ================= */
+
+    public static void start() {
+        synchronized (LOCK) {
+            if (running)
+                return;
+            running = true;
+            ChangeFeed.subscribe(FEED);
+            scheduler = new Thread(SyncEngine::loop, "cloud-sync-engine");
+            scheduler.setDaemon(true);
+            scheduler.start();
+        }
+        System.out.println("[SYNC] engine started (coalesce " + COALESCE_MS + " ms, idle poll "
+                + (IDLE_MS > 0 ? IDLE_MS + " ms" : "off") + ", backoff "
+                + BACKOFF_MS + ".." + MAX_BACKOFF_MS + " ms, rejected rows "
+                + REJECT_RETRY_MS + ".." + MAX_REJECT_RETRY_MS + " ms)");
+    }
+
+    /** Stops after the pass in progress, waiting up to {@code timeoutMs}. */
+    public static void shutdown(long timeoutMs) {
+        Thread t;
+        synchronized (LOCK) {
+            if (!running)
+                return;
+            running = false;
+            ChangeFeed.unsubscribe(FEED);
+            t = scheduler;
+            LOCK.notifyAll();
+        }
+        // no interrupt: UCanAccess does not like being interrupted mid-statement
+        try {
+            t.join(timeoutMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ================= SCHEDULER ================= */
+
+    private static void loop() {
+        while (running) {
+            Stream next;
+            synchronized (LOCK) {
+                next = null;
+                for (Stream s : streams.values()) {
+                    if (next == null || s.dueAt < next.dueAt)
+                        next = s;
+                }
+                long waitMs = next == null || next.dueAt == NEVER ? 0 : next.dueAt - now();
+                if (next == null || next.dueAt == NEVER || waitMs > 0) {
+                    try {
+                        LOCK.wait(waitMs); // 0 = until notified
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    continue; // re-pick: a wake or register may have changed things
+                }
+                next.dueAt = NEVER; // changes during the pass schedule the next one
+            }
+            runPass(next);
+        }
+    }
+
+    private static void runPass(Stream s) {
+        BatchUploader.Pass pass = null;
+        Exception error = null;
+        try {
+            pass = BatchUploader.uploadAll(s.tag, s.endpoint, s.source, s.marker);
+        } catch (Exception ex) {
+            error = ex;
+        }
+
+        synchronized (LOCK) {
+            s.passes++;
+            if (error == null) {
+                s.rowsSent += pass.sent;
+                s.failures = 0;
+                s.lastError = null;
+                s.lastSuccessAt = System.currentTimeMillis();
+                // rows written meanwhile came through the feed; rejected ones did not
+                if (pass.rejected > 0) {
+                    s.rejectedPasses++;
+                    s.dueAt = Math.min(s.dueAt, now() + rejectRetry(s.rejectedPasses));
+                } else {
+                    s.rejectedPasses = 0;
+                }
+                if (IDLE_MS > 0)
+                    s.dueAt = Math.min(s.dueAt, now() + IDLE_MS);
+            } else {
+                s.failures++;
+                s.lastError = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+                long delay = backoff(s.failures);
+                s.dueAt = now() + delay;
+                System.err.println(s.tag + " pass failed (" + s.lastError + "), attempt " + s.failures
+                        + ", retrying in " + delay + " ms");
+            }
+        }
+    }
+
+    // BACKOFF_MS * 2^(n-1), capped, then drawn from [d/2, d] so streams do not retry in step
+    static long backoff(int failures) {
+        long d = backoffBound(failures);
+        return d / 2 + ThreadLocalRandom.current().nextLong(d / 2 + 1);
+    }
+
+    static long backoffBound(int failures) {
+        return Math.min(BACKOFF_MS << Math.min(failures - 1, 20), MAX_BACKOFF_MS);
+    }
+
+    // REJECT_RETRY_MS * 2^(n-1), capped: a card the server keeps refusing costs a read now and then
+    static long rejectRetry(int passes) {
+        return Math.min(REJECT_RETRY_MS << Math.min(passes - 1, 20), MAX_REJECT_RETRY_MS);
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    /* ================= STATS ================= */
+
+    public static List<StreamStats> stats() {
+        List<StreamStats> out = new ArrayList<>();
+        synchronized (LOCK) {
+            long now = now();
+            for (Stream s : streams.values()) {
+                StreamStats st = new StreamStats();
+                st.table = s.table;
+                st.passes = s.passes;
+                st.rowsSent = s.rowsSent;
+                st.failures = s.failures;
+                st.rejectedPasses = s.rejectedPasses;
+                st.lastError = s.lastError;
+                st.lastSuccessAt = s.lastSuccessAt;
+                st.dueInMs = s.dueAt == NEVER ? -1 : Math.max(0, s.dueAt - now);
+                out.add(st);
+            }
+        }
+        return out;
+    }
+}
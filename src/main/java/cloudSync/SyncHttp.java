@@ -0,0 +1,175 @@
+package cloudSync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP for the cloud sync: one HttpClient for the whole app, so connections
+ * (HTTP/2 where the server offers it, keep-alive otherwise) are reused
+ * across batches and passes instead of opened per upload.
+ *
+ * Request bodies are plain JSON unless -Dcloudsync.gzip=true, for servers
+ * known to take Content-Encoding: gzip. One that does not usually answers a
+ * compressed body with 400, 415 or 500 rather than anything specific, so
+ * BatchUploader sends a refused batch again uncompressed, and if that goes
+ * through, gzipRefused() turns compression off for the rest of the run.
+ * Responses are requested with Accept-Encoding: gzip and unpacked here. Raw and on-the-wire byte counts
+ * are kept in both directions (stats()).
+ */
+public final class SyncHttp {
+
+    private SyncHttp() {
+    }
+
+    static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private static volatile boolean gzipRequests = Boolean.getBoolean("cloudsync.gzip");
+
+    /** Byte counters since start. */
+    public static final class Stats {
+        public long requests;
+        public long rawBytesOut; // JSON produced
+        public long wireBytesOut; // request body as sent
+        public long wireBytesIn; // response body as received
+        public long rawBytesIn; // response body after unpacking
+        public boolean gzipRequests;
+    }
+
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong rawOut = new AtomicLong();
+    private static final AtomicLong wireOut = new AtomicLong();
+    private static final AtomicLong wireIn = new AtomicLong();
+    private static final AtomicLong rawIn = new AtomicLong();
+
+    /** Status and (unpacked) text of a response. */
+    static final class Response {
+        final int status;
+        final String body;
+        final boolean sentGzip;
+
+        Response(int status, String body, boolean sentGzip) {
+            this.status = status;
+            this.body = body;
+            this.sentGzip = sentGzip;
+        }
+
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    /**
+     * A request body being written: compressed on the fly when gzip is on.
+     * Bounded by the caller (one batch), so it is buffered and sent with a
+     * Content-Length.
+     */
+    static final class Body {
+        private final ByteArrayOutputStream wire = new ByteArrayOutputStream(16 * 1024);
+        private final boolean gzip;
+        private long raw;
+
+        /** Compressed if gzip is on. */
+        Body() {
+            this(gzipRequests);
+        }
+
+        Body(boolean gzip) {
+            this.gzip = gzip;
+        }
+
+        OutputStream open() throws IOException {
+            OutputStream target = gzip ? new GZIPOutputStream(wire, 8 * 1024) : wire;
+            return new FilterOutputStream(target) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    raw++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    raw += len;
+                }
+            };
+        }
+    }
+
+    /* ================= POST ================= */
+
+    /** POST a JSON body written into {@code body} (closed by the writer). */
+    static Response postJson(String endpoint, Body body) throws IOException, InterruptedException {
+        byte[] bytes = body.wire.toByteArray();
+        HttpRequest.Builder rb = HttpRequest.newBuilder(URI.create(endpoint))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes));
+        if (body.gzip)
+            rb.header("Content-Encoding", "gzip");
+
+        HttpResponse<byte[]> resp = CLIENT.send(rb.build(), HttpResponse.BodyHandlers.ofByteArray());
+        requests.incrementAndGet();
+        rawOut.addAndGet(body.raw);
+        wireOut.addAndGet(bytes.length);
+
+        byte[] in = resp.body() == null ? new byte[0] : resp.body();
+        wireIn.addAndGet(in.length);
+        boolean packed = resp.headers().firstValue("Content-Encoding")
+                .map(v -> v.equalsIgnoreCase("gzip")).orElse(false);
+        if (packed && in.length > 0) {
+            try (InputStream gz = new GZIPInputStream(new java.io.ByteArrayInputStream(in))) {
+                in = gz.readAllBytes();
+            }
+        }
+        rawIn.addAndGet(in.length);
+
+        return new Response(resp.statusCode(), new String(in, StandardCharsets.UTF_8), body.gzip);
+    }
+
+    /** The server refused a compressed body ({@code status}) and took it plain: stop compressing. */
+    static void gzipRefused(int status) {
+        if (gzipRequests) {
+            gzipRequests = false;
+            System.err.println("[SYNC] server answered " + status
+                    + " to a gzip request body but took it plain; sending plain JSON");
+        }
+    }
+
+    static void useGzip(boolean on) {
+        gzipRequests = on;
+    }
+
+    /* ================= STATS ================= */
+
+    public static Stats stats() {
+        Stats s = new Stats();
+        s.requests = requests.get();
+        s.rawBytesOut = rawOut.get();
+        s.wireBytesOut = wireOut.get();
+        s.wireBytesIn = wireIn.get();
+        s.rawBytesIn = rawIn.get();
+        s.gzipRequests = gzipRequests;
+        return s;
+    }
+}
@@ -36,10 +36,13 @@ public class AccessDb {
                                [CardUID] = NULL
                          WHERE UCASE(REPLACE(REPLACE(REPLACE(TRIM([CardUID]), ':', ''), '-', ''), ' ', '')) = ?
                     """;
+            int n;
             try (PreparedStatement ps = c.prepareStatement(sql)) {
                 ps.setString(1, uid);
-                return ps.executeUpdate();
+                n = ps.executeUpdate();
             }
+            ParticipantIndex.removeCard(uid);
+            return n;
         }
     }
 
@@ -53,29 +56,8 @@ public class AccessDb {
     }
 
     // yyyy-MM-dd (ISO) or null
-    private static String normalizeDobOrNull(String raw) {
-        if (raw == null)
-            return null;
-        String s = raw.trim();
-        if (s.isEmpty())
-            return null;
-        String[] patterns = {
-                "yyyy-MM-dd", "dd/MM/yyyy", "dd-MM-yyyy", "MM/dd/yyyy",
-                "dd.MM.yyyy", "d/M/yyyy", "d-M-yyyy", "M/d/yyyy"
-        };
-        for (String p : patterns) {
-            try {
-                var fmt = java.time.format.DateTimeFormatter.ofPattern(p);
-                var d = java.time.LocalDate.parse(s, fmt);
-                return d.toString();
-            } catch (Exception ignore) {
-            }
-        }
-        try {
-            return java.time.LocalDate.parse(s).toString();
-        } catch (Exception ignore) {
-        }
-        return null;
+    static String normalizeDobOrNull(String raw) {
+        return util.FieldNormalizer.normalizeDob(raw);
     }
 
     private static String tryNormalizeDob(String raw) {
@@ -99,29 +81,8 @@ public class AccessDb {
     // "0918638281911" -> "+918638281911"
     // "8638281911" -> "+918638281911"
     // "91918638281911" -> "+918638281911"
-    private static String normalizePhoneE164IN(String raw) {
-        if (raw == null)
-            return "";
-        String d = raw.replaceAll("\\D+", ""); // only digits
-
-        // remove 00/0 prefixes
-        while (d.startsWith("00"))
-            d = d.substring(2);
-        if (d.startsWith("0"))
-            d = d.substring(1);
-
-        // collapse accidental 9191... once
-        if (d.startsWith("9191") && d.length() == 13)
-            d = d.substring(2);
-
-        if (d.length() == 12 && d.startsWith("91"))
-            return "+" + d; // already with country
-        if (d.length() == 10)
-            return "+91" + d; // add country
-
-        if (d.startsWith("91") && d.length() > 12)
-            d = d.substring(0, 12);
-        return d.isEmpty() ? "" : "+" + d;
+    static String normalizePhoneE164IN(String raw) {
+        return util.FieldNormalizer.normalizePhone(raw);
     }
 
     private static String readPhoneE164IN(ResultSet rs, String... cols) {
@@ -184,12 +145,70 @@ public class AccessDb {
                 + ";memory=false;immediatelyReleaseResources=true";
     }
 
+    // -------------------- pooled connections --------------------
+
+    private static final int POOL_MAX_SIZE = 4;
+    private static final int POOL_MIN_IDLE = 1;
+    private static final long POOL_IDLE_TIMEOUT_MS = 5 * 60_000L;
+    private static final long POOL_VALIDATE_AFTER_MS = 30_000L;
+    private static final long POOL_BORROW_TIMEOUT_MS = 15_000L;
+
+    private static volatile boolean seedChecked = false;
+    private static volatile ConnectionPool pool;
+    private static volatile boolean closed = false; // set by shutdown(), for good
+
+    /**
+     * Borrow a connection from the shared pool. Closing it returns it to the
+     * pool; the physical UCanAccess connection stays open for the next caller.
+     * After shutdown() this throws instead of opening a new pool.
+     */
     public static Connection getConnection() throws SQLException {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (AccessDb.class) {
+                if (closed)
+                    throw new SQLException("AccessDb is shut down");
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(AccessDb::openPhysicalConnection,
+                            POOL_MAX_SIZE, POOL_MIN_IDLE,
+                            POOL_IDLE_TIMEOUT_MS, POOL_VALIDATE_AFTER_MS, POOL_BORROW_TIMEOUT_MS);
+                    pool = p;
+                }
+            }
+        }
+        return p.borrow();
+    }
+
+    /**
+     * Close all pooled connections (call once on application exit). Late
+     * callers (journal drainer, a sync pass) then get an SQLException rather
+     * than a fresh pool nobody would close.
+     */
+    public static void shutdown() {
+        ConnectionPool p;
+        synchronized (AccessDb.class) {
+            closed = true;
+            p = pool;
+            pool = null;
+        }
+        if (p != null)
+            p.shutdown();
+    }
+
+    private static void ensureSeedDbPresentOnce() throws SQLException {
+        if (seedChecked)
+            return;
         try {
             ensureSeedDbPresent();
+            seedChecked = true;
         } catch (IOException io) {
             throw new SQLException("Failed to provision seed DB: " + io.getMessage(), io);
         }
+    }
+
+    private static Connection openPhysicalConnection() throws SQLException {
+        ensureSeedDbPresentOnce();
 
         final String url = buildUrl(getWritableDbPath());
 
@@ -197,6 +216,7 @@ public class AccessDb {
             boolean interrupted = Thread.interrupted(); // clear interrupt flag safely
 
             try {
+                DebugLog.d("[AccessDb] opening new pooled connection");
                 return DriverManager.getConnection(url);
             } catch (SQLException ex) {
                 // Check if caused by ClosedByInterruptException (Jackcess got interrupted
@@ -233,11 +253,7 @@ public class AccessDb {
 
     // Optional: handy to print where we’re writing
     public static Path getActiveDbPath() throws SQLException {
-        try {
-            ensureSeedDbPresent();
-        } catch (IOException e) {
-            throw new SQLException(e);
-        }
+        ensureSeedDbPresentOnce();
         return getWritableDbPath();
     }
 
@@ -374,22 +390,6 @@ public class AccessDb {
                         row.put("status", get2.apply("status", "STATUS"));
                         row.put("CardUID", get2.apply("CardUID", "CARDUID"));
 
-                        String csv = String.join(",",
-                                Arrays.asList(
-                                        row.getOrDefault("FullName", ""),
-                                        row.getOrDefault("BSGUID", ""),
-                                        row.getOrDefault("ParticipationType", ""),
-                                        row.getOrDefault("bsgDistrict", ""),
-                                        row.getOrDefault("Email", ""),
-                                        row.getOrDefault("phoneNumber", ""),
-                                        row.getOrDefault("bsgState", ""),
-                                        row.getOrDefault("memberType", ""),
-                                        row.getOrDefault("unitName", ""),
-                                        row.getOrDefault("rank_or_section", ""),
-                                        row.getOrDefault("dateOfBirth", ""),
-                                        row.getOrDefault("age", "")));
-                        row.put("__CSV__", csv);
-
                         out.add(row);
                     }
                     return out;
@@ -416,21 +416,9 @@ public class AccessDb {
             c.setAutoCommit(false);
 
             try {
-                DatabaseMetaData md = c.getMetaData();
-
-                // discover actual columns + jdbc types
-                Set<String> actual = new HashSet<>();
-                Map<String, Integer> colType = new HashMap<>();
-                try (ResultSet rs = md.getColumns(null, null, "ParticipantsWrite", "%")) {
-                    while (rs.next()) {
-                        String name = rs.getString("COLUMN_NAME");
-                        if (name != null) {
-                            String up = name.toUpperCase(Locale.ROOT);
-                            actual.add(up);
-                            colType.put(up, rs.getInt("DATA_TYPE")); // java.sql.Types
-                        }
-                    }
-                }
+                // actual columns + jdbc types (read once per run)
+                Map<String, Integer> colType = participantsWriteColumns(c);
+                Set<String> actual = colType.keySet();
 
                 List<String> cols = new ArrayList<>();
                 List<Object> vals = new ArrayList<>();
@@ -578,6 +566,14 @@ public class AccessDb {
                 }
 
                 c.commit();
+                if (updated) {
+                    try {
+                        ParticipantIndex.refreshCard(c, normalize(cardUid));
+                    } catch (SQLException ex) {
+                        DebugLog.ex(ex, "[AccessDb] participant index refresh failed; rebuilding on next lookup");
+                        ParticipantIndex.invalidate();
+                    }
+                }
                 return generatedId;
 
             } catch (SQLException ex) {
@@ -597,6 +593,45 @@ public class AccessDb {
 
     // -------------------- POST-INSERT UPDATE --------------------
 
+    // Table layout does not change while the app runs, so the metadata scans
+    // insertAttendee needs are done once (batch issuance calls it per card).
+    private static volatile Map<String, Integer> participantsWriteColumns = null;
+    private static volatile boolean participantsRecordExists = false;
+
+    // ParticipantsWrite columns, upper-case name -> java.sql.Types
+    private static Map<String, Integer> participantsWriteColumns(Connection c) throws SQLException {
+        Map<String, Integer> cols = participantsWriteColumns;
+        if (cols != null)
+            return cols;
+        cols = new HashMap<>();
+        try (ResultSet rs = c.getMetaData().getColumns(null, null, "ParticipantsWrite", "%")) {
+            while (rs.next()) {
+                String name = rs.getString("COLUMN_NAME");
+                if (name != null)
+                    cols.put(name.toUpperCase(Locale.ROOT), rs.getInt("DATA_TYPE"));
+            }
+        }
+        cols = Collections.unmodifiableMap(cols);
+        if (!cols.isEmpty())
+            participantsWriteColumns = cols;
+        return cols;
+    }
+
+    private static boolean participantsRecordExists(Connection c) throws SQLException {
+        if (participantsRecordExists)
+            return true;
+        DatabaseMetaData md = c.getMetaData();
+        for (String name : new String[] { "ParticipantsRecord", "PARTICIPANTSRECORD" }) {
+            try (ResultSet rs = md.getTables(null, null, name, new String[] { "TABLE" })) {
+                if (rs.next()) {
+                    participantsRecordExists = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private static boolean updateParticipantsRecord(Connection c, Map<String, String> data, String cardUid)
             throws SQLException {
 
@@ -607,19 +642,7 @@ public class AccessDb {
         // normalize phone to the same format we store
         String phone = normalizePhoneE164IN(firstNonBlank(data, "phoneNumber", "PhoneNumber"));
 
-        DatabaseMetaData md = c.getMetaData();
-        boolean tableExists = false;
-        try (ResultSet rs = md.getTables(null, null, "ParticipantsRecord", new String[] { "TABLE" })) {
-            if (rs.next())
-                tableExists = true;
-        }
-        if (!tableExists) {
-            try (ResultSet rs2 = md.getTables(null, null, "PARTICIPANTSRECORD", new String[] { "TABLE" })) {
-                if (rs2.next())
-                    tableExists = true;
-            }
-        }
-        if (!tableExists)
+        if (!participantsRecordExists(c))
             throw new SQLException("ParticipantsRecord table not found in DB.");
 
         // 1) BSGUID
@@ -702,6 +725,8 @@ public class AccessDb {
         } catch (Exception ex) {
             System.out.println("Error: " + ex.getMessage());
             ex.printStackTrace(System.out);
+        } finally {
+            shutdown();
         }
     }
 
@@ -913,188 +938,35 @@ public class AccessDb {
             return 0;
 
         try (Connection c = getConnection()) {
-            c.setAutoCommit(false);
-            try {
-
-                int affected = 0;
-
-                // SELECTs now return SlNo, CardUID, status so we can decide whether to touch
-                // status/CardUID
-                String selectWithGuid = "SELECT SlNo, CardUID, [status] FROM ParticipantsRecord WHERE UCASE(FullName)=UCASE(?) AND UCASE(BSGUID)=UCASE(?)";
-                String selectWithoutGuid = "SELECT SlNo, CardUID, [status] FROM ParticipantsRecord WHERE UCASE(FullName)=UCASE(?) AND (BSGUID IS NULL OR BSGUID='')";
-
-                try (PreparedStatement selectWith = c.prepareStatement(selectWithGuid);
-                        PreparedStatement selectWithout = c.prepareStatement(selectWithoutGuid)) {
-
-                    for (Map<String, String> r : rows) {
-
-                        String name = safe(r, "FullName");
-                        String bsguid = safe(r, "BSGUID");
-
-                        // Normalize empty strings to null for easier checks
-                        if (name != null)
-                            name = name.trim();
-                        if (bsguid != null) {
-                            bsguid = bsguid.trim();
-                            if (bsguid.isEmpty())
-                                bsguid = null;
-                        }
-
-                        // Still require a name
-                        if (name == null || name.isEmpty())
-                            continue; // skip rows without a name
-
-                        // Check if exists (choose select based on presence of BSGUID)
-                        Long existingId = null;
-                        String existingCardUid = null;
-                        String existingStatus = null;
-
-                        if (bsguid != null) {
-                            selectWith.setString(1, name);
-                            selectWith.setString(2, bsguid);
-                            try (ResultSet rs = selectWith.executeQuery()) {
-                                if (rs.next()) {
-                                    existingId = rs.getLong(1);
-                                    existingCardUid = rs.getString(2);
-                                    existingStatus = rs.getString(3);
-                                }
-                            }
-                        } else {
-                            selectWithout.setString(1, name);
-                            try (ResultSet rs = selectWithout.executeQuery()) {
-                                if (rs.next()) {
-                                    existingId = rs.getLong(1);
-                                    existingCardUid = rs.getString(2);
-                                    existingStatus = rs.getString(3);
-                                }
-                            }
-                        }
-
-                        // Normalize / convert values
-                        String phone = normalizePhoneE164IN(safe(r, "phoneNumber"));
-                        String dobIso = normalizeDobOrNull(safe(r, "dateOfBirth"));
-
-                        if (existingId != null) {
-                            // If the existing record already has a non-empty CardUID AND status='T',
-                            // we must NOT set status='F' (we should preserve status and CardUID).
-                            boolean hasCard = existingCardUid != null && !existingCardUid.trim().isEmpty();
-                            boolean isT = existingStatus != null && "T".equalsIgnoreCase(existingStatus.trim());
-
-                            if (hasCard && isT) {
-                                // Update without touching status or CardUID
-                                String updateKeepStatus = """
-                                        UPDATE ParticipantsRecord SET
-                                          ParticipationType = ?, bsgDistrict = ?, Email = ?, phoneNumber = ?,
-                                          bsgState = ?, memberType = ?, unitName = ?, rank_or_section = ?,
-                                          dateOfBirth = ?, age = ?, excel_category = ?
-                                        WHERE SlNo = ?
-                                        """;
-                                try (PreparedStatement ps = c.prepareStatement(updateKeepStatus)) {
-                                    int i = 1;
-                                    ps.setString(i++, safe(r, "ParticipationType"));
-                                    ps.setString(i++, safe(r, "bsgDistrict"));
-                                    ps.setString(i++, safe(r, "Email"));
-                                    ps.setString(i++, phone);
-                                    ps.setString(i++, safe(r, "bsgState"));
-                                    ps.setString(i++, safe(r, "memberType"));
-                                    ps.setString(i++, safe(r, "unitName"));
-                                    ps.setString(i++, safe(r, "rank_or_section"));
-                                    if (dobIso != null)
-                                        ps.setDate(i++, java.sql.Date.valueOf(dobIso));
-                                    else
-                                        ps.setNull(i++, java.sql.Types.DATE);
-                                    ps.setString(i++, safe(r, "age"));
-                                    ps.setString(i++, excelCategory);
-                                    ps.setLong(i++, existingId);
-                                    affected += ps.executeUpdate();
-                                }
-                            } else {
-                                // Safe to set status='F' (either no card present before or status not 'T').
-                                // Also update BSGUID (may be null).
-                                String update = """
-                                        UPDATE ParticipantsRecord SET
-                                          BSGUID = ?, ParticipationType = ?, bsgDistrict = ?, Email = ?, phoneNumber = ?,
-                                          bsgState = ?, memberType = ?, unitName = ?, rank_or_section = ?,
-                                          dateOfBirth = ?, age = ?, excel_category = ?, status = 'F'
-                                        WHERE SlNo = ?
-                                        """;
-                                try (PreparedStatement ps = c.prepareStatement(update)) {
-                                    int i = 1;
-                                    if (bsguid != null)
-                                        ps.setString(i++, bsguid);
-                                    else
-                                        ps.setNull(i++, java.sql.Types.VARCHAR);
-
-                                    ps.setString(i++, safe(r, "ParticipationType"));
-                                    ps.setString(i++, safe(r, "bsgDistrict"));
-                                    ps.setString(i++, safe(r, "Email"));
-                                    ps.setString(i++, phone);
-                                    ps.setString(i++, safe(r, "bsgState"));
-                                    ps.setString(i++, safe(r, "memberType"));
-                                    ps.setString(i++, safe(r, "unitName"));
-                                    ps.setString(i++, safe(r, "rank_or_section"));
-                                    if (dobIso != null)
-                                        ps.setDate(i++, java.sql.Date.valueOf(dobIso));
-                                    else
-                                        ps.setNull(i++, java.sql.Types.DATE);
-                                    ps.setString(i++, safe(r, "age"));
-                                    ps.setString(i++, excelCategory);
-                                    ps.setLong(i++, existingId);
-                                    affected += ps.executeUpdate();
-                                }
-                            }
-
-                        } else {
-                            // ---------- INSERT ----------
-                            String insert = """
-                                    INSERT INTO ParticipantsRecord
-                                    (FullName, BSGUID, ParticipationType, bsgDistrict, Email, phoneNumber,
-                                     bsgState, memberType, unitName, rank_or_section, dateOfBirth,
-                                     age, excel_category, status)
-                                    VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?, 'F')
-                                    """;
-                            try (PreparedStatement ps = c.prepareStatement(insert)) {
-                                int i = 1;
-                                ps.setString(i++, name);
-                                if (bsguid != null)
-                                    ps.setString(i++, bsguid);
-                                else
-                                    ps.setNull(i++, java.sql.Types.VARCHAR);
-
-                                ps.setString(i++, safe(r, "ParticipationType"));
-                                ps.setString(i++, safe(r, "bsgDistrict"));
-                                ps.setString(i++, safe(r, "Email"));
-                                ps.setString(i++, phone);
-                                ps.setString(i++, safe(r, "bsgState"));
-                                ps.setString(i++, safe(r, "memberType"));
-                                ps.setString(i++, safe(r, "unitName"));
-                                ps.setString(i++, safe(r, "rank_or_section"));
-                                if (dobIso != null)
-                                    ps.setDate(i++, java.sql.Date.valueOf(dobIso));
-                                else
-                                    ps.setNull(i++, java.sql.Types.DATE);
-                                ps.setString(i++, safe(r, "age"));
-                                ps.setString(i++, excelCategory);
-                                affected += ps.executeUpdate();
-                            }
-                        }
-                    }
-                }
-
-                c.commit();
-                return affected;
+            int affected;
+            try (ParticipantBulkImporter importer = new ParticipantBulkImporter(c, excelCategory)) {
+                for (Map<String, String> r : rows)
+                    importer.add(r);
+                affected = importer.finish();
+            }
 
-            } catch (Exception ex) {
-                c.rollback();
-                throw ex;
-            } finally {
-                c.setAutoCommit(true);
+            // status / type of carded rows may have changed
+            try {
+                ParticipantIndex.reload(c);
+            } catch (SQLException ex) {
+                DebugLog.ex(ex, "[AccessDb] participant index reload failed; rebuilding on next lookup");
+                ParticipantIndex.invalidate();
             }
+            return affected;
         }
     }
 
+    /**
+     * Streams a sheet straight into ParticipantsRecord: rows go from the SAX
+     * reader to the batch importer without the whole sheet ever being in memory.
+     * See ParticipantImportPipeline for progress reporting and cancellation.
+     */
+    public static int bulkImportParticipantsSheet(java.io.File file, String sheetName) throws Exception {
+        return new ParticipantImportPipeline(file, sheetName, null).run();
+    }
+
     // Helpers
-    private static String safe(Map<String, String> r, String k) {
+    static String safe(Map<String, String> r, String k) {
         if (r == null)
             return null;
         String v = r.get(k);
@@ -1134,32 +1006,17 @@ public class AccessDb {
             String fullName = null;
             String bsguid = null;
 
-            // Lookup participant by normalized CardUID (same normalization logic as
-            // elsewhere)
-            String sel = """
-                    SELECT TOP 1 [FullName], [BSGUID]
-                    FROM [ParticipantsRecord]
-                    WHERE UCASE(REPLACE(REPLACE(REPLACE(TRIM([CardUID]), ':', ''), '-', ''), ' ', '')) = ?
-                    """;
-
+            // Lookup participant by normalized CardUID from the in-memory index
             util.DebugLog.d("Running participant lookup for normalizedUid='%s'", uid);
-            try (PreparedStatement ps = c.prepareStatement(sel)) {
-                ps.setString(1, uid);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        fullName = rs.getString("FullName");
-                        bsguid = rs.getString("BSGUID"); // may be null or empty — that's acceptable
-                        util.DebugLog.d("Participant lookup success for uid='%s' -> fullName='%s', bsguid='%s'",
-                                uid, fullName, bsguid);
-                    } else {
-                        util.DebugLog.d("Participant lookup: NO ROW for uid='%s' -> will NOT insert trans", uid);
-                        return 0; // card must exist in ParticipantsRecord; do not insert otherwise
-                    }
-                }
-            } catch (SQLException se) {
-                util.DebugLog.ex(se, "SQL error during participant lookup for uid='%s'", uid);
-                throw se;
+            dto.ParticipantRow p = ParticipantIndex.lookup(c, uid);
+            if (p == null) {
+                util.DebugLog.d("Participant lookup: NO ROW for uid='%s' -> will NOT insert trans", uid);
+                return 0; // card must exist in ParticipantsRecord; do not insert otherwise
             }
+            fullName = p.fullName;
+            bsguid = p.bsguid; // may be null or empty — that's acceptable
+            util.DebugLog.d("Participant lookup success for uid='%s' -> fullName='%s', bsguid='%s'",
+                    uid, fullName, bsguid);
 
             // Prepare insert into trans — allow bsguid to be NULL if missing
             String ins = """
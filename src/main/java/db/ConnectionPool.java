@@ -0,0 +1,272 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import util.DebugLog;
+
+/**
+ * Small bounded pool of long-lived physical connections.
+ *
+ * Callers get a proxy whose close() hands the physical connection back to the
+ * pool instead of closing it, so existing try-with-resources code keeps working
+ * unchanged. Idle connections are validated before reuse and evicted by a
+ * background task once they have been unused for {@code idleTimeoutMs}.
+ */
+final class ConnectionPool {
+
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private static final class Entry {
+        final Connection physical;
+        long lastUsedAt;
+
+        Entry(Connection physical) {
+            this.physical = physical;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutMs;
+    private final long validateAfterMs;
+    private final long borrowTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<Entry> idle = new ArrayDeque<>();
+    private int total = 0;
+    private boolean closed = false;
+
+    private final ScheduledExecutorService evictor;
+
+    ConnectionPool(ConnectionFactory factory, int maxSize, int minIdle,
+            long idleTimeoutMs, long validateAfterMs, long borrowTimeoutMs) {
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxSize));
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validateAfterMs = validateAfterMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000L, idleTimeoutMs / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Borrow a connection; close() on the returned object releases it. */
+    Connection borrow() throws SQLException {
+        Entry e = acquire();
+        try {
+            if (!isHealthy(e)) {
+                DebugLog.d("[ConnectionPool] discarding stale connection");
+                closeQuietly(e.physical);
+                e = new Entry(factory.open());
+            }
+        } catch (SQLException ex) {
+            discard();
+            throw ex;
+        }
+        return wrap(e);
+    }
+
+    private Entry acquire() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        lock.lock();
+        try {
+            while (true) {
+                if (closed)
+                    throw new SQLException("Connection pool is shut down");
+
+                Entry e = idle.pollFirst();
+                if (e != null)
+                    return e;
+
+                if (total < maxSize) {
+                    total++;
+                    break;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    throw new SQLException("Timed out waiting for a DB connection (pool size=" + maxSize + ")");
+                try {
+                    available.awaitNanos(remaining);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a DB connection", ie);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // open outside the lock; slot already reserved
+        try {
+            return new Entry(factory.open());
+        } catch (SQLException ex) {
+            discard();
+            throw ex;
+        }
+    }
+
+    private boolean isHealthy(Entry e) {
+        try {
+            if (e.physical.isClosed())
+                return false;
+            if (System.currentTimeMillis() - e.lastUsedAt < validateAfterMs)
+                return true;
+            return e.physical.isValid(2);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void release(Entry e) {
+        boolean reusable;
+        try {
+            reusable = !e.physical.isClosed();
+            if (reusable && !e.physical.getAutoCommit()) {
+                // never hand out a half-finished transaction
+                e.physical.rollback();
+                e.physical.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            reusable = false;
+        }
+
+        lock.lock();
+        try {
+            if (reusable && !closed) {
+                e.lastUsedAt = System.currentTimeMillis();
+                idle.addFirst(e); // LIFO keeps the hottest connection in use
+            } else {
+                total--;
+                closeQuietly(e.physical);
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void evictIdle() {
+        List<Connection> toClose = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<Entry> it = idle.descendingIterator(); // oldest first
+            while (it.hasNext() && idle.size() > minIdle) {
+                Entry e = it.next();
+                if (now - e.lastUsedAt >= idleTimeoutMs) {
+                    it.remove();
+                    total--;
+                    toClose.add(e.physical);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Connection c : toClose)
+            closeQuietly(c);
+        if (!toClose.isEmpty())
+            DebugLog.d("[ConnectionPool] evicted %d idle connection(s)", toClose.size());
+    }
+
+    /** Close every idle connection and refuse further borrows. */
+    void shutdown() {
+        evictor.shutdownNow();
+        List<Connection> toClose = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            for (Entry e : idle)
+                toClose.add(e.physical);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Connection c : toClose)
+            closeQuietly(c);
+        DebugLog.d("[ConnectionPool] shut down, closed %d connection(s)", toClose.size());
+    }
+
+    private Connection wrap(Entry e) {
+        InvocationHandler h = new InvocationHandler() {
+            private boolean released = false;
+
+            @Override
+            public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+                switch (m.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(e);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || e.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled[" + e.physical + "]";
+                    default:
+                        break;
+                }
+                if (released)
+                    throw new SQLException("Connection already returned to the pool");
+                try {
+                    return m.invoke(e.physical, args);
+                } catch (InvocationTargetException ite) {
+                    throw ite.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, h);
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (Exception ignored) {
+        }
+    }
+}
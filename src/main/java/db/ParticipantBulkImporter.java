@@ -0,0 +1,304 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import util.DebugLog;
+import util.FieldNormalizer;
+
+/**
+ * Set-based import of roster rows into ParticipantsRecord.
+ *
+ * The existing (FullName, BSGUID) keys are loaded once, each incoming row is
+ * classified as insert or update in memory, and the writes go out through
+ * three reused prepared statements in executeBatch chunks. All of it runs in
+ * one transaction: finish() commits, close() without finish() rolls back.
+ *
+ * Row semantics match the old per-row loop: a matched row that already has a
+ * card with status 'T' keeps its status/CardUID; any other match is reset to
+ * status 'F'; unmatched rows are inserted with status 'F'.
+ */
+public final class ParticipantBulkImporter implements AutoCloseable {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final String LOAD_KEYS_SQL = """
+            SELECT SlNo, FullName, BSGUID, CardUID, [status]
+            FROM ParticipantsRecord
+            ORDER BY SlNo
+            """;
+
+    private static final String UPDATE_KEEP_STATUS_SQL = """
+            UPDATE ParticipantsRecord SET
+              ParticipationType = ?, bsgDistrict = ?, Email = ?, phoneNumber = ?,
+              bsgState = ?, memberType = ?, unitName = ?, rank_or_section = ?,
+              dateOfBirth = ?, age = ?, excel_category = ?
+            WHERE SlNo = ?
+            """;
+
+    private static final String UPDATE_RESET_STATUS_SQL = """
+            UPDATE ParticipantsRecord SET
+              BSGUID = ?, ParticipationType = ?, bsgDistrict = ?, Email = ?, phoneNumber = ?,
+              bsgState = ?, memberType = ?, unitName = ?, rank_or_section = ?,
+              dateOfBirth = ?, age = ?, excel_category = ?, status = 'F'
+            WHERE SlNo = ?
+            """;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO ParticipantsRecord
+            (FullName, BSGUID, ParticipationType, bsgDistrict, Email, phoneNumber,
+             bsgState, memberType, unitName, rank_or_section, dateOfBirth,
+             age, excel_category, status)
+            VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?, 'F')
+            """;
+
+    private static final class Existing {
+        final long slNo;
+        final boolean keepStatus;
+
+        Existing(long slNo, boolean keepStatus) {
+            this.slNo = slNo;
+            this.keepStatus = keepStatus;
+        }
+    }
+
+    private final Connection c;
+    private final String excelCategory;
+    private final Map<String, Existing> existing = new HashMap<>();
+    // rows queued for insert in the current chunk, by key (later duplicates win)
+    private final Map<String, Map<String, String>> queuedInserts = new HashMap<>();
+    private final Set<String> insertedEarlier = new HashSet<>();
+
+    private final PreparedStatement updKeep;
+    private final PreparedStatement updReset;
+    private final PreparedStatement ins;
+    private int queuedKeep = 0;
+    private int queuedReset = 0;
+
+    private long rowsSeen = 0;
+    private long rowsWritten = 0;
+    private int affected = 0;
+    private boolean finished = false;
+    private final long startedAt = System.nanoTime();
+
+    public ParticipantBulkImporter(Connection c, String excelCategory) throws SQLException {
+        this.c = c;
+        this.excelCategory = excelCategory;
+        c.setAutoCommit(false);
+
+        try (Statement st = c.createStatement();
+                ResultSet rs = st.executeQuery(LOAD_KEYS_SQL)) {
+            while (rs.next()) {
+                String card = rs.getString(4);
+                String status = rs.getString(5);
+                boolean keep = card != null && !card.trim().isEmpty()
+                        && status != null && "T".equalsIgnoreCase(status.trim());
+                // first row wins, like the old SELECT
+                existing.putIfAbsent(key(rs.getString(2), rs.getString(3)), new Existing(rs.getLong(1), keep));
+            }
+        }
+
+        updKeep = c.prepareStatement(UPDATE_KEEP_STATUS_SQL);
+        updReset = c.prepareStatement(UPDATE_RESET_STATUS_SQL);
+        ins = c.prepareStatement(INSERT_SQL);
+
+        DebugLog.d("[BulkImport] loaded %d existing participant key(s)", existing.size());
+    }
+
+    private static String key(String fullName, String bsguid) {
+        String n = fullName == null ? "" : fullName.trim().toUpperCase(Locale.ROOT);
+        String g = bsguid == null ? "" : bsguid.trim().toUpperCase(Locale.ROOT);
+        return n + "|" + g;
+    }
+
+    private static final String[] IMPORTED_KEYS = {
+            "FullName", "BSGUID", "ParticipationType", "bsgDistrict", "Email", "phoneNumber",
+            "bsgState", "memberType", "unitName", "rank_or_section", "dateOfBirth", "age" };
+
+    /**
+     * Trim the imported columns and convert phone (+E.164) and date of birth
+     * (ISO) up front. Pure function, so it can run on a separate stage.
+     */
+    public static Map<String, String> normalize(Map<String, String> raw) {
+        return normalize(raw, null);
+    }
+
+    /**
+     * Same as {@link #normalize(Map)}; with a non-null {@code columns} the
+     * date-of-birth layout is learned across the rows of one import.
+     */
+    public static Map<String, String> normalize(Map<String, String> raw, FieldNormalizer columns) {
+        Map<String, String> out = new HashMap<>(IMPORTED_KEYS.length * 2);
+        for (String k : IMPORTED_KEYS)
+            out.put(k, AccessDb.safe(raw, k));
+        String dob = out.get("dateOfBirth");
+        out.put("phoneNumber", FieldNormalizer.normalizePhone(out.get("phoneNumber")));
+        out.put("dateOfBirth", columns != null ? columns.normalizeDobColumn(dob) : FieldNormalizer.normalizeDob(dob));
+        return out;
+    }
+
+    /** Classify and queue one raw roster row. Rows without a name are skipped. */
+    public void add(Map<String, String> raw) throws SQLException {
+        addNormalized(normalize(raw));
+    }
+
+    /** Same as {@link #add(Map)} for a row that already went through normalize(). */
+    public void addNormalized(Map<String, String> r) throws SQLException {
+        rowsSeen++;
+
+        String name = r.get("FullName");
+        if (name == null || name.isEmpty())
+            return;
+        String bsguid = r.get("BSGUID");
+        if (bsguid != null && bsguid.isEmpty())
+            bsguid = null;
+
+        String k = key(name, bsguid);
+        Existing ex = existing.get(k);
+        if (ex == null && insertedEarlier.remove(k)) {
+            ex = lookupInserted(name, bsguid);
+            if (ex != null)
+                existing.put(k, ex);
+        }
+
+        if (ex != null) {
+            if (ex.keepStatus) {
+                bindCommon(updKeep, 1, r);
+                updKeep.setLong(12, ex.slNo);
+                updKeep.addBatch();
+                queuedKeep++;
+            } else {
+                if (bsguid != null)
+                    updReset.setString(1, bsguid);
+                else
+                    updReset.setNull(1, Types.VARCHAR);
+                bindCommon(updReset, 2, r);
+                updReset.setLong(13, ex.slNo);
+                updReset.addBatch();
+                queuedReset++;
+            }
+        } else if (queuedInserts.put(k, r) != null) {
+            // same person twice in the sheet: the old loop inserted then updated;
+            // inserting the last version gives the same row
+            affected++;
+        }
+
+        if (queuedKeep + queuedReset + queuedInserts.size() >= CHUNK_SIZE)
+            flush();
+    }
+
+    // binds the 11 columns shared by all three statements, starting at 'i'
+    private void bindCommon(PreparedStatement ps, int i, Map<String, String> r) throws SQLException {
+        String dobIso = r.get("dateOfBirth");
+        ps.setString(i++, r.get("ParticipationType"));
+        ps.setString(i++, r.get("bsgDistrict"));
+        ps.setString(i++, r.get("Email"));
+        ps.setString(i++, r.get("phoneNumber"));
+        ps.setString(i++, r.get("bsgState"));
+        ps.setString(i++, r.get("memberType"));
+        ps.setString(i++, r.get("unitName"));
+        ps.setString(i++, r.get("rank_or_section"));
+        if (dobIso != null)
+            ps.setDate(i++, java.sql.Date.valueOf(dobIso));
+        else
+            ps.setNull(i++, Types.DATE);
+        ps.setString(i++, r.get("age"));
+        ps.setString(i, excelCategory);
+    }
+
+    private void flush() throws SQLException {
+        for (Map.Entry<String, Map<String, String>> e : queuedInserts.entrySet()) {
+            Map<String, String> r = e.getValue();
+            String bsguid = r.get("BSGUID");
+            ins.setString(1, r.get("FullName"));
+            if (bsguid != null && !bsguid.isEmpty())
+                ins.setString(2, bsguid);
+            else
+                ins.setNull(2, Types.VARCHAR);
+            bindCommon(ins, 3, r);
+            ins.addBatch();
+        }
+
+        // HSQLDB refuses executeBatch() on an empty batch
+        int rows = queuedKeep + queuedReset + queuedInserts.size();
+        if (queuedKeep > 0)
+            affected += sum(updKeep.executeBatch());
+        if (queuedReset > 0)
+            affected += sum(updReset.executeBatch());
+        if (!queuedInserts.isEmpty())
+            affected += sum(ins.executeBatch());
+
+        // inserted keys now exist as plain (status 'F') rows; a later duplicate
+        // becomes an update of that row
+        insertedEarlier.addAll(queuedInserts.keySet());
+
+        rowsWritten += rows;
+        queuedKeep = 0;
+        queuedReset = 0;
+        queuedInserts.clear();
+    }
+
+    // only reached when a sheet repeats a person inserted in an earlier chunk
+    private Existing lookupInserted(String name, String bsguid) throws SQLException {
+        String sql = bsguid != null
+                ? "SELECT SlNo FROM ParticipantsRecord WHERE UCASE(FullName)=UCASE(?) AND UCASE(BSGUID)=UCASE(?)"
+                : "SELECT SlNo FROM ParticipantsRecord WHERE UCASE(FullName)=UCASE(?) AND (BSGUID IS NULL OR BSGUID='')";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, name);
+            if (bsguid != null)
+                ps.setString(2, bsguid);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Existing(rs.getLong(1), false) : null;
+            }
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int n = 0;
+        for (int x : counts)
+            n += (x == Statement.SUCCESS_NO_INFO) ? 1 : Math.max(0, x);
+        return n;
+    }
+
+    /** Flush the last chunk and commit. Returns rows inserted + updated. */
+    public int finish() throws SQLException {
+        flush();
+        c.commit();
+        finished = true;
+
+        long ms = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        DebugLog.d("[BulkImport] %d row(s) read, %d written, %d affected in %d ms (%.0f rows/s)",
+                rowsSeen, rowsWritten, affected, ms, rowsSeen * 1000.0 / ms);
+        return affected;
+    }
+
+    public long rowsSeen() {
+        return rowsSeen;
+    }
+
+    public long rowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!finished)
+                c.rollback();
+        } finally {
+            updKeep.close();
+            updReset.close();
+            ins.close();
+            c.setAutoCommit(true);
+        }
+    }
+}
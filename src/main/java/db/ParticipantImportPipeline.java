@@ -0,0 +1,259 @@
+package db;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import util.DebugLog;
+import util.ExcelStreamReader;
+import util.FieldNormalizer;
+
+/**
+ * Sheet import as three stages joined by bounded queues:
+ *
+ * parser (SAX reader thread) -> normalizer (trim / phone / DOB thread)
+ * -> writer (ParticipantBulkImporter, runs in the thread that calls run()).
+ *
+ * The normalizer takes everything queued at once and hands big batches to
+ * FieldNormalizer.mapAll, which spreads them over the fork-join pool.
+ *
+ * The queues cap how far the reader can run ahead of the database, so memory
+ * stays flat. Progress is reported every PROGRESS_INTERVAL_MS to an optional
+ * listener; cancel() stops all stages and the import transaction is rolled
+ * back, leaving ParticipantsRecord untouched.
+ */
+public final class ParticipantImportPipeline {
+
+    // large enough for FieldNormalizer to go parallel when the parser runs ahead
+    static final int QUEUE_CAPACITY = 4_096;
+    static final long PROGRESS_INTERVAL_MS = 200;
+
+    /** Snapshot handed to the listener. */
+    public static final class Progress {
+        public long parsed;
+        public long written;
+        public long totalEstimate; // -1 when the sheet does not say
+        public double rowsPerSec;
+        public long etaSeconds; // -1 when unknown
+        public boolean done;
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(Progress p);
+    }
+
+    // end-of-stream marker passed through both queues
+    private static final Map<String, String> END = Map.of();
+
+    private final File file;
+    private final String sheetName;
+    private final Listener listener;
+    private final FieldNormalizer columns = new FieldNormalizer();
+
+    private final BlockingQueue<Map<String, String>> parsedQ = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Map<String, String>> normalizedQ = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private volatile boolean cancelled = false;
+    private volatile Throwable failure = null;
+    private volatile boolean writerStopped = false;
+    private volatile long parsed = 0;
+
+    public ParticipantImportPipeline(File file, String sheetName, Listener listener) {
+        this.file = file;
+        this.sheetName = sheetName;
+        this.listener = listener;
+    }
+
+    /** Ask all stages to stop; run() then rolls back and throws CancellationException. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs the import to completion on the calling thread (the writer stage).
+     * Returns rows inserted + updated.
+     */
+    public int run() throws Exception {
+        long total = ExcelStreamReader.estimateRowCount(file, sheetName);
+        long t0 = System.nanoTime();
+
+        Thread parser = new Thread(this::parseStage, "excel-import-parser");
+        Thread normalizer = new Thread(this::normalizeStage, "excel-import-normalizer");
+        parser.setDaemon(true);
+        normalizer.setDaemon(true);
+
+        int affected;
+        try (Connection c = AccessDb.getConnection()) {
+            try (ParticipantBulkImporter importer = new ParticipantBulkImporter(c, sheetName)) {
+                parser.start();
+                normalizer.start();
+
+                long lastReport = 0;
+                while (true) {
+                    Map<String, String> row = take(normalizedQ);
+                    if (row == END)
+                        break;
+                    importer.addNormalized(row);
+
+                    long now = System.nanoTime();
+                    if (now - lastReport >= PROGRESS_INTERVAL_MS * 1_000_000) {
+                        lastReport = now;
+                        report(importer.rowsWritten(), total, t0, false);
+                    }
+                }
+
+                checkStages();
+                affected = importer.finish();
+                report(importer.rowsWritten(), Math.max(total, parsed), t0, true);
+            } finally {
+                // a writer that stopped early must not leave producers blocked
+                stopStages();
+            }
+
+            // status / type of carded rows may have changed
+            try {
+                ParticipantIndex.reload(c);
+            } catch (SQLException ex) {
+                DebugLog.ex(ex, "[ImportPipeline] participant index reload failed; rebuilding on next lookup");
+                ParticipantIndex.invalidate();
+            }
+        }
+        return affected;
+    }
+
+    /* ================= STAGES ================= */
+
+    private void parseStage() {
+        try {
+            ExcelStreamReader.stream(file, sheetName, row -> {
+                if (!put(parsedQ, row))
+                    return false;
+                parsed++;
+                return true;
+            });
+        } catch (Throwable t) {
+            fail(t);
+        } finally {
+            put(parsedQ, END);
+        }
+    }
+
+    // takes whatever the parser has queued and normalizes it as one batch
+    private void normalizeStage() {
+        List<Map<String, String>> batch = new ArrayList<>(QUEUE_CAPACITY);
+        try {
+            boolean end = false;
+            while (!end) {
+                Map<String, String> first = take(parsedQ);
+                if (first == END)
+                    break;
+                batch.clear();
+                batch.add(first);
+                parsedQ.drainTo(batch, QUEUE_CAPACITY - 1);
+
+                int last = batch.size() - 1;
+                if (batch.get(last) == END) {
+                    batch.remove(last);
+                    end = true;
+                }
+                for (Map<String, String> row : FieldNormalizer.mapAll(batch,
+                        r -> ParticipantBulkImporter.normalize(r, columns))) {
+                    if (!put(normalizedQ, row))
+                        return;
+                }
+            }
+        } catch (Throwable t) {
+            fail(t);
+        } finally {
+            put(normalizedQ, END);
+        }
+    }
+
+    /* ================= QUEUE HELPERS ================= */
+
+    // false once the pipeline is stopping (cancel or a failed stage)
+    private boolean put(BlockingQueue<Map<String, String>> q, Map<String, String> row) {
+        try {
+            while (!stopping()) {
+                if (q.offer(row, 100, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    // END once the pipeline is stopping, so every consumer unwinds
+    private Map<String, String> take(BlockingQueue<Map<String, String>> q) throws InterruptedException {
+        while (!stopping()) {
+            Map<String, String> row = q.poll(100, TimeUnit.MILLISECONDS);
+            if (row != null)
+                return row;
+        }
+        return END;
+    }
+
+    private boolean stopping() {
+        return cancelled || writerStopped || failure != null;
+    }
+
+    private void fail(Throwable t) {
+        if (failure == null)
+            failure = t;
+    }
+
+    private void stopStages() {
+        writerStopped = true;
+        parsedQ.clear();
+        normalizedQ.clear();
+    }
+
+    private void checkStages() throws Exception {
+        if (cancelled) {
+            DebugLog.d("[ImportPipeline] cancelled after %d parsed row(s); rolling back", parsed);
+            throw new CancellationException("Import cancelled");
+        }
+        Throwable t = failure;
+        if (t instanceof Exception e)
+            throw e;
+        if (t != null)
+            throw new IllegalStateException(t.getMessage(), t);
+    }
+
+    /* ================= PROGRESS ================= */
+
+    private void report(long written, long total, long t0, boolean done) {
+        if (listener == null)
+            return;
+        Progress p = new Progress();
+        p.parsed = parsed;
+        p.written = written;
+        p.totalEstimate = total;
+        p.done = done;
+
+        double secs = Math.max(0.001, (System.nanoTime() - t0) / 1e9);
+        p.rowsPerSec = written / secs;
+        p.etaSeconds = done ? 0
+                : (total > 0 && p.rowsPerSec > 0)
+                ? (long) Math.ceil(Math.max(0, total - written) / p.rowsPerSec)
+                : -1;
+        try {
+            listener.onProgress(p);
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[ImportPipeline] progress listener failed");
+        }
+    }
+}
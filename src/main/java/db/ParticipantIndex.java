@@ -0,0 +1,228 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dto.ParticipantRow;
+import util.DebugLog;
+
+/**
+ * In-memory index of carded participants keyed by normalized CardUID
+ * (non-alphanumerics stripped, upper-cased).
+ *
+ * Built once from ParticipantsRecord and kept current by the AccessDb write
+ * paths (insertAttendee, clearCardAssignment, bulkImportParticipantsRecord),
+ * so a tap never has to scan the table. Writes made to the .accdb by other
+ * programs are only picked up on the next reload().
+ */
+public final class ParticipantIndex {
+
+    private ParticipantIndex() {
+    }
+
+    private static final String LOAD_ALL_SQL = """
+                SELECT SlNo, FullName, BSGUID, ParticipationType, CardUID, status
+                FROM ParticipantsRecord
+                WHERE CardUID IS NOT NULL AND CardUID <> ''
+            """;
+
+    private static final String LOAD_BY_CARD_SQL = """
+                SELECT SlNo, FullName, BSGUID, ParticipationType, CardUID, status
+                FROM ParticipantsRecord
+                WHERE CardUID = ?
+            """;
+
+    private static final Object LOCK = new Object();
+
+    // normalized uid -> participant
+    private static volatile Map<String, ParticipantRow> byUid = new ConcurrentHashMap<>();
+    // SlNo -> normalized uid, so a re-issued card drops the old key
+    private static volatile Map<Long, String> uidBySlNo = new ConcurrentHashMap<>();
+    private static volatile boolean loaded = false;
+    private static long generation = 0; // bumped by every change; guarded by LOCK
+
+    // a full read that keeps losing to card writes gives up and leaves the index unloaded
+    private static final int RELOAD_ATTEMPTS = 3;
+
+    /* ================= KEYS ================= */
+
+    /** Same normalization clearCardAssignment / insertTrans have always used. */
+    public static String normalizeUid(String raw) {
+        if (raw == null)
+            return null;
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char ch = raw.charAt(i);
+            if (ch >= '0' && ch <= '9' || ch >= 'A' && ch <= 'Z')
+                sb.append(ch);
+            else if (ch >= 'a' && ch <= 'z')
+                sb.append((char) (ch - 32));
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    /* ================= LOOKUP ================= */
+
+    /** Participant for the card, or null. Loads the index on first use. */
+    public static ParticipantRow lookup(String cardUid) throws SQLException {
+        if (!loaded) {
+            try (Connection c = AccessDb.getConnection()) {
+                return lookup(c, cardUid);
+            }
+        }
+        String key = normalizeUid(cardUid);
+        return key == null ? null : copyOf(byUid.get(key));
+    }
+
+    /** Same as {@link #lookup(String)} but loads through the caller's connection. */
+    public static ParticipantRow lookup(Connection c, String cardUid) throws SQLException {
+        if (!loaded)
+            ensureLoaded(c);
+        String key = normalizeUid(cardUid);
+        return key == null ? null : copyOf(byUid.get(key));
+    }
+
+    public static int size() {
+        return byUid.size();
+    }
+
+    /* ================= LOAD ================= */
+
+    /** Build the index on a background thread so the first tap finds it warm. */
+    public static void warmUpAsync() {
+        Thread t = new Thread(() -> {
+            try (Connection c = AccessDb.getConnection()) {
+                ensureLoaded(c);
+            } catch (Exception ex) {
+                DebugLog.ex(ex, "[ParticipantIndex] warm-up failed; will load on first lookup");
+            }
+        }, "participant-index-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void ensureLoaded(Connection c) throws SQLException {
+        synchronized (LOCK) {
+            if (!loaded)
+                reload(c);
+        }
+    }
+
+    /**
+     * Rebuild the whole index from ParticipantsRecord. The table is read
+     * outside LOCK; if a card was written meanwhile the read may predate it,
+     * so it is read again rather than published.
+     */
+    public static void reload(Connection c) throws SQLException {
+        for (int attempt = 1; attempt <= RELOAD_ATTEMPTS; attempt++) {
+            long t0 = System.nanoTime();
+            long startGen;
+            synchronized (LOCK) {
+                startGen = generation;
+            }
+            Map<String, ParticipantRow> uids = new ConcurrentHashMap<>();
+            Map<Long, String> slNos = new ConcurrentHashMap<>();
+
+            try (PreparedStatement ps = c.prepareStatement(LOAD_ALL_SQL);
+                    ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    put(uids, slNos, rs);
+            }
+
+            synchronized (LOCK) {
+                if (generation == startGen) {
+                    byUid = uids;
+                    uidBySlNo = slNos;
+                    loaded = true;
+                    DebugLog.d("[ParticipantIndex] loaded %d card(s) in %d ms",
+                            uids.size(), (System.nanoTime() - t0) / 1_000_000);
+                    return;
+                }
+            }
+            DebugLog.d("[ParticipantIndex] card written during load; reading again");
+        }
+        invalidate(); // the next lookup tries again
+    }
+
+    /** Drop the index; the next lookup rebuilds it. */
+    public static void invalidate() {
+        synchronized (LOCK) {
+            generation++;
+            loaded = false;
+        }
+    }
+
+    /* ================= WRITE-THROUGH ================= */
+
+    /**
+     * Re-read the rows now holding this card (call after the assigning
+     * transaction has committed).
+     */
+    public static void refreshCard(Connection c, String storedCardUid) throws SQLException {
+        if (storedCardUid == null)
+            return;
+        synchronized (LOCK) {
+            generation++; // a reload reading now may have missed this card
+            if (!loaded)
+                return;
+            String key = normalizeUid(storedCardUid);
+            if (key != null)
+                byUid.remove(key);
+            try (PreparedStatement ps = c.prepareStatement(LOAD_BY_CARD_SQL)) {
+                ps.setString(1, storedCardUid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        put(byUid, uidBySlNo, rs);
+                }
+            }
+        }
+    }
+
+    /** Forget a card whose assignment was cleared. */
+    public static void removeCard(String cardUid) {
+        String key = normalizeUid(cardUid);
+        if (key == null)
+            return;
+        synchronized (LOCK) {
+            generation++;
+            byUid.remove(key);
+            uidBySlNo.values().removeIf(key::equals);
+        }
+    }
+
+    private static void put(Map<String, ParticipantRow> uids, Map<Long, String> slNos, ResultSet rs)
+            throws SQLException {
+        String key = normalizeUid(rs.getString("CardUID"));
+        if (key == null)
+            return;
+
+        long slNo = rs.getLong("SlNo");
+        String previous = slNos.put(slNo, key);
+        if (previous != null && !previous.equals(key))
+            uids.remove(previous);
+
+        ParticipantRow p = new ParticipantRow();
+        p.fullName = rs.getString("FullName");
+        p.bsguid = rs.getString("BSGUID");
+        p.participationType = rs.getString("ParticipationType");
+        p.cardUid = rs.getString("CardUID");
+        p.status = rs.getString("status");
+        uids.put(key, p);
+    }
+
+    private static ParticipantRow copyOf(ParticipantRow src) {
+        if (src == null)
+            return null;
+        ParticipantRow p = new ParticipantRow();
+        p.fullName = src.fullName;
+        p.bsguid = src.bsguid;
+        p.participationType = src.participationType;
+        p.cardUid = src.cardUid;
+        p.status = src.status;
+        return p;
+    }
+}
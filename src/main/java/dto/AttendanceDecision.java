@@ -0,0 +1,27 @@
+package dto;
+
+/**
+ * Verdict produced while the entry transaction is open.
+ * A null denialReason means the tap is accepted.
+ */
+public class AttendanceDecision {
+    public String denialReason;
+    public String message;
+    public ParticipantRow participant;
+    public EventLocationRule rule;
+
+    public boolean isAllowed() {
+        return denialReason == null;
+    }
+
+    public static AttendanceDecision allow() {
+        return new AttendanceDecision();
+    }
+
+    public static AttendanceDecision deny(String reason, String message) {
+        AttendanceDecision d = new AttendanceDecision();
+        d.denialReason = reason;
+        d.message = message;
+        return d;
+    }
+}
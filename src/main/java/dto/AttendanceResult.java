@@ -3,22 +3,33 @@ package dto;
 public class AttendanceResult {
     public final boolean success;
     public final String message;
+    public final ParticipantRow participant;
 
     public AttendanceResult() {
         this.success = false;
         this.message = "";
+        this.participant = null;
     }
 
-    private AttendanceResult(boolean success, String message) {
+    private AttendanceResult(boolean success, String message, ParticipantRow participant) {
         this.success = success;
         this.message = message;
+        this.participant = participant;
     }
 
     public static AttendanceResult success() {
-        return new AttendanceResult(true, "Attendance marked");
+        return success(null);
+    }
+
+    public static AttendanceResult success(ParticipantRow participant) {
+        return new AttendanceResult(true, "Attendance marked", participant);
     }
 
     public static AttendanceResult denied(String msg) {
-        return new AttendanceResult(false, msg);
+        return denied(msg, null);
+    }
+
+    public static AttendanceResult denied(String msg, ParticipantRow participant) {
+        return new AttendanceResult(false, msg, participant);
     }
 }
@@ -0,0 +1,46 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/** One Attendance_Denied row as the denied upload-batch endpoint expects it (column names as keys). */
+@JsonPropertyOrder({ "id", "carduid", "bsguid", "full_name", "event_id", "event_name", "location",
+        "attempted_date_time", "denial_reason", "participant_type", "entry_from", "entry_till", "created_at",
+        "uploadstatus" })
+public class DeniedUploadRow extends UploadRow {
+    @JsonProperty("bsguid")
+    public String bsguid;
+
+    @JsonProperty("full_name")
+    public String fullName;
+
+    @JsonProperty("event_id")
+    public Integer eventId;
+
+    @JsonProperty("event_name")
+    public String eventName;
+
+    @JsonProperty("location")
+    public String location;
+
+    @JsonProperty("attempted_date_time")
+    public String attemptedDateTime;
+
+    @JsonProperty("denial_reason")
+    public String denialReason;
+
+    @JsonProperty("participant_type")
+    public String participantType;
+
+    @JsonProperty("entry_from")
+    public String entryFrom;
+
+    @JsonProperty("entry_till")
+    public String entryTill;
+
+    @JsonProperty("created_at")
+    public String createdAt;
+
+    @JsonProperty("uploadstatus")
+    public Integer uploadStatus;
+}
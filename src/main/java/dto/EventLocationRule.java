@@ -1,8 +1,41 @@
 package dto;
 
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
 public class EventLocationRule {
     public String locationName;
     public String allowedParticipantTypes;
     public String entryFrom;
     public String entryTill;
+
+    /* ---------- precompiled by compile(); null when the column is unparseable ---------- */
+    public LocalTime from;
+    public LocalTime till;
+    public Set<String> allowedTypes = Set.of();
+
+    /** Parse the text columns once so gate checks do no string work. */
+    public EventLocationRule compile() {
+        from = parseTimeOrNull(entryFrom);
+        till = parseTimeOrNull(entryTill);
+
+        Set<String> types = new HashSet<>();
+        if (allowedParticipantTypes != null) {
+            for (String t : allowedParticipantTypes.split(",")) {
+                types.add(t.trim().toLowerCase(Locale.ROOT).intern());
+            }
+        }
+        allowedTypes = Set.copyOf(types);
+        return this;
+    }
+
+    private static LocalTime parseTimeOrNull(String s) {
+        try {
+            return s == null ? null : LocalTime.parse(s.trim());
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
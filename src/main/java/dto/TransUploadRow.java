@@ -0,0 +1,37 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/** One trans row as the attendance upload-batch endpoint expects it (column names as keys). */
+@JsonPropertyOrder({ "bsguid", "fullname", "date_time", "location", "event", "carduid", "id", "uploadstatus",
+        "exit_time", "exit_status" })
+public class TransUploadRow extends UploadRow {
+    @JsonProperty("bsguid")
+    public String bsguid;
+
+    @JsonProperty("fullname")
+    public String fullName;
+
+    @JsonProperty("date_time")
+    public String dateTime;
+
+    @JsonProperty("location")
+    public String location;
+
+    @JsonProperty("event")
+    public String event;
+
+    @JsonProperty("uploadstatus")
+    public Integer uploadStatus;
+
+    // only on databases where exits are recorded
+    @JsonProperty("exit_time")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String exitTime;
+
+    @JsonProperty("exit_status")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String exitStatus;
+}
@@ -0,0 +1,12 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** A row sent by the cloud sync; id is the paging cursor, cardUid ties it to the server's reply. */
+public abstract class UploadRow {
+    @JsonProperty("id")
+    public int id;
+
+    @JsonProperty("carduid")
+    public String cardUid;
+}
@@ -0,0 +1,220 @@
+package nfc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import util.DebugLog;
+
+/**
+ * One thread that waits for cards on the shared ReaderSession and tells
+ * subscribers when a card arrives (with its UID, plus data if a subscriber's
+ * ReadProfile asks for it) and when it leaves.
+ *
+ * Screens subscribe while they are visible and close the subscription when
+ * they go away; the thread itself lives for the whole app and parks when
+ * nobody is subscribed, so switching tabs never starts, interrupts or joins a
+ * thread. Blocking waits are cut into WAIT_SLICE_MS pieces, which is the
+ * longest a shutdown or suspend takes to be noticed.
+ *
+ * While suspended (an NFC write / erase owns the reader) the dispatcher does
+ * no card I/O at all; suspend() returns only once a read already under way
+ * has finished, so the writer never shares the card with it.
+ */
+public final class CardEventDispatcher {
+
+    private CardEventDispatcher() {
+    }
+
+    /** Callbacks run on the dispatcher thread; hop to the FX thread as needed. */
+    public interface Subscriber {
+        void cardIn(SmartMifareReader.ReadResult card);
+
+        /** What this subscriber needs from a tap; the widest one is read. */
+        default ReadProfile profile() {
+            return ReadProfile.UID_ONLY;
+        }
+
+        default void cardOut(String uid) {
+        }
+    }
+
+    /** Handle returned by subscribe(); close() unsubscribes. */
+    public static final class Subscription implements AutoCloseable {
+        private final Subscriber subscriber;
+        private volatile boolean closed = false;
+
+        private Subscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            subscriptions.remove(this);
+        }
+    }
+
+    static final long WAIT_SLICE_MS = 250;
+
+    private static final Object MONITOR = new Object();
+    private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private static Thread thread = null; // guarded by MONITOR
+    private static volatile boolean running = false;
+    private static int suspended = 0; // guarded by MONITOR
+    private static boolean reading = false; // card I/O in progress; guarded by MONITOR
+
+    /* ================= SUBSCRIBE ================= */
+
+    public static Subscription subscribe(Subscriber s) {
+        Subscription sub = new Subscription(s);
+        subscriptions.add(sub);
+        synchronized (MONITOR) {
+            running = true; // also revives a thread that is still winding down
+            if (thread == null) {
+                thread = new Thread(CardEventDispatcher::loop, "nfc-card-events");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            MONITOR.notifyAll();
+        }
+        return sub;
+    }
+
+    /* ================= SUSPEND ================= */
+
+    /**
+     * Stop touching the card until the matching resume(). Nests. Blocks until
+     * a read in progress is done (one card read, well under a second).
+     */
+    public static void suspend() {
+        synchronized (MONITOR) {
+            suspended++;
+            // a subscriber callback runs on the dispatcher thread, outside any read
+            boolean interrupted = false;
+            while (reading && Thread.currentThread() != thread) {
+                try {
+                    MONITOR.wait();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void resume() {
+        synchronized (MONITOR) {
+            if (suspended > 0)
+                suspended--;
+            MONITOR.notifyAll();
+        }
+    }
+
+    /** Ends the dispatcher thread (within one wait slice). */
+    public static void shutdown() {
+        synchronized (MONITOR) {
+            running = false;
+            MONITOR.notifyAll();
+        }
+    }
+
+    /* ================= LOOP ================= */
+
+    // Claims the card for one read, unless a writer took the reader (or the
+    // last subscriber left) while we were waiting for the card.
+    private static boolean beginRead() {
+        synchronized (MONITOR) {
+            if (suspended > 0 || subscriptions.isEmpty())
+                return false;
+            reading = true;
+            return true;
+        }
+    }
+
+    private static void endRead() {
+        synchronized (MONITOR) {
+            reading = false;
+            MONITOR.notifyAll();
+        }
+    }
+
+    // Parks while nobody is listening or the reader is lent out. Returns false
+    // once shut down; the thread slot is released under the same lock, so a
+    // concurrent subscribe() either keeps this thread or starts a new one.
+    private static boolean parkWhileIdle() throws InterruptedException {
+        synchronized (MONITOR) {
+            while (running && (suspended > 0 || subscriptions.isEmpty()))
+                MONITOR.wait();
+            if (!running)
+                thread = null;
+            return running;
+        }
+    }
+
+    private static void loop() {
+        DebugLog.d("[CardEvents] dispatcher started");
+        try {
+            while (parkWhileIdle()) {
+                if (!ReaderSession.awaitCardPresent(WAIT_SLICE_MS))
+                    continue;
+                if (!beginRead())
+                    continue;
+
+                SmartMifareReader.ReadResult card = null;
+                try {
+                    card = SmartMifareReader.readPresentCard(profile(), false);
+                } catch (Exception ex) {
+                    // card pulled mid-read; treat as no tap
+                } finally {
+                    endRead();
+                }
+                if (card != null)
+                    publishIn(card);
+
+                // one event per tap: hold here until the card leaves
+                while (running && ReaderSession.isReaderAttached()
+                        && !ReaderSession.awaitCardAbsent(WAIT_SLICE_MS)) {
+                    // keep waiting
+                }
+                if (card != null)
+                    publishOut(card.uid);
+            }
+        } catch (InterruptedException ie) {
+            synchronized (MONITOR) {
+                thread = null;
+            }
+        } finally {
+            DebugLog.d("[CardEvents] dispatcher stopped");
+        }
+    }
+
+    private static ReadProfile profile() {
+        ReadProfile p = ReadProfile.UID_ONLY;
+        for (Subscription s : subscriptions)
+            p = p.max(s.subscriber.profile());
+        return p;
+    }
+
+    private static void publishIn(SmartMifareReader.ReadResult card) {
+        for (Subscription s : subscriptions) {
+            try {
+                s.subscriber.cardIn(card);
+            } catch (Throwable t) {
+                DebugLog.ex(t, "[CardEvents] subscriber failed on card-in");
+            }
+        }
+    }
+
+    private static void publishOut(String uid) {
+        for (Subscription s : subscriptions) {
+            try {
+                s.subscriber.cardOut(uid);
+            } catch (Throwable t) {
+                DebugLog.ex(t, "[CardEvents] subscriber failed on card-out");
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package nfc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The participant record as stored on a card, shared by SmartMifareReader,
+ * SmartMifareWriter and the entry form.
+ *
+ * Binary layout (version 1):
+ *
+ * <pre>
+ * B5 01 | varint body length | body | CRC32 of everything before it (4 bytes, big-endian)
+ * </pre>
+ *
+ * The body holds the FIELDS in order. Plain text is a varint length plus
+ * UTF-8. Coded fields start with a varint tag: 0 = empty, 1 = plain text
+ * follows, anything else is a compact value (dictionary entry, days since
+ * 1900-01-01, or a number for phone / age). Dictionaries are append-only;
+ * reordering them changes what existing cards decode to.
+ *
+ * Cards written before this format hold the 12 fields comma-joined as UTF-8
+ * text; {@link #fields(SmartMifareReader.ReadResult)} still reads those.
+ */
+public final class CardPayloadCodec {
+
+    private CardPayloadCodec() {
+    }
+
+    /** Field keys, in card order (the EntryForm / AccessDb names). */
+    public static final List<String> FIELDS = List.of(
+            "FullName", "BSGUID", "ParticipationType", "bsgDistrict", "Email", "phoneNumber",
+            "bsgState", "memberTyp", "unitNam", "rank_or_section", "dataOfBirth", "age");
+
+    static final byte MAGIC = (byte) 0xB5; // never the first byte of UTF-8 text
+    static final byte VERSION = 0x01;
+
+    private static final List<String> SECTIONS = List.of(
+            "guide", "scout", "ranger", "rover", "cub", "bulbul");
+
+    private static final List<String> STATES = List.of(
+            "Andhra Pradesh", "Arunachal Pradesh", "Assam", "Bihar", "Chhattisgarh", "Goa", "Gujarat",
+            "Haryana", "Himachal Pradesh", "Jharkhand", "Karnataka", "Kerala", "Madhya Pradesh",
+            "Maharashtra", "Manipur", "Meghalaya", "Mizoram", "Nagaland", "Odisha", "Punjab", "Rajasthan",
+            "Sikkim", "Tamil Nadu", "Telangana", "Tripura", "Uttar Pradesh", "Uttarakhand", "West Bengal",
+            "Andaman and Nicobar Islands", "Chandigarh", "Dadra and Nagar Haveli and Daman and Diu",
+            "Delhi", "Jammu and Kashmir", "Ladakh", "Lakshadweep", "Puducherry");
+
+    private enum Kind {
+        TEXT, SECTION, STATE, DATE, NUMBER
+    }
+
+    private static final Kind[] KINDS = {
+            Kind.TEXT, Kind.TEXT, Kind.SECTION, Kind.TEXT, Kind.TEXT, Kind.NUMBER,
+            Kind.STATE, Kind.TEXT, Kind.TEXT, Kind.SECTION, Kind.DATE, Kind.NUMBER
+    };
+
+    private static final int TAG_EMPTY = 0;
+    private static final int TAG_TEXT = 1;
+    private static final int TAG_VALUE = 2; // first compact value
+    private static final int TAG_PLUS_NUMBER = 2; // NUMBER: "+" then digits
+    private static final int TAG_NUMBER = 3;
+
+    private static final long DAY_ZERO = LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final long MAX_DAYS = LocalDate.MAX.toEpochDay() - DAY_ZERO;
+
+    /* ================= ENCODE ================= */
+
+    /** The 12 card fields from a form / roster row; missing keys become "". */
+    public static String[] fieldsOf(Map<String, String> row) {
+        String[] out = new String[FIELDS.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = pick(row, FIELDS.get(i));
+        // AccessDb rows use the long spellings
+        if (out[7].isEmpty())
+            out[7] = pick(row, "memberType");
+        if (out[8].isEmpty())
+            out[8] = pick(row, "unitName");
+        if (out[10].isEmpty())
+            out[10] = pick(row, "dateOfBirth");
+        return out;
+    }
+
+    /** Binary payload for {@code fields} (FIELDS order; null entries are empty). */
+    public static byte[] encode(String[] fields) {
+        if (fields == null || fields.length != FIELDS.size())
+            throw new IllegalArgumentException("expected " + FIELDS.size() + " fields");
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        for (int i = 0; i < fields.length; i++) {
+            String v = fields[i] == null ? "" : fields[i].trim();
+            switch (KINDS[i]) {
+                case TEXT -> writeText(body, v);
+                case SECTION -> writeCoded(body, v, SECTIONS.indexOf(v));
+                case STATE -> writeCoded(body, v, STATES.indexOf(v));
+                case DATE -> writeCoded(body, v, daysSince1900(v));
+                case NUMBER -> writeNumber(body, v);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, body.size());
+        out.writeBytes(body.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        long c = crc.getValue();
+        out.write((int) (c >> 24));
+        out.write((int) (c >> 16));
+        out.write((int) (c >> 8));
+        out.write((int) c);
+        return out.toByteArray();
+    }
+
+    private static void writeCoded(ByteArrayOutputStream out, String v, long code) {
+        if (v.isEmpty()) {
+            writeVarint(out, TAG_EMPTY);
+        } else if (code < 0) {
+            writeVarint(out, TAG_TEXT);
+            writeText(out, v);
+        } else {
+            writeVarint(out, TAG_VALUE + code);
+        }
+    }
+
+    // digits only (optionally after '+'), no leading zero, fits a long
+    private static void writeNumber(ByteArrayOutputStream out, String v) {
+        boolean plus = v.startsWith("+");
+        String digits = plus ? v.substring(1) : v;
+        boolean numeric = !digits.isEmpty() && digits.length() <= 18
+                && (digits.charAt(0) != '0' || digits.length() == 1);
+        for (int i = 0; numeric && i < digits.length(); i++)
+            numeric = digits.charAt(i) >= '0' && digits.charAt(i) <= '9';
+        if (v.isEmpty()) {
+            writeVarint(out, TAG_EMPTY);
+        } else if (!numeric) {
+            writeVarint(out, TAG_TEXT);
+            writeText(out, v);
+        } else {
+            writeVarint(out, plus ? TAG_PLUS_NUMBER : TAG_NUMBER);
+            writeVarint(out, Long.parseLong(digits));
+        }
+    }
+
+    private static long daysSince1900(String iso) {
+        try {
+            LocalDate d = LocalDate.parse(iso);
+            // only what toString() gives back unchanged
+            long days = d.toEpochDay() - DAY_ZERO;
+            return days >= 0 && d.toString().equals(iso) ? days : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String v) {
+        byte[] b = v.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, b.length);
+        out.writeBytes(b);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    /* ================= DECODE ================= */
+
+    /** True when {@code head} starts like a binary payload. */
+    public static boolean isBinary(byte[] head) {
+        return head != null && head.length >= 2 && head[0] == MAGIC && head[1] == VERSION;
+    }
+
+    /**
+     * Total payload size (header + body + CRC) from its first bytes, or -1
+     * when {@code head} is not a binary payload or is too short to tell.
+     */
+    public static int payloadLength(byte[] head, int available) {
+        if (!isBinary(head) || available < 3)
+            return -1;
+        int[] pos = { 2 };
+        long len;
+        try {
+            len = readVarint(head, pos, Math.min(available, head.length));
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        if (len > 4096)
+            return -1;
+        return (int) (pos[0] + len + 4);
+    }
+
+    /** The FIELDS of a binary payload, or null if it is not one or fails its CRC. */
+    public static String[] decode(byte[] raw) {
+        int total = payloadLength(raw, raw == null ? 0 : raw.length);
+        if (total < 0 || raw.length < total)
+            return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, total - 4);
+        long expect = ((raw[total - 4] & 0xFFL) << 24) | ((raw[total - 3] & 0xFFL) << 16)
+                | ((raw[total - 2] & 0xFFL) << 8) | (raw[total - 1] & 0xFFL);
+        if (crc.getValue() != expect)
+            return null;
+
+        int[] pos = { 2 };
+        readVarint(raw, pos, total);
+        int end = total - 4;
+        String[] out = new String[FIELDS.size()];
+        try {
+            for (int i = 0; i < out.length; i++) {
+                out[i] = switch (KINDS[i]) {
+                    case TEXT -> readText(raw, pos, end);
+                    case SECTION -> readCoded(raw, pos, end, SECTIONS);
+                    case STATE -> readCoded(raw, pos, end, STATES);
+                    case DATE -> readDate(raw, pos, end);
+                    case NUMBER -> readNumber(raw, pos, end);
+                };
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            return null;
+        }
+        return out;
+    }
+
+    /**
+     * The FIELDS stored on a card: the binary payload when there is one,
+     * otherwise the legacy comma-separated text. Null when the card has
+     * neither.
+     */
+    public static String[] fields(SmartMifareReader.ReadResult rr) {
+        if (rr == null)
+            return null;
+        if (isBinary(rr.payload))
+            return decode(rr.payload);
+        String data = rr.data == null ? "" : rr.data.trim();
+        if (data.isEmpty())
+            return null;
+        return Arrays.stream(data.split(",", -1))
+                .map(String::trim)
+                .toArray(String[]::new);
+    }
+
+    /** One line for logs and diagnostics. */
+    public static String toDisplay(String[] fields) {
+        if (fields == null)
+            return "";
+        StringBuilder sb = new StringBuilder();
+        for (String f : fields) {
+            if (sb.length() > 0)
+                sb.append(" | ");
+            sb.append(f == null ? "" : f);
+        }
+        return sb.toString();
+    }
+
+    private static String readCoded(byte[] b, int[] pos, int end, List<String> dict) {
+        long tag = readVarint(b, pos, end);
+        if (tag == TAG_EMPTY)
+            return "";
+        if (tag == TAG_TEXT)
+            return readText(b, pos, end);
+        long idx = tag - TAG_VALUE;
+        if (idx >= dict.size())
+            throw new IllegalArgumentException("unknown dictionary code " + tag);
+        return dict.get((int) idx);
+    }
+
+    private static String readDate(byte[] b, int[] pos, int end) {
+        long tag = readVarint(b, pos, end);
+        if (tag == TAG_EMPTY)
+            return "";
+        if (tag == TAG_TEXT)
+            return readText(b, pos, end);
+        long days = tag - TAG_VALUE;
+        if (days > MAX_DAYS)
+            throw new IllegalArgumentException("date code out of range " + tag);
+        return LocalDate.ofEpochDay(DAY_ZERO + days).toString();
+    }
+
+    private static String readNumber(byte[] b, int[] pos, int end) {
+        long tag = readVarint(b, pos, end);
+        if (tag == TAG_EMPTY)
+            return "";
+        if (tag == TAG_TEXT)
+            return readText(b, pos, end);
+        long n = readVarint(b, pos, end);
+        return (tag == TAG_PLUS_NUMBER ? "+" : "") + n;
+    }
+
+    private static String readText(byte[] b, int[] pos, int end) {
+        long len = readVarint(b, pos, end);
+        if (len > end - pos[0])
+            throw new IllegalArgumentException("text runs past the payload");
+        String s = new String(b, pos[0], (int) len, StandardCharsets.UTF_8);
+        pos[0] += (int) len;
+        return s;
+    }
+
+    // non-negative; longer than 9 bytes or cut off is an error
+    private static long readVarint(byte[] b, int[] pos, int end) {
+        long v = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            if (pos[0] >= end)
+                throw new IllegalArgumentException("varint runs past the payload");
+            int x = b[pos[0]++] & 0xFF;
+            v |= (long) (x & 0x7F) << shift;
+            if ((x & 0x80) == 0)
+                return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private static String pick(Map<String, String> row, String key) {
+        String v = row == null ? null : row.get(key);
+        return v == null ? "" : v.trim();
+    }
+}
@@ -0,0 +1,156 @@
+package nfc;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * "Did we just see this card?" for every place that debounces taps.
+ *
+ * Each Mode has its own window and its own table of UIDs with the time they
+ * were last accepted. Tables are kept in last-seen order, so expired entries
+ * are always at the head and are dropped as soon as anything is looked up;
+ * a table never holds more than CAPACITY entries (the oldest go first), so
+ * memory stays fixed however many cards pass over a multi-day event.
+ *
+ * Suppressed and accepted taps are counted per mode.
+ */
+public final class DebounceStore {
+
+    private DebounceStore() {
+    }
+
+    public enum Mode {
+        /** SmartMifareReader.readUIDWithData polling: the same card read twice in a row. */
+        READ(500),
+        /** Entry form auto-fill: do not refill the form for the card just read. */
+        AUTO_FILL(10_000),
+        /** A gate (ReaderLane): the same card tapped again on the same reader. */
+        GATE(2_000);
+
+        final long defaultWindowMs;
+
+        Mode(long defaultWindowMs) {
+            this.defaultWindowMs = defaultWindowMs;
+        }
+    }
+
+    /** Counters for one mode. */
+    public static final class Stats {
+        public long accepted;
+        public long suppressed;
+        public int tracked; // UIDs currently inside the window
+        public long windowMs;
+    }
+
+    /** Entries kept per mode. */
+    static final int CAPACITY = 1024;
+
+    private static final class Table {
+        final LinkedHashMap<String, Long> seen = new LinkedHashMap<>(64);
+        long windowNanos;
+        long accepted;
+        long suppressed;
+    }
+
+    private static final Object LOCK = new Object();
+    private static final Map<Mode, Table> tables = new EnumMap<>(Mode.class);
+
+    static {
+        for (Mode m : Mode.values()) {
+            Table t = new Table();
+            t.windowNanos = m.defaultWindowMs * 1_000_000L;
+            tables.put(m, t);
+        }
+    }
+
+    /* ================= CONFIG ================= */
+
+    /** Change the window of {@code mode}; 0 turns its debouncing off. */
+    public static void setWindow(Mode mode, long windowMs) {
+        synchronized (LOCK) {
+            tables.get(mode).windowNanos = Math.max(0, windowMs) * 1_000_000L;
+        }
+    }
+
+    public static long window(Mode mode) {
+        synchronized (LOCK) {
+            return tables.get(mode).windowNanos / 1_000_000L;
+        }
+    }
+
+    /* ================= CHECK ================= */
+
+    /**
+     * True when {@code key} (a UID, or anything identifying a tap) was not
+     * accepted within the mode's window; the tap is then remembered. False
+     * means it is a duplicate and should be ignored.
+     */
+    public static boolean accept(Mode mode, String key) {
+        if (key == null || key.isEmpty())
+            return true;
+        long now = System.nanoTime();
+        synchronized (LOCK) {
+            Table t = tables.get(mode);
+            prune(t, now);
+            Long last = t.seen.get(key);
+            if (last != null && now - last < t.windowNanos) {
+                t.suppressed++;
+                return false;
+            }
+            t.accepted++;
+            if (t.windowNanos == 0)
+                return true; // nothing to remember
+            t.seen.remove(key); // re-insert at the tail: the table stays in time order
+            t.seen.put(key, now);
+            if (t.seen.size() > CAPACITY) {
+                Iterator<String> it = t.seen.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+            return true;
+        }
+    }
+
+    /** Forget {@code key} in {@code mode}, so its next tap is accepted. */
+    public static void forget(Mode mode, String key) {
+        synchronized (LOCK) {
+            tables.get(mode).seen.remove(key);
+        }
+    }
+
+    /** Forget everything and zero the counters (windows are kept). */
+    public static void clear() {
+        synchronized (LOCK) {
+            for (Table t : tables.values()) {
+                t.seen.clear();
+                t.accepted = 0;
+                t.suppressed = 0;
+            }
+        }
+    }
+
+    public static Stats stats(Mode mode) {
+        synchronized (LOCK) {
+            Table t = tables.get(mode);
+            prune(t, System.nanoTime());
+            Stats s = new Stats();
+            s.accepted = t.accepted;
+            s.suppressed = t.suppressed;
+            s.tracked = t.seen.size();
+            s.windowMs = t.windowNanos / 1_000_000L;
+            return s;
+        }
+    }
+
+    // caller holds LOCK; the head is the oldest entry
+    private static void prune(Table t, long now) {
+        Iterator<Long> it = t.seen.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next() < t.windowNanos)
+                break;
+            it.remove();
+        }
+    }
+}
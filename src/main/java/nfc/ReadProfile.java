@@ -0,0 +1,21 @@
+package nfc;
+
+/**
+ * How much of a card to read after its UID.
+ *
+ * UID_ONLY: one GET UID APDU; enough for gate taps and write/erase flows.
+ * KNOWN_BLOCKS: the payload SmartMifareWriter lays out from block 4 onwards,
+ * read up to its zero padding; used by the entry form auto-fill.
+ * FULL_PROBE: every sector the common keys open, as printable text; for
+ * diagnostics.
+ */
+public enum ReadProfile {
+    UID_ONLY,
+    KNOWN_BLOCKS,
+    FULL_PROBE;
+
+    /** The wider of two profiles. */
+    public ReadProfile max(ReadProfile other) {
+        return other != null && other.ordinal() > ordinal() ? other : this;
+    }
+}
@@ -0,0 +1,153 @@
+package nfc;
+
+import javax.smartcardio.CardTerminal;
+
+import util.DebugLog;
+
+/**
+ * Card events from one named reader, for setups with several readers
+ * (gates) attached to the same PC.
+ *
+ * Works like CardEventDispatcher but for a single reader and a single
+ * subscriber, on its own thread: wait for a card, read it per the
+ * subscriber's ReadProfile, report it, hold until it leaves. The reader is
+ * looked up by name, so a lane survives its reader being unplugged and
+ * plugged back in. Lanes never touch the primary reader's
+ * CardEventDispatcher; whoever binds a lane to that reader suspends the
+ * dispatcher (see service.GateLanes).
+ */
+public final class ReaderLane {
+
+    static final long WAIT_SLICE_MS = 250;
+
+    private final String readerName;
+    private final CardEventDispatcher.Subscriber subscriber;
+    private final Object lock = new Object();
+    private Thread thread = null; // guarded by lock
+    private volatile boolean running = false;
+
+    public ReaderLane(String readerName, CardEventDispatcher.Subscriber subscriber) {
+        if (readerName == null || readerName.isBlank())
+            throw new IllegalArgumentException("reader name required");
+        this.readerName = readerName;
+        this.subscriber = subscriber;
+    }
+
+    public String readerName() {
+        return readerName;
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return thread != null;
+        }
+    }
+
+    /* ================= CONTROL ================= */
+
+    /** Start the lane thread. Safe to call more than once. */
+    public void start() {
+        synchronized (lock) {
+            running = true;
+            if (thread != null)
+                return; // also revives a thread that is still winding down
+            thread = new Thread(this::loop, "nfc-lane-" + readerName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Ends the lane thread (within one wait slice); does not wait for it. */
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for a stopped lane's thread to finish the
+     * read or tap it is on. Returns true once the lane no longer touches its
+     * reader.
+     */
+    public boolean awaitStopped(long timeoutMs) {
+        Thread t;
+        synchronized (lock) {
+            t = thread;
+        }
+        if (t == null)
+            return true;
+        if (t == Thread.currentThread())
+            return false; // stopped from our own subscriber; exits after this tap
+        try {
+            t.join(Math.max(1, timeoutMs));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return !t.isAlive();
+    }
+
+    /* ================= LOOP ================= */
+
+    // The thread slot is released under the same lock start() takes, so a
+    // start() racing with the exit either keeps this thread or starts a new one.
+    private boolean keepRunning() {
+        synchronized (lock) {
+            if (!running)
+                thread = null;
+            return running;
+        }
+    }
+
+    private void loop() {
+        DebugLog.d("[ReaderLane] %s started", readerName);
+        CardTerminal t = null;
+        long lastLookup = 0;
+        try {
+            while (keepRunning()) {
+                // re-resolve now and then: the reader may have been replugged
+                long now = System.currentTimeMillis();
+                if (t == null || now - lastLookup >= ReaderSession.WATCH_INTERVAL_MS) {
+                    t = ReaderSession.terminal(readerName);
+                    lastLookup = now;
+                }
+                if (!ReaderSession.awaitCardPresent(t, WAIT_SLICE_MS) || !running)
+                    continue;
+
+                SmartMifareReader.ReadResult card = null;
+                try {
+                    card = SmartMifareReader.readPresentCard(t, subscriber.profile(), false);
+                } catch (Exception ex) {
+                    // card pulled mid-read; treat as no tap
+                }
+                if (card != null) {
+                    try {
+                        subscriber.cardIn(card);
+                    } catch (Throwable ex) {
+                        DebugLog.ex(ex, "[ReaderLane] %s subscriber failed on card-in", readerName);
+                    }
+                }
+
+                // one event per tap: hold here until the card leaves
+                long since = System.currentTimeMillis();
+                while (running && !ReaderSession.awaitCardAbsent(t, WAIT_SLICE_MS)) {
+                    if (System.currentTimeMillis() - since >= ReaderSession.WATCH_INTERVAL_MS) {
+                        if (ReaderSession.terminal(readerName) == null) {
+                            t = null; // reader gone
+                            break;
+                        }
+                        since = System.currentTimeMillis();
+                    }
+                }
+                if (card != null) {
+                    try {
+                        subscriber.cardOut(card.uid);
+                    } catch (Throwable ex) {
+                        DebugLog.ex(ex, "[ReaderLane] %s subscriber failed on card-out", readerName);
+                    }
+                }
+            }
+        } finally {
+            DebugLog.d("[ReaderLane] %s stopped", readerName);
+        }
+    }
+}
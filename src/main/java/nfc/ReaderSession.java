@@ -0,0 +1,354 @@
+package nfc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.TerminalFactory;
+
+import util.DebugLog;
+
+/**
+ * Long-lived handle on the NFC reader, shared by SmartMifareReader,
+ * SmartMifareWriter and SmartMifareEraser.
+ *
+ * The PC/SC terminal list is enumerated once and the CardTerminal kept, so a
+ * probe is just a waitForCardPresent on it. A watcher thread notices readers
+ * being plugged in or pulled out; a reader error that means "the reader is
+ * gone" also drops the cached terminal so the next call looks again.
+ * Without a reader, lookups are retried at most every LOOKUP_RETRY_MS.
+ *
+ * The terminal source can be swapped with useProvider(), e.g. for a fake
+ * CardTerminal when no hardware is attached.
+ *
+ * The no-argument methods work on the primary reader (the first one listed).
+ * With several readers attached, terminals() lists them all and the
+ * CardTerminal overloads work on a given one (see ReaderLane).
+ */
+public final class ReaderSession {
+
+    private ReaderSession() {
+    }
+
+    /** Source of card terminals; the default is the system PC/SC factory. */
+    @FunctionalInterface
+    public interface TerminalProvider {
+        List<CardTerminal> list() throws CardException;
+    }
+
+    /** Reader and card state changes. Callbacks run on the observing thread. */
+    public interface Listener {
+        default void readerAttached(String readerName) {
+        }
+
+        default void readerDetached(String readerName) {
+        }
+
+        default void cardPresent(String readerName) {
+        }
+
+        default void cardAbsent(String readerName) {
+        }
+    }
+
+    static final long WATCH_INTERVAL_MS = 2_000;
+    static final long LOOKUP_RETRY_MS = 1_000;
+
+    private static final TerminalProvider PCSC = () -> TerminalFactory.getDefault().terminals().list();
+
+    private static final Object LOCK = new Object();
+    private static volatile TerminalProvider provider = PCSC;
+    private static volatile CardTerminal terminal = null;
+    private static volatile boolean cardPresent = false;
+    private static long lastLookup = 0; // guarded by LOCK
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // which reader each connected card came from (for per-reader key slots)
+    private static final Map<Card, String> cardReaders = Collections.synchronizedMap(new WeakHashMap<>());
+    private static Thread watcher = null;
+    private static volatile boolean watching = false;
+
+    /* ================= SETUP ================= */
+
+    /** Replace the terminal source (null restores PC/SC) and forget the current reader. */
+    public static void useProvider(TerminalProvider p) {
+        provider = (p == null) ? PCSC : p;
+        invalidate();
+    }
+
+    public static void addListener(Listener l) {
+        if (l != null)
+            listeners.add(l);
+    }
+
+    public static void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    /** Start the hot-plug watcher. Safe to call more than once. */
+    public static void startWatcher() {
+        synchronized (LOCK) {
+            if (watcher != null && watcher.isAlive())
+                return;
+            watching = true;
+            watcher = new Thread(ReaderSession::watchLoop, "nfc-reader-watch");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    public static void shutdown() {
+        watching = false;
+        invalidate();
+    }
+
+    /* ================= TERMINAL ================= */
+
+    /** The current reader, or null when none is attached. */
+    public static CardTerminal terminal() {
+        CardTerminal t = terminal;
+        if (t != null)
+            return t;
+        synchronized (LOCK) {
+            if (terminal == null && System.currentTimeMillis() - lastLookup >= LOOKUP_RETRY_MS)
+                lookup();
+            return terminal;
+        }
+    }
+
+    /** All attached readers, in provider order; empty when there are none. */
+    public static List<CardTerminal> terminals() {
+        try {
+            List<CardTerminal> list = provider.list();
+            return list == null ? List.of() : new ArrayList<>(list);
+        } catch (CardException ex) {
+            return List.of();
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[ReaderSession] terminal lookup failed");
+            return List.of();
+        }
+    }
+
+    /** The attached reader called {@code name}, or null. */
+    public static CardTerminal terminal(String name) {
+        CardTerminal primary = terminal;
+        if (primary != null && primary.getName().equals(name))
+            return primary;
+        for (CardTerminal t : terminals()) {
+            if (t.getName().equals(name))
+                return t;
+        }
+        return null;
+    }
+
+    public static boolean isReaderAttached() {
+        return terminal() != null;
+    }
+
+    /** Last card state seen through this session. */
+    public static boolean isCardPresent() {
+        return cardPresent;
+    }
+
+    /** Drop the cached reader; the next call enumerates again. */
+    public static void invalidate() {
+        String gone;
+        synchronized (LOCK) {
+            gone = terminal == null ? null : terminal.getName();
+            terminal = null;
+            cardPresent = false;
+            lastLookup = 0;
+        }
+        if (gone != null) {
+            DebugLog.d("[ReaderSession] reader detached: %s", gone);
+            for (Listener l : listeners)
+                l.readerDetached(gone);
+        }
+    }
+
+    // caller holds LOCK
+    private static void lookup() {
+        lastLookup = System.currentTimeMillis();
+        List<CardTerminal> list;
+        try {
+            list = provider.list();
+        } catch (CardException ex) {
+            // SCARD_E_NO_READERS_AVAILABLE lands here too
+            return;
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[ReaderSession] terminal lookup failed");
+            return;
+        }
+        if (list == null || list.isEmpty())
+            return;
+
+        terminal = list.get(0);
+        String name = terminal.getName();
+        DebugLog.d("[ReaderSession] reader attached: %s", name);
+        for (Listener l : listeners)
+            l.readerAttached(name);
+    }
+
+    private static void watchLoop() {
+        while (watching) {
+            try {
+                CardTerminal t = terminal;
+                if (t == null) {
+                    terminal();
+                } else if (!stillListed(t)) {
+                    invalidate();
+                    terminal();
+                }
+            } catch (Exception ex) {
+                DebugLog.ex(ex, "[ReaderSession] watcher error");
+            }
+            try {
+                Thread.sleep(WATCH_INTERVAL_MS);
+            } catch (InterruptedException ie) {
+                return;
+            }
+        }
+    }
+
+    private static boolean stillListed(CardTerminal t) {
+        try {
+            List<CardTerminal> list = provider.list();
+            if (list == null)
+                return false;
+            for (CardTerminal x : list) {
+                if (x.getName().equals(t.getName()))
+                    return true;
+            }
+            return false;
+        } catch (CardException ex) {
+            return false;
+        }
+    }
+
+    /* ================= CARD ================= */
+
+    /**
+     * Wait for a card on the current reader. timeoutMs <= 0 waits forever.
+     * Returns false on timeout or when there is no reader (after sleeping
+     * out the timeout, so polling callers do not spin).
+     */
+    public static boolean awaitCardPresent(long timeoutMs) {
+        return awaitCardPresent(terminal(), timeoutMs);
+    }
+
+    /** Same as awaitCardPresent(long), on reader {@code t}. */
+    public static boolean awaitCardPresent(CardTerminal t, long timeoutMs) {
+        if (t == null) {
+            pause(timeoutMs);
+            return false;
+        }
+        try {
+            boolean present;
+            if (timeoutMs <= 0) {
+                t.waitForCardPresent(0);
+                present = true;
+            } else {
+                present = t.waitForCardPresent(timeoutMs);
+            }
+            if (present)
+                cardState(t, true);
+            return present;
+        } catch (CardException ex) {
+            failed(t, ex);
+            pause(timeoutMs); // a reader in error answers at once
+            return false;
+        }
+    }
+
+    /** Wait for the card to be removed. timeoutMs <= 0 waits forever. */
+    public static boolean awaitCardAbsent(long timeoutMs) {
+        return awaitCardAbsent(terminal(), timeoutMs);
+    }
+
+    /** Same as awaitCardAbsent(long), on reader {@code t}. */
+    public static boolean awaitCardAbsent(CardTerminal t, long timeoutMs) {
+        if (t == null)
+            return false;
+        try {
+            boolean absent;
+            if (timeoutMs <= 0) {
+                t.waitForCardAbsent(0);
+                absent = true;
+            } else {
+                absent = t.waitForCardAbsent(timeoutMs);
+            }
+            if (absent)
+                cardState(t, false);
+            return absent;
+        } catch (CardException ex) {
+            failed(t, ex);
+            pause(timeoutMs);
+            return false;
+        }
+    }
+
+    /** Connect to the card on the current reader. */
+    public static Card connect() throws CardException {
+        return connect(terminal());
+    }
+
+    /** Connect to the card on reader {@code t}. */
+    public static Card connect(CardTerminal t) throws CardException {
+        if (t == null)
+            throw new CardException("No NFC reader detected");
+        try {
+            Card card = t.connect("*");
+            cardReaders.put(card, t.getName());
+            return card;
+        } catch (CardException ex) {
+            failed(t, ex);
+            throw ex;
+        }
+    }
+
+    /** Name of the reader {@code card} was connected on, or null if not through connect(). */
+    public static String readerOf(Card card) {
+        return card == null ? null : cardReaders.get(card);
+    }
+
+    // listeners and isCardPresent() follow the primary reader only
+    private static void cardState(CardTerminal t, boolean present) {
+        if (t != terminal || cardPresent == present)
+            return;
+        cardPresent = present;
+        for (Listener l : listeners) {
+            if (present)
+                l.cardPresent(t.getName());
+            else
+                l.cardAbsent(t.getName());
+        }
+    }
+
+    // Errors that mean the reader (or the PC/SC service) went away, as opposed
+    // to a card being pulled mid-transaction.
+    private static void failed(CardTerminal t, CardException ex) {
+        String msg = String.valueOf(ex.getMessage()) + " " + (ex.getCause() == null ? "" : ex.getCause().getMessage());
+        if (msg.contains("READER_UNAVAILABLE") || msg.contains("UNKNOWN_READER")
+                || msg.contains("NO_SERVICE") || msg.contains("SERVICE_STOPPED")
+                || msg.contains("NO_READERS_AVAILABLE")) {
+            if (t == terminal)
+                invalidate();
+        }
+    }
+
+    private static void pause(long ms) {
+        if (ms <= 0)
+            return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
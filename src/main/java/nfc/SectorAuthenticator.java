@@ -0,0 +1,228 @@
+package nfc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Sector authentication for MIFARE Classic 1K, shared by SmartMifareReader,
+ * SmartMifareWriter and SmartMifareEraser.
+ *
+ * MIFARE authenticates a whole sector at a time, so one instance (one per
+ * connected card) authenticates a sector once and then serves every block in
+ * it. Which common key and key type opened each sector is remembered per UID
+ * and for the last card seen; the next time the same card (or another card
+ * from the same stock) comes along, that combination is tried first. The key
+ * in each reader's slot is tracked too (by reader name, see
+ * ReaderSession.readerOf), so LOAD KEY is only sent when a different key is
+ * needed.
+ */
+public final class SectorAuthenticator {
+
+    static final byte[][] COMMON_KEYS = new byte[][] {
+            hex("FFFFFFFFFFFF"),
+            hex("000000000000"),
+    };
+    static final int KEY_SLOT = 0x00;
+    static final byte KEY_A = 0x60;
+    static final byte KEY_B = 0x61;
+    static final int SECTORS = 16;
+
+    /** UIDs whose sector map is kept. */
+    static final int UID_CACHE_SIZE = 512;
+
+    // sector map entries: key index * 2 + (0 = A, 1 = B), or one of these
+    private static final int UNKNOWN = -1;
+    private static final int LOCKED = -2; // no common key opens it
+
+    private static final Object CACHE_LOCK = new Object();
+    private static final Map<String, int[]> byUid = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > UID_CACHE_SIZE;
+        }
+    };
+    private static final int[] lastCard = unknownMap(); // guarded by CACHE_LOCK
+
+    // what this process last put into each reader's KEY_SLOT; a reader keeps it across cards
+    private static final Map<String, Integer> slotKeys = new ConcurrentHashMap<>();
+
+    private final CardChannel channel;
+    private final String reader; // slotKeys key; "" when the reader is not known
+    private final String uid;
+    private final int[] plan; // what opened each sector, for this card
+    private final boolean planFromUid;
+    private int loadedKey;
+    private boolean slotUnverified; // until the first auth succeeds on this card
+    private int authedSector = UNKNOWN;
+
+    /** uid may be null; then only the last card's map is used as a hint. */
+    public SectorAuthenticator(CardChannel channel, String uid) {
+        this.channel = channel;
+        // callers format UIDs differently ("04:A1:..", "04A1..")
+        String key = uid == null ? "" : uid.replaceAll("[^0-9A-Fa-f]", "").toUpperCase();
+        this.uid = key.isEmpty() ? null : key;
+        String name = ReaderSession.readerOf(channel.getCard());
+        this.reader = name == null ? "" : name;
+        this.loadedKey = slotKeys.getOrDefault(reader, UNKNOWN);
+        this.slotUnverified = loadedKey != UNKNOWN;
+
+        int[] known = null;
+        synchronized (CACHE_LOCK) {
+            if (this.uid != null)
+                known = byUid.get(this.uid);
+            this.planFromUid = known != null;
+            this.plan = (known != null ? known : lastCard).clone();
+        }
+    }
+
+    /* ================= AUTH ================= */
+
+    /** Authenticates the sector holding {@code block}. */
+    public boolean authenticate(int block) {
+        return authenticateSector(block / 4);
+    }
+
+    /**
+     * Authenticates {@code sector} unless it is the one already open. Returns
+     * false when none of the common keys opens it.
+     */
+    public boolean authenticateSector(int sector) {
+        if (sector == authedSector)
+            return true;
+        authedSector = UNKNOWN;
+
+        int planned = plan[sector];
+        // this card was seen before and nothing opened the sector then
+        if (planned == LOCKED && planFromUid)
+            return false;
+
+        if (tryAll(sector, planned))
+            return true;
+        if (!slotUnverified) {
+            plan[sector] = LOCKED;
+            return false;
+        }
+        // the reader may have lost its slot (replugged); load explicitly and retry
+        slotUnverified = false;
+        loadedKey = UNKNOWN;
+        if (tryAll(sector, UNKNOWN))
+            return true;
+        plan[sector] = LOCKED;
+        return false;
+    }
+
+    /** Call after a failed block operation: the card drops its auth state. */
+    public void reset() {
+        authedSector = UNKNOWN;
+    }
+
+    /** Remembers what opened each sector, for this UID and as the batch hint. */
+    public void finish() {
+        synchronized (CACHE_LOCK) {
+            if (uid != null)
+                byUid.put(uid, plan.clone());
+            for (int s = 0; s < SECTORS; s++) {
+                if (plan[s] != UNKNOWN)
+                    lastCard[s] = plan[s];
+            }
+        }
+    }
+
+    /** Forget all remembered sector maps and the readers' slot contents. */
+    public static void clearCache() {
+        synchronized (CACHE_LOCK) {
+            byUid.clear();
+            System.arraycopy(unknownMap(), 0, lastCard, 0, SECTORS);
+        }
+        slotKeys.clear();
+    }
+
+    // planned combination first, then the rest with the loaded key before others
+    private boolean tryAll(int sector, int planned) {
+        if (planned >= 0 && tryCombo(sector, planned))
+            return true;
+        int combos = COMMON_KEYS.length * 2;
+        int inSlot = loadedKey;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int c = 0; c < combos; c++) {
+                if (c == planned)
+                    continue;
+                boolean loaded = (c / 2) == inSlot;
+                if ((pass == 0) != loaded)
+                    continue;
+                if (tryCombo(sector, c))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryCombo(int sector, int combo) {
+        int key = combo / 2;
+        if (key != loadedKey) {
+            if (!loadKey(channel, KEY_SLOT, COMMON_KEYS[key]))
+                return false;
+            loadedKey = key;
+            slotKeys.put(reader, key);
+        }
+        byte type = (combo % 2 == 0) ? KEY_A : KEY_B;
+        if (!authWithKeySlot(channel, sector * 4, type, (byte) KEY_SLOT))
+            return false;
+        plan[sector] = combo;
+        authedSector = sector;
+        slotUnverified = false;
+        return true;
+    }
+
+    /* ================= APDUs ================= */
+
+    // Load key into reader key slot (FF 82)
+    private static boolean loadKey(CardChannel channel, int keySlot, byte[] key) {
+        try {
+            byte[] apdu = new byte[11];
+            apdu[0] = (byte) 0xFF;
+            apdu[1] = (byte) 0x82;
+            apdu[2] = 0x00;
+            apdu[3] = (byte) keySlot;
+            apdu[4] = 0x06;
+            System.arraycopy(key, 0, apdu, 5, 6);
+            ResponseAPDU resp = channel.transmit(new CommandAPDU(apdu));
+            return resp.getSW() == 0x9000;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Authenticate using key in a slot (FF 86 referencing key slot)
+    private static boolean authWithKeySlot(CardChannel channel, int blockNumber, byte keyType, byte keySlot) {
+        try {
+            byte[] apdu = new byte[] {
+                    (byte) 0xFF, (byte) 0x86, 0x00, 0x00, 0x05,
+                    0x01, 0x00, (byte) blockNumber, keyType, keySlot
+            };
+            ResponseAPDU resp = channel.transmit(new CommandAPDU(apdu));
+            return resp.getSW() == 0x9000;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static int[] unknownMap() {
+        int[] m = new int[SECTORS];
+        java.util.Arrays.fill(m, UNKNOWN);
+        return m;
+    }
+
+    private static byte[] hex(String s) {
+        s = s.replaceAll("[^0-9A-Fa-f]", "");
+        byte[] out = new byte[s.length() / 2];
+        for (int i = 0; i < out.length; i++)
+            out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+        return out;
+    }
+}
@@ -5,17 +5,10 @@ import java.util.*;
 
 public class SmartMifareEraser {
 
-    private static final byte[][] COMMON_KEYS = new byte[][] {
-            hex("FFFFFFFFFFFF"),
-            hex("000000000000"),
-    };
-
-    private static final int KEY_SLOT = 0x00;
-
     /**
      * Wait for a card to be presented (blocks indefinitely) and attempt to
      * overwrite all writable data blocks (4..63) with zeros for sectors that
-     * can be authenticated using COMMON_KEYS.
+     * can be authenticated using the common keys (see SectorAuthenticator).
      * This method is blocking and should NOT be called on the JavaFX UI thread.
      *
      * When the erase finishes the method returns immediately (no waiting for card
@@ -23,20 +16,18 @@ public class SmartMifareEraser {
      * @throws Exception on fatal errors (no reader, card connect failure, etc.)
      */
     public static void eraseMemory() throws Exception {
-        TerminalFactory factory = TerminalFactory.getDefault();
-        List<CardTerminal> terminals = factory.terminals().list();
-        if (terminals == null || terminals.isEmpty()) {
+        if (!ReaderSession.isReaderAttached()) {
             throw new Exception("No NFC reader detected");
         }
 
-        CardTerminal terminal = terminals.get(0);
-
         // wait indefinitely for card to be presented
-        terminal.waitForCardPresent(0);
-        Card card = terminal.connect("*");
+        if (!ReaderSession.awaitCardPresent(0)) {
+            throw new Exception("NFC reader disconnected");
+        }
+        Card card = ReaderSession.connect();
         try {
             CardChannel channel = card.getBasicChannel();
-            eraseOnChannel(channel);
+            eraseOnChannel(channel, readUid(channel));
         } finally {
             try {
                 card.disconnect(false);
@@ -54,69 +45,49 @@ public class SmartMifareEraser {
      * @throws Exception on unexpected errors
      */
     public static void eraseOnChannel(CardChannel channel) throws Exception {
+        eraseOnChannel(channel, null);
+    }
+
+    /** Same as {@link #eraseOnChannel(CardChannel)}; the UID lets earlier auth results be reused. */
+    public static void eraseOnChannel(CardChannel channel, String uid) throws Exception {
         if (channel == null)
             throw new IllegalArgumentException("channel is null");
         byte[] zero16 = new byte[16];
 
+        // one auth per sector; keys that worked on this / the last card are tried first
+        SectorAuthenticator auth = new SectorAuthenticator(channel, uid);
+
         // iterate user blocks 4..63
         for (int block = 4; block < 64; block++) {
             if (isTrailerBlock(block))
                 continue;
 
-            boolean authed = false;
-
-            for (byte[] candidate : COMMON_KEYS) {
-                boolean loaded = loadKey(channel, KEY_SLOT, candidate);
-                if (!loaded)
-                    continue;
-                if (authWithKeySlot(channel, block, (byte) 0x60, (byte) KEY_SLOT)) {
-                    authed = true;
-                    break;
-                }
-                if (authWithKeySlot(channel, block, (byte) 0x61, (byte) KEY_SLOT)) {
-                    authed = true;
-                    break;
-                }
-            }
-
-            if (!authed)
+            if (!auth.authenticate(block)) {
+                block = (block / 4) * 4 + 3; // rest of this sector is out of reach too
                 continue;
+            }
 
             try {
                 writeBlock(channel, block, zero16);
             } catch (Exception ignored) {
+                auth.reset();
             }
         }
+        auth.finish();
     }
 
-    // Load key into reader key slot (FF 82)
-    private static boolean loadKey(CardChannel channel, int keySlot, byte[] key) {
+    // UID (FF CA) as upper-case hex, or null
+    private static String readUid(CardChannel channel) {
         try {
-            byte[] apdu = new byte[11];
-            apdu[0] = (byte) 0xFF;
-            apdu[1] = (byte) 0x82;
-            apdu[2] = 0x00;
-            apdu[3] = (byte) keySlot;
-            apdu[4] = 0x06;
-            System.arraycopy(key, 0, apdu, 5, 6);
-            ResponseAPDU resp = channel.transmit(new CommandAPDU(apdu));
-            return resp.getSW() == 0x9000;
+            ResponseAPDU resp = channel.transmit(new CommandAPDU(new byte[] { (byte) 0xFF, (byte) 0xCA, 0x00, 0x00, 0x00 }));
+            if (resp.getSW() != 0x9000)
+                return null;
+            StringBuilder sb = new StringBuilder();
+            for (byte b : resp.getData())
+                sb.append(String.format("%02X", b));
+            return sb.toString();
         } catch (Exception e) {
-            return false;
-        }
-    }
-
-    // Authenticate using key in a slot (FF 86 referencing key slot)
-    private static boolean authWithKeySlot(CardChannel channel, int blockNumber, byte keyType, byte keySlot) {
-        try {
-            byte[] apdu = new byte[] {
-                    (byte) 0xFF, (byte) 0x86, 0x00, 0x00, 0x05,
-                    0x01, 0x00, (byte) blockNumber, keyType, keySlot
-            };
-            ResponseAPDU authResp = channel.transmit(new CommandAPDU(apdu));
-            return authResp.getSW() == 0x9000;
-        } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
@@ -147,13 +118,4 @@ public class SmartMifareEraser {
     private static boolean isTrailerBlock(int block) {
         return (block % 4) == 3;
     }
-
-    private static byte[] hex(String s) {
-        s = s.replaceAll("[^0-9A-Fa-f]", "");
-        int len = s.length() / 2;
-        byte[] out = new byte[len];
-        for (int i = 0; i < len; i++)
-            out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
-        return out;
-    }
 }
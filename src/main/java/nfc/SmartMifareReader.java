@@ -3,36 +3,14 @@ package nfc;
 import javax.smartcardio.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class SmartMifareReader {
 
     public static boolean waitForCardAbsent(long timeoutMs) {
-        try {
-            TerminalFactory factory = TerminalFactory.getDefault();
-            List<CardTerminal> terminals = factory.terminals().list();
-            if (terminals == null || terminals.isEmpty()) {
-                // System.err.println("SmartMifareReader: no NFC reader detected (waitForCardAbsent).");
-                return false;
-            }
-            CardTerminal terminal = terminals.get(0);
-
-            if (timeoutMs <= 0) {
-                terminal.waitForCardAbsent(0); // block indefinitely
-                return true;
-            } else {
-                return terminal.waitForCardAbsent(timeoutMs);
-            }
-        } catch (Exception e) {
-            // System.err.println("SmartMifareReader waitForCardAbsent error: " + e.getMessage());
-            return false;
-        }
+        // false when there is no reader, as before
+        return ReaderSession.awaitCardAbsent(timeoutMs);
     }
 
-    // Simple debounce map to avoid immediate duplicates when calling repeatedly
-    private static final ConcurrentHashMap<String, Long> lastSeen = new ConcurrentHashMap<>();
-    private static final long DEBOUNCE_MS = 500; // ignore duplicates within 500ms
-
     /**
      * Read UID with default 20s timeout. Returns UID (hex, upper-case, no spaces)
      * or null on timeout/error.
@@ -45,7 +23,7 @@ public class SmartMifareReader {
      * Read UID, blocking up to timeoutMs milliseconds. Returns UID (hex) or null.
      */
     public static String readUID(long timeoutMs) {
-        ReadResult r = readUIDWithData(timeoutMs);
+        ReadResult r = readUIDWithData(timeoutMs, ReadProfile.UID_ONLY);
         return (r == null) ? null : r.uid;
     }
 
@@ -63,74 +41,24 @@ public class SmartMifareReader {
      * Returns a ReadResult (uid non-null) or null if timed out / no reader / error.
      */
     public static ReadResult readUIDWithData(long timeoutMs) {
-        try {
-            TerminalFactory factory = TerminalFactory.getDefault();
-            List<CardTerminal> terminals = factory.terminals().list();
-            if (terminals == null || terminals.isEmpty()) {
-                // System.err.println("SmartMifareReader: no NFC reader detected.");
-                return null;
-            }
-            CardTerminal terminal = terminals.get(0);
-
-            // waitForCardPresent accepts milliseconds. If timeoutMs <=0, we wait
-            // indefinitely.
-            boolean present;
-            if (timeoutMs <= 0) {
-                terminal.waitForCardPresent(0);
-                present = true;
-            } else {
-                present = terminal.waitForCardPresent(timeoutMs);
-            }
+        return readUIDWithData(timeoutMs, ReadProfile.FULL_PROBE);
+    }
 
-            if (!present) {
+    /** Same as {@link #readUIDWithData(long)}, reading only what {@code profile} asks for. */
+    public static ReadResult readUIDWithData(long timeoutMs, ReadProfile profile) {
+        try {
+            // waits on the session's cached terminal; no reader -> null (after the
+            // timeout, so short-timeout pollers do not spin)
+            if (!ReaderSession.awaitCardPresent(timeoutMs)) {
                 return null;
             }
 
-            Card card = null;
             try {
-                card = terminal.connect("*");
-                CardChannel channel = card.getBasicChannel();
-
-                // UID
-                CommandAPDU getUidCmd = new CommandAPDU(new byte[] {
-                        (byte) 0xFF, (byte) 0xCA, 0x00, 0x00, 0x00
-                });
-                ResponseAPDU uidResp = channel.transmit(getUidCmd);
-                String uid = bytesToHex(uidResp.getData()).replace(" ", "");
-
-                if (uid == null || uid.isEmpty()) {
-                    return null;
-                }
-
-                // Debounce: avoid same UID reported repeatedly in short succession
-                long now = System.currentTimeMillis();
-                Long last = lastSeen.get(uid);
-                if (last != null && (now - last) < DEBOUNCE_MS) {
-                    // treat as no new read — still return uid (caller can decide) or return null to
-                    // indicate "ignored".
-                    // We'll return uid here (so behavior matches a straightforward read); adjust if
-                    // you prefer ignoring.
-                    return null;
-                }
-                lastSeen.put(uid, now);
-
-                // Try to probe readable data (best effort)
-                String readableData = probeReadableData(channel);
-
-                return new ReadResult(uid, readableData);
-
+                return readPresentCard(profile, true);
             } finally {
-                try {
-                    if (card != null)
-                        card.disconnect(false);
-                } catch (Exception ignored) {
-                }
                 // ensure we wait for card absent before returning, to avoid immediate re-detect
                 // loops
-                try {
-                    terminal.waitForCardAbsent(200); // small wait to avoid flapping; non-blocking
-                } catch (Exception ignored) {
-                }
+                ReaderSession.awaitCardAbsent(200); // small wait to avoid flapping; non-blocking
             }
         } catch (CardException ce) {
             // System.err.println("SmartMifareReader CardException: " + ce.getMessage());
@@ -142,14 +70,79 @@ public class SmartMifareReader {
         }
     }
 
+    /**
+     * Read UID (+ data per {@code profile}) from the card already on the
+     * reader, without waiting. Returns null when there is no card or no UID.
+     * With {@code debounce}, a UID accepted within the DebounceStore READ window is ignored.
+     */
+    public static ReadResult readPresentCard(ReadProfile profile, boolean debounce) throws CardException {
+        return readPresentCard(null, profile, debounce);
+    }
+
+    /** Same as readPresentCard(profile, debounce), on reader {@code t} (null = current reader). */
+    public static ReadResult readPresentCard(CardTerminal t, ReadProfile profile, boolean debounce)
+            throws CardException {
+        Card card = null;
+        try {
+            card = (t == null) ? ReaderSession.connect() : ReaderSession.connect(t);
+            CardChannel channel = card.getBasicChannel();
+
+            // UID
+            CommandAPDU getUidCmd = new CommandAPDU(new byte[] {
+                    (byte) 0xFF, (byte) 0xCA, 0x00, 0x00, 0x00
+            });
+            ResponseAPDU uidResp = channel.transmit(getUidCmd);
+            String uid = bytesToHex(uidResp.getData()).replace(" ", "");
+
+            if (uid == null || uid.isEmpty()) {
+                return null;
+            }
+
+            // Debounce: avoid same UID reported repeatedly in short succession
+            if (debounce && !DebounceStore.accept(DebounceStore.Mode.READ, uid)) {
+                // treat as no new read
+                return null;
+            }
+
+            // Data, as far as the profile asks (best effort)
+            switch (profile) {
+                case KNOWN_BLOCKS: {
+                    byte[] payload = readKnownBlocks(channel, uid);
+                    if (CardPayloadCodec.isBinary(payload)) {
+                        String text = CardPayloadCodec.toDisplay(CardPayloadCodec.decode(payload));
+                        return new ReadResult(uid, text, payload);
+                    }
+                    return new ReadResult(uid, decodePayload(payload), payload);
+                }
+                case FULL_PROBE:
+                    return new ReadResult(uid, probeReadableData(channel, uid));
+                default:
+                    return new ReadResult(uid, "");
+            }
+
+        } finally {
+            try {
+                if (card != null)
+                    card.disconnect(false);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
     // --- Result POJO ---
     public static class ReadResult {
         public final String uid;
         public final String data; // any printable text extracted from the card (may be empty)
+        public final byte[] payload; // raw payload bytes (KNOWN_BLOCKS only, else null)
 
         public ReadResult(String uid, String data) {
+            this(uid, data, null);
+        }
+
+        public ReadResult(String uid, String data, byte[] payload) {
             this.uid = uid;
             this.data = data == null ? "" : data;
+            this.payload = payload;
         }
 
         @Override
@@ -158,50 +151,84 @@ public class SmartMifareReader {
         }
     }
 
-    private static String probeReadableData(CardChannel channel) {
+    /**
+     * Reads the payload the way SmartMifareWriter lays it out: data blocks from
+     * block 4 upwards, skipping trailers and sectors the common keys do not
+     * open. A CardPayloadCodec payload is read up to its encoded length, older
+     * text payloads up to the first zero byte. One auth per sector
+     * (SectorAuthenticator).
+     */
+    private static byte[] readKnownBlocks(CardChannel channel, String uid) {
+        SectorAuthenticator auth = new SectorAuthenticator(channel, uid);
+        java.io.ByteArrayOutputStream payload = new java.io.ByteArrayOutputStream();
+        int binaryLength = -1;
         try {
-            byte[][] commonKeys = new byte[][] {
-                    hex("FFFFFFFFFFFF"),
-                    hex("000000000000"),
-            };
-
-            int keySlot = 0x00;
-            boolean anyAuth = false;
-            StringBuilder readableData = new StringBuilder();
-
-            for (int sector = 0; sector < 16; sector++) {
-                int firstBlockOfSector = sector * 4;
-                int probeBlock = (sector == 0) ? 1 : firstBlockOfSector;
-
-                AuthResult successfulAuth = null;
+            for (int sector = 1; sector < 16; sector++) {
+                if (!auth.authenticateSector(sector))
+                    continue; // the writer skips such sectors too
 
-                for (byte[] key : commonKeys) {
-                    if (!loadKey(channel, keySlot, key))
+                int firstBlock = sector * 4;
+                for (int b = firstBlock; b < firstBlock + 3; b++) {
+                    byte[] data = readBlock(channel, b);
+                    if (data == null)
+                        return payload.toByteArray();
+                    if (payload.size() == 0) {
+                        binaryLength = CardPayloadCodec.payloadLength(data, data.length);
+                    }
+                    if (binaryLength >= 0) {
+                        payload.write(data, 0, Math.min(data.length, binaryLength - payload.size()));
+                        if (payload.size() >= binaryLength)
+                            return payload.toByteArray();
                         continue;
-                    AuthResult ar = tryAuthAsAorB(channel, probeBlock, (byte) keySlot);
-                    if (ar.success) {
-                        successfulAuth = ar;
-                        anyAuth = true;
-                        break;
+                    }
+                    for (byte x : data) {
+                        if (x == 0)
+                            return payload.toByteArray();
+                        payload.write(x);
                     }
                 }
+            }
+        } catch (Exception e) {
+            // keep what was read
+        } finally {
+            auth.finish();
+        }
+        return payload.toByteArray();
+    }
+
+    private static String decodePayload(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8)
+                .trim()
+                .replaceAll("[^\\p{Print}]", "");
+    }
+
+    private static String probeReadableData(CardChannel channel, String uid) {
+        SectorAuthenticator auth = new SectorAuthenticator(channel, uid);
+        try {
+            boolean anyAuth = false;
+            StringBuilder readableData = new StringBuilder();
 
-                if (successfulAuth == null)
+            for (int sector = 0; sector < 16; sector++) {
+                if (!auth.authenticateSector(sector))
                     continue;
+                anyAuth = true;
 
+                int firstBlockOfSector = sector * 4;
                 for (int b = firstBlockOfSector; b < firstBlockOfSector + 4; b++) {
                     if (sector == 0 && b == 0)
                         continue; // skip manufacturer block
                     if ((b % 4) == 3)
                         continue; // skip trailer
                     byte[] data = readBlock(channel, b);
-                    if (data != null) {
-                        String text = new String(data, StandardCharsets.UTF_8)
-                                .trim()
-                                .replaceAll("[^\\p{Print}]", "");
-                        if (!text.isEmpty())
-                            readableData.append(text).append(" ");
+                    if (data == null) {
+                        auth.reset();
+                        continue;
                     }
+                    String text = new String(data, StandardCharsets.UTF_8)
+                            .trim()
+                            .replaceAll("[^\\p{Print}]", "");
+                    if (!text.isEmpty())
+                        readableData.append(text).append(" ");
                 }
             }
 
@@ -212,55 +239,8 @@ public class SmartMifareReader {
             }
         } catch (Exception e) {
             return "";
-        }
-    }
-
-    private static class AuthResult {
-        boolean success;
-        byte keyType;
-
-        AuthResult(boolean s, byte t) {
-            success = s;
-            keyType = t;
-        }
-    }
-
-    private static AuthResult tryAuthAsAorB(CardChannel channel, int blockNumber, byte keySlot) {
-        boolean aOk = authWithKeySlot(channel, blockNumber, (byte) 0x60, keySlot);
-        if (aOk)
-            return new AuthResult(true, (byte) 0x60);
-        boolean bOk = authWithKeySlot(channel, blockNumber, (byte) 0x61, keySlot);
-        if (bOk)
-            return new AuthResult(true, (byte) 0x61);
-        return new AuthResult(false, (byte) 0x00);
-    }
-
-    private static boolean loadKey(CardChannel channel, int keySlot, byte[] key) {
-        try {
-            byte[] apdu = new byte[11];
-            apdu[0] = (byte) 0xFF;
-            apdu[1] = (byte) 0x82;
-            apdu[2] = 0x00;
-            apdu[3] = (byte) keySlot;
-            apdu[4] = 0x06;
-            System.arraycopy(key, 0, apdu, 5, 6);
-            ResponseAPDU resp = channel.transmit(new CommandAPDU(apdu));
-            return resp.getSW() == 0x9000;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private static boolean authWithKeySlot(CardChannel channel, int blockNumber, byte keyType, byte keySlot) {
-        try {
-            byte[] apdu = new byte[] {
-                    (byte) 0xFF, (byte) 0x86, 0x00, 0x00, 0x05,
-                    0x01, 0x00, (byte) blockNumber, keyType, keySlot
-            };
-            ResponseAPDU resp = channel.transmit(new CommandAPDU(apdu));
-            return resp.getSW() == 0x9000;
-        } catch (Exception e) {
-            return false;
+        } finally {
+            auth.finish();
         }
     }
 
@@ -276,14 +256,6 @@ public class SmartMifareReader {
         }
     }
 
-    private static byte[] hex(String s) {
-        s = s.replaceAll("[^0-9A-Fa-f]", "");
-        byte[] out = new byte[s.length() / 2];
-        for (int i = 0; i < out.length; i++)
-            out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
-        return out;
-    }
-
     private static String bytesToHex(byte[] bytes) {
         if (bytes == null)
             return "";
@@ -7,32 +7,52 @@ import java.util.*;
 
 public class SmartMifareWriter {
 
-    private static final byte[][] COMMON_KEYS = new byte[][] {
-            hex("FFFFFFFFFFFF"),
-            hex("000000000000"),
-    };
-    private static final int KEY_SLOT = 0x00;
-
     public static final long DEFAULT_PRESENT_TIMEOUT_MS = 10_000L;
     public static final long DEFAULT_ABSENT_TIMEOUT_MS = 5_000L;
 
+    /** Milliseconds spent in each phase of a write. */
+    public static class Timings {
+        public long waitMs; // waiting for the card
+        public long connectMs; // connect + UID
+        public long discoverMs; // finding writable sectors
+        public long authMs; // sector authentication during the write pass
+        public long writeMs;
+        public long verifyMs;
+        public long totalMs; // connect to last verify, without waits
+
+        @Override
+        public String toString() {
+            return "wait=" + waitMs + " connect=" + connectMs + " discover=" + discoverMs + " auth=" + authMs
+                    + " write=" + writeMs + " verify=" + verifyMs + " total=" + totalMs;
+        }
+    }
+
     public static class WriteResult {
         public final String uid;
         public final List<Integer> blocks;
         public final String textWritten;
         public final Instant timestamp;
+        public final VerifyPolicy verifyPolicy;
+        public final Timings timings;
 
         public WriteResult(String uid, List<Integer> blocks, String textWritten, Instant timestamp) {
+            this(uid, blocks, textWritten, timestamp, VerifyPolicy.FULL_READBACK, new Timings());
+        }
+
+        public WriteResult(String uid, List<Integer> blocks, String textWritten, Instant timestamp,
+                VerifyPolicy verifyPolicy, Timings timings) {
             this.uid = uid;
             this.blocks = Collections.unmodifiableList(new ArrayList<>(blocks));
             this.textWritten = textWritten;
             this.timestamp = timestamp;
+            this.verifyPolicy = verifyPolicy;
+            this.timings = timings;
         }
 
         @Override
         public String toString() {
             return "WriteResult{uid=" + uid + ", blocks=" + blocks + ", textWritten=" + textWritten + ", timestamp="
-                    + timestamp + "}";
+                    + timestamp + ", verify=" + verifyPolicy + ", timings={" + timings + "}}";
         }
     }
 
@@ -41,39 +61,75 @@ public class SmartMifareWriter {
     }
 
     public static WriteResult writeText(String text, long presentTimeoutMs, long absentTimeoutMs) throws Exception {
+        return writeText(text, presentTimeoutMs, absentTimeoutMs, VerifyPolicy.FULL_READBACK);
+    }
+
+    /**
+     * Writes {@code text} (UTF-8, zero padded) into the data blocks of sectors
+     * 1..15 that open with a common key. Each sector is authenticated once
+     * and all of its blocks are written; then one read pass over everything
+     * written checks it per {@code verify}.
+     */
+    public static WriteResult writeText(String text, long presentTimeoutMs, long absentTimeoutMs,
+            VerifyPolicy verify) throws Exception {
         if (text == null)
             throw new IllegalArgumentException("text is null");
         String trimmed = text.trim();
         if (trimmed.isEmpty())
             throw new IllegalArgumentException("text is empty");
+        return writePayload(trimmed.getBytes(StandardCharsets.UTF_8), trimmed,
+                presentTimeoutMs, absentTimeoutMs, verify);
+    }
+
+    /** Writes a participant record in CardPayloadCodec's binary format. */
+    public static WriteResult writeRecord(String[] fields) throws Exception {
+        return writeRecord(fields, DEFAULT_PRESENT_TIMEOUT_MS, DEFAULT_ABSENT_TIMEOUT_MS, VerifyPolicy.FULL_READBACK);
+    }
+
+    public static WriteResult writeRecord(String[] fields, long presentTimeoutMs, long absentTimeoutMs,
+            VerifyPolicy verify) throws Exception {
+        byte[] payload = CardPayloadCodec.encode(fields);
+        return writePayload(payload, CardPayloadCodec.toDisplay(fields), presentTimeoutMs, absentTimeoutMs, verify);
+    }
 
-        TerminalFactory factory = TerminalFactory.getDefault();
-        List<CardTerminal> terminals = factory.terminals().list();
-        if (terminals == null || terminals.isEmpty()) {
+    /**
+     * Writes an already encoded payload as is (zero padded to whole blocks);
+     * {@code label} goes into WriteResult.textWritten. With absentTimeoutMs
+     * 0 the call returns without waiting for the card to be removed.
+     */
+    public static WriteResult writePayload(byte[] payload, String label, long presentTimeoutMs,
+            long absentTimeoutMs, VerifyPolicy verify) throws Exception {
+        if (payload == null || payload.length == 0)
+            throw new IllegalArgumentException("payload is empty");
+
+        if (!ReaderSession.isReaderAttached()) {
             throw new Exception("No NFC reader detected");
         }
-        CardTerminal terminal = terminals.get(0);
+
+        if (verify == null)
+            verify = VerifyPolicy.FULL_READBACK;
+        Timings timings = new Timings();
+        long t0 = System.nanoTime();
 
         // Wait for card present
         final long chunkMs = 500L;
         long deadline = System.currentTimeMillis() + presentTimeoutMs;
         boolean present = false;
         while (System.currentTimeMillis() < deadline) {
-            try {
-                present = terminal.waitForCardPresent((int) chunkMs);
-            } catch (CardException ignore) {
-            }
+            present = ReaderSession.awaitCardPresent(chunkMs);
             if (present)
                 break;
         }
         if (!present)
             throw new Exception("Timed out waiting for card (ms=" + presentTimeoutMs + ")");
+        long t1 = System.nanoTime();
+        timings.waitMs = ms(t1 - t0);
 
         Card card = null;
         List<Integer> writtenBlocks = new ArrayList<>();
         String uid = "";
         try {
-            card = terminal.connect("*");
+            card = ReaderSession.connect();
             CardChannel channel = card.getBasicChannel();
 
             // read UID
@@ -83,57 +139,82 @@ public class SmartMifareWriter {
             System.out.println("DEBUG: UID=" + uid + " SW=" + Integer.toHexString(rUid.getSW()));
 
             // prepare chunks (16 bytes)
-            byte[] payload = trimmed.getBytes(StandardCharsets.UTF_8);
             List<byte[]> chunks = chunkBytes(payload, 16);
-
-            // DISCOVERY PASS: find all blocks we can authenticate and write to 
-            // We record for each discovered block: block index and the keyType that worked
-            List<BlockAuth> writableBlocks = discoverWritableBlocks(channel);
+            if (verify == VerifyPolicy.CHECKSUM)
+                chunks.add(checksumBlock(payload));
+            long t2 = System.nanoTime();
+            timings.connectMs = ms(t2 - t1);
+
+            // DISCOVERY PASS: find enough blocks in sectors we can authenticate
+            // (one auth per sector; keys that worked before are tried first)
+            SectorAuthenticator auth = new SectorAuthenticator(channel, uid);
+            int needed = chunks.size();
+            List<Integer> writableBlocks = discoverWritableBlocks(auth, needed);
             System.out.println("DEBUG: discovered writable blocks count=" + writableBlocks.size());
+            long t3 = System.nanoTime();
+            timings.discoverMs = ms(t3 - t2);
 
             // Check capacity
-            int needed = chunks.size();
             if (writableBlocks.size() < needed) {
+                auth.finish();
                 // helpful diagnostic
                 String msg = "Insufficient authenticated writable blocks: need " + needed + ", found "
                         + writableBlocks.size() + ".";
                 // include a brief listing
                 StringBuilder sb = new StringBuilder(msg).append(" Blocks:");
-                for (BlockAuth ba : writableBlocks)
-                    sb.append(' ').append(ba.blockIndex);
+                for (int b : writableBlocks)
+                    sb.append(' ').append(b);
                 throw new Exception(sb.toString());
             }
 
-            // WRITE PASS: write chunks sequentially into discovered blocks
-            for (int i = 0; i < chunks.size(); i++) {
-                byte[] chunk = chunks.get(i);
-                BlockAuth target = writableBlocks.get(i);
-
-                // load the same key we discovered (we already ensured loadKey works in
-                // discovery, but load again to be safe)
-                boolean loaded = loadKey(channel, KEY_SLOT, target.keyBytes);
-                if (!loaded) {
-                    // if load fails unexpectedly, try to reload any other key that might work for
-                    // that block
-                    loaded = loadKey(channel, KEY_SLOT, target.keyBytes);
-                }
-                if (!loaded) {
-                    throw new Exception("Failed to load key into reader for block " + target.blockIndex);
+            // WRITE PASS: per sector, authenticate once and write all of its blocks
+            long authNs = 0, writeNs = 0;
+            int i = 0;
+            while (i < needed) {
+                int sector = writableBlocks.get(i) / 4;
+                int end = i;
+                while (end < needed && writableBlocks.get(end) / 4 == sector)
+                    end++;
+
+                long ta = System.nanoTime();
+                if (!auth.authenticateSector(sector)) {
+                    throw new Exception("Final auth failed for block " + writableBlocks.get(i));
                 }
+                long tw = System.nanoTime();
+                authNs += tw - ta;
 
-                // final auth using discovered key type
-                boolean finalAuth = authWithKeySlot(channel, target.blockIndex, target.keyType, (byte) KEY_SLOT);
-                if (!finalAuth) {
-                    throw new Exception("Final auth failed for block " + target.blockIndex);
+                try {
+                    for (int j = i; j < end; j++) {
+                        int block = writableBlocks.get(j);
+                        writeBlock(channel, block, chunks.get(j));
+                        writtenBlocks.add(block);
+                        System.out.println("DEBUG: wrote chunk " + (j + 1) + " -> block " + block);
+                    }
+                } catch (Exception e) {
+                    auth.reset();
+                    throw e;
                 }
+                writeNs += System.nanoTime() - tw;
+                i = end;
+            }
 
-                // attempt write (writeBlock verifies after write)
-                writeBlock(channel, target.blockIndex, chunk);
-                writtenBlocks.add(target.blockIndex);
-                System.out.println("DEBUG: wrote chunk " + (i + 1) + " -> block " + target.blockIndex);
+            // VERIFY PASS: one read over everything written, after all writes
+            long tv = System.nanoTime();
+            if (verify != VerifyPolicy.NONE) {
+                try {
+                    verifyWritten(channel, auth, writableBlocks, chunks, payload.length, verify);
+                } catch (Exception e) {
+                    auth.reset();
+                    throw e;
+                }
             }
+            auth.finish();
+            timings.authMs = ms(authNs);
+            timings.writeMs = ms(writeNs);
+            timings.verifyMs = ms(System.nanoTime() - tv);
+            timings.totalMs = ms(System.nanoTime() - t1);
 
-            return new WriteResult(uid, writtenBlocks, trimmed, Instant.now());
+            return new WriteResult(uid, writtenBlocks, label, Instant.now(), verify, timings);
 
         } catch (Exception e) {
             throw new Exception("Write failed: " + e.getMessage(), e);
@@ -147,101 +228,31 @@ public class SmartMifareWriter {
             // wait for card absent (best-effort)
             long absentDeadline = System.currentTimeMillis() + absentTimeoutMs;
             while (System.currentTimeMillis() < absentDeadline) {
-                try {
-                    if (terminal.waitForCardAbsent(500))
-                        break;
-                } catch (CardException ignored) {
-                }
+                if (ReaderSession.awaitCardAbsent(500) || !ReaderSession.isReaderAttached())
+                    break;
             }
         }
     }
 
     // --- Discovery helpers ---
 
-    private static class BlockAuth {
-        final int blockIndex;
-        final byte keyType; // 0x60 or 0x61
-        final byte[] keyBytes; // actual key bytes used (6 bytes)
-
-        BlockAuth(int idx, byte kt, byte[] kb) {
-            this.blockIndex = idx;
-            this.keyType = kt;
-            this.keyBytes = kb;
-        }
-    }
-
     /**
-     * Scan blocks 4..62 (skip trailers) and record blocks where we can:
-     * - load a candidate key into KEY_SLOT
-     * - authenticate as A or B (0x60/0x61) using that key slot
-     *
-     * Returns a list sorted by block index ascending.
+     * Data blocks (trailers skipped) of sectors 1..15 that authenticate with a
+     * common key, in ascending order, stopping once {@code needed} are found.
      */
-    private static List<BlockAuth> discoverWritableBlocks(CardChannel channel) {
-        List<BlockAuth> out = new ArrayList<>();
-        for (int block = 4; block < 64; block++) {
-            if (isTrailerBlock(block))
-                continue;
-
-            boolean found = false;
-            for (byte[] key : COMMON_KEYS) {
-                boolean loaded = loadKey(channel, KEY_SLOT, key);
-                System.out.println(
-                        "DEBUG: discover loadKey block=" + block + " key=" + bytesToHex(key) + " -> " + loaded);
-                if (!loaded)
-                    continue;
-
-                // try auth A
-                if (authWithKeySlot(channel, block, (byte) 0x60, (byte) KEY_SLOT)) {
-                    out.add(new BlockAuth(block, (byte) 0x60, key));
-                    found = true;
-                    break;
-                }
-                // try auth B
-                if (authWithKeySlot(channel, block, (byte) 0x61, (byte) KEY_SLOT)) {
-                    out.add(new BlockAuth(block, (byte) 0x61, key));
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                // block not writable with common keys - skip
-            }
+    private static List<Integer> discoverWritableBlocks(SectorAuthenticator auth, int needed) {
+        List<Integer> out = new ArrayList<>();
+        for (int sector = 1; sector < 16 && out.size() < needed; sector++) {
+            if (!auth.authenticateSector(sector))
+                continue; // sector not writable with common keys - skip
+            for (int block = sector * 4; block < sector * 4 + 3; block++)
+                out.add(block);
         }
-        // list is naturally in ascending block order; return as-is
         return out;
     }
 
     // --- Internal helper classes & methods (from your prior code) ---
 
-    private static boolean loadKey(CardChannel c, int slot, byte[] key) {
-        try {
-            byte[] apdu = new byte[11];
-            apdu[0] = (byte) 0xFF;
-            apdu[1] = (byte) 0x82;
-            apdu[2] = 0x00;
-            apdu[3] = (byte) slot;
-            apdu[4] = 0x06;
-            System.arraycopy(key, 0, apdu, 5, 6);
-            ResponseAPDU r = c.transmit(new CommandAPDU(apdu));
-            System.out.println("DEBUG: LOAD KEY SW=" + Integer.toHexString(r.getSW()));
-            return r.getSW() == 0x9000;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private static boolean authWithKeySlot(CardChannel c, int b, byte type, byte slot) {
-        try {
-            byte[] apdu = new byte[] { (byte) 0xFF, (byte) 0x86, 0x00, 0x00, 0x05, 0x01, 0x00, (byte) b, type, slot };
-            ResponseAPDU r = c.transmit(new CommandAPDU(apdu));
-            System.out.println("DEBUG: AUTH SW for block " + b + " -> " + Integer.toHexString(r.getSW()));
-            return r.getSW() == 0x9000;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     private static void writeBlock(CardChannel c, int b, byte[] data) throws Exception {
         if (isTrailerBlock(b))
             throw new Exception("Refusing to write to trailer block " + b);
@@ -261,12 +272,41 @@ public class SmartMifareWriter {
         if (r.getSW() != 0x9000) {
             throw new Exception("Write failed SW=" + Integer.toHexString(r.getSW()));
         }
+    }
 
-        byte[] verify = readBlock(c, b);
-        if (verify == null)
-            throw new Exception("Write verification failed - couldn't read back block " + b);
-        if (!Arrays.equals(data, verify))
-            throw new Exception("Write verification failed - data mismatch in block " + b);
+    /**
+     * Reads the first chunks.size() blocks back, a sector at a time, and checks
+     * them: FULL_READBACK against what was sent, CHECKSUM by the CRC32 of the
+     * payload read back against the checksum block read back.
+     */
+    private static void verifyWritten(CardChannel c, SectorAuthenticator auth, List<Integer> blocks,
+            List<byte[]> chunks, int payloadLength, VerifyPolicy verify) throws Exception {
+        int n = chunks.size();
+        byte[][] back = new byte[n][];
+        for (int j = 0; j < n; j++) {
+            int b = blocks.get(j);
+            if (!auth.authenticate(b))
+                throw new Exception("Write verification failed - couldn't authenticate block " + b);
+            back[j] = readBlock(c, b);
+            if (back[j] == null)
+                throw new Exception("Write verification failed - couldn't read back block " + b);
+        }
+
+        if (verify == VerifyPolicy.FULL_READBACK) {
+            for (int j = 0; j < n; j++) {
+                if (!Arrays.equals(chunks.get(j), back[j]))
+                    throw new Exception("Write verification failed - data mismatch in block " + blocks.get(j));
+            }
+            return;
+        }
+
+        // CHECKSUM: the last block read back is the checksum of the ones before it
+        byte[] data = new byte[(n - 1) * 16];
+        for (int j = 0; j < n - 1; j++)
+            System.arraycopy(back[j], 0, data, j * 16, 16);
+        if (!Arrays.equals(checksumBlock(Arrays.copyOf(data, payloadLength)), back[n - 1]))
+            throw new Exception("Write verification failed - checksum mismatch over blocks "
+                    + blocks.subList(0, n));
     }
 
     private static byte[] readBlock(CardChannel c, int b) {
@@ -287,15 +327,31 @@ public class SmartMifareWriter {
         return (b % 4) == 3;
     }
 
-    private static byte[] hex(String s) {
-        s = s.replaceAll("[^0-9A-Fa-f]", "");
-        int len = s.length() / 2;
-        byte[] out = new byte[len];
-        for (int i = 0; i < len; i++)
-            out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+    /**
+     * Written after the payload under VerifyPolicy.CHECKSUM: a zero byte (so
+     * readers that stop at the padding stop here too), the marker C5 01, the
+     * payload length (2 bytes) and its CRC32 (4 bytes), all big-endian.
+     */
+    static byte[] checksumBlock(byte[] payload) {
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(payload);
+        long v = crc.getValue();
+        byte[] out = new byte[16];
+        out[1] = (byte) 0xC5;
+        out[2] = 0x01;
+        out[3] = (byte) (payload.length >> 8);
+        out[4] = (byte) payload.length;
+        out[5] = (byte) (v >> 24);
+        out[6] = (byte) (v >> 16);
+        out[7] = (byte) (v >> 8);
+        out[8] = (byte) v;
         return out;
     }
 
+    private static long ms(long nanos) {
+        return nanos / 1_000_000;
+    }
+
     private static List<byte[]> chunkBytes(byte[] src, int size) {
         List<byte[]> out = new ArrayList<>();
         for (int i = 0; i < src.length; i += size) {
@@ -0,0 +1,18 @@
+package nfc;
+
+/**
+ * How SmartMifareWriter checks a write.
+ *
+ * NONE: trust the card's acknowledgement of each WRITE.
+ * CHECKSUM: also write a checksum block (length + CRC32 of the payload)
+ * after the payload; after the writes, read everything back and check the
+ * CRC32 of the payload read back against the checksum block read back. The
+ * card then carries its own check for whoever reads it later.
+ * FULL_READBACK: after the writes, read every written block back and compare
+ * with what was sent (the default).
+ */
+public enum VerifyPolicy {
+    NONE,
+    CHECKSUM,
+    FULL_READBACK
+}
@@ -0,0 +1,440 @@
+package repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import db.AccessDb;
+import dto.AttendanceInsertRow;
+import dto.DeniedAttendanceRow;
+import util.DbPath;
+import util.DebugLog;
+import util.Json;
+
+/**
+ * Write-behind journal for gate writes (trans inserts, Attendance_Denied
+ * inserts, exit updates).
+ *
+ * A tap is acknowledged once its record is appended and fsync'd to the active
+ * segment under {@code <user data dir>/journal}. A single drainer thread
+ * applies records to the .accdb in batches over one connection and advances
+ * the checkpoint. On restart, records past the checkpoint are replayed; rows
+ * that already reached the database (crash between commit and checkpoint)
+ * are skipped.
+ *
+ * Records that the database keeps rejecting are moved to rejected.log so one
+ * bad row cannot stall the queue.
+ */
+public final class AttendanceJournal {
+
+    private AttendanceJournal() {
+    }
+
+    public static final String TYPE_ENTRY = "ENTRY";
+    public static final String TYPE_DENIED = "DENIED";
+    public static final String TYPE_EXIT = "EXIT";
+
+    /** One journal line. */
+    public static class JournalRecord {
+        public long seq;
+        public String type;
+        public AttendanceInsertRow entry;
+        public DeniedAttendanceRow denied;
+
+        // EXIT: identifies the entry row by its key columns
+        public String bsguid;
+        public String eventName;
+        public String location;
+        public String entryDateTime;
+        public String exitDateTime;
+
+        @JsonIgnore
+        boolean replayed;
+    }
+
+    private static final int MAX_BATCH = 200;
+    private static final long ROTATE_BYTES = 256 * 1024;
+    private static final long RETRY_DELAY_MS = 2_000;
+
+    private static final ObjectMapper MAPPER = Json.MAPPER;
+
+    private static final Object APPEND_LOCK = new Object();
+    private static final LinkedBlockingQueue<JournalRecord> pending = new LinkedBlockingQueue<>();
+
+    private static Path dir;
+    private static FileChannel active;
+    private static Path activePath;
+    private static long nextSeq = 1;
+    private static volatile long checkpoint = 0;
+
+    private static volatile boolean started = false;
+    private static volatile boolean running = false;
+    private static Thread drainer;
+
+    /* ================= APPEND (GATE SIDE) ================= */
+
+    public static void appendEntry(AttendanceInsertRow row) throws IOException {
+        JournalRecord r = new JournalRecord();
+        r.type = TYPE_ENTRY;
+        r.entry = row;
+        append(r);
+    }
+
+    public static void appendDenied(DeniedAttendanceRow row) throws IOException {
+        JournalRecord r = new JournalRecord();
+        r.type = TYPE_DENIED;
+        r.denied = row;
+        append(r);
+    }
+
+    public static void appendExit(String bsguid, String eventName, String location,
+            String entryDateTime, String exitDateTime) throws IOException {
+        JournalRecord r = new JournalRecord();
+        r.type = TYPE_EXIT;
+        r.bsguid = bsguid;
+        r.eventName = eventName;
+        r.location = location;
+        r.entryDateTime = entryDateTime;
+        r.exitDateTime = exitDateTime;
+        append(r);
+    }
+
+    private static void append(JournalRecord r) throws IOException {
+        ensureStarted();
+        synchronized (APPEND_LOCK) {
+            r.seq = nextSeq++;
+            byte[] line = (MAPPER.writeValueAsString(r) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buf = ByteBuffer.wrap(line);
+            while (buf.hasRemaining())
+                active.write(buf);
+            active.force(false);
+            // queue in seq order: the drainer checkpoints at the last seq of a batch
+            pending.add(r);
+        }
+    }
+
+    /** Records written but not yet applied to the database. */
+    public static int backlog() {
+        return pending.size();
+    }
+
+    /* ================= LIFECYCLE ================= */
+
+    /** Replay and start the drainer off the calling thread. */
+    public static void startAsync() {
+        Thread t = new Thread(() -> {
+            try {
+                ensureStarted();
+            } catch (Exception ex) {
+                DebugLog.ex(ex, "[AttendanceJournal] start failed; will retry on first tap");
+            }
+        }, "attendance-journal-start");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void ensureStarted() throws IOException {
+        if (started)
+            return;
+        synchronized (APPEND_LOCK) {
+            if (started)
+                return;
+
+            dir = DbPath.getUserDataDir().resolve("journal");
+            Files.createDirectories(dir);
+            checkpoint = readCheckpoint();
+
+            // replay everything past the checkpoint, oldest segment first
+            List<JournalRecord> replay = new ArrayList<>();
+            long maxSeq = checkpoint;
+            for (Path seg : segments().values()) {
+                for (JournalRecord r : readSegment(seg)) {
+                    maxSeq = Math.max(maxSeq, r.seq);
+                    if (r.seq > checkpoint) {
+                        r.replayed = true;
+                        replay.add(r);
+                    }
+                }
+            }
+            nextSeq = maxSeq + 1;
+
+            // the tap window must know about entries/exits that are not in trans yet
+            try (Connection conn = AccessDb.getConnection()) {
+                RecentTapWindow.ensureSeeded(conn);
+            } catch (SQLException ex) {
+                throw new IOException("Could not seed tap window before replay", ex);
+            }
+            for (JournalRecord r : replay) {
+                if (TYPE_ENTRY.equals(r.type) && r.entry != null) {
+                    RecentTapWindow.recordEntry(r.entry.bsguid, r.entry.eventName, r.entry.location,
+                            r.entry.dateTime);
+                } else if (TYPE_EXIT.equals(r.type)) {
+                    RecentTapWindow.markExited(r.bsguid, r.eventName, r.location, r.entryDateTime);
+                }
+            }
+            pending.addAll(replay);
+
+            openSegment(nextSeq);
+
+            running = true;
+            drainer = new Thread(AttendanceJournal::drainLoop, "attendance-journal-drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+
+            started = true;
+            DebugLog.d("[AttendanceJournal] started in %s, replaying %d record(s) past checkpoint %d",
+                    dir, replay.size(), checkpoint);
+        }
+    }
+
+    /** Give the drainer up to {@code timeoutMs} to empty the queue, then stop it. */
+    public static void shutdown(long timeoutMs) {
+        if (!started)
+            return;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!pending.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // no interrupt: UCanAccess does not like being interrupted mid-statement
+        running = false;
+        try {
+            drainer.join(Math.max(1, deadline - System.currentTimeMillis()) + 1_000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (APPEND_LOCK) {
+            try {
+                active.close();
+            } catch (IOException ignored) {
+            }
+        }
+        DebugLog.d("[AttendanceJournal] stopped, %d record(s) left for replay", pending.size());
+    }
+
+    /* ================= DRAINER ================= */
+
+    private static void drainLoop() {
+        List<JournalRecord> batch = new ArrayList<>();
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    JournalRecord first = pending.poll(1, TimeUnit.SECONDS);
+                    if (first == null)
+                        continue;
+                    batch.add(first);
+                    pending.drainTo(batch, MAX_BATCH - 1);
+                }
+
+                applyBatch(batch);
+                advanceCheckpoint(batch.get(batch.size() - 1).seq);
+                batch.clear();
+
+            } catch (InterruptedException ie) {
+                if (!running)
+                    break;
+            } catch (Exception ex) {
+                DebugLog.ex(ex, "[AttendanceJournal] batch of %d failed; retrying one by one", batch.size());
+                // rows applied one by one autocommit; a later retry must skip them
+                for (JournalRecord r : batch)
+                    r.replayed = true;
+                try {
+                    applyIndividually(batch);
+                    advanceCheckpoint(batch.get(batch.size() - 1).seq);
+                    batch.clear();
+                } catch (Exception again) {
+                    // database unavailable: keep the batch and try later
+                    DebugLog.ex(again, "[AttendanceJournal] database unavailable, retrying in %d ms",
+                            RETRY_DELAY_MS);
+                    sleepQuietly(RETRY_DELAY_MS);
+                }
+            }
+        }
+        // anything still in 'batch' stays past the checkpoint and is replayed next start
+    }
+
+    private static void applyBatch(List<JournalRecord> batch) throws SQLException {
+        try (Connection conn = AccessDb.getConnection()) {
+            conn.setAutoCommit(false);
+            boolean committed = false;
+            try {
+                for (JournalRecord r : batch)
+                    apply(conn, r);
+                // sync hears about the new rows once they are committed
+                ChangeFeed.commit(conn);
+                committed = true;
+            } finally {
+                // any way out short of the commit (a bad record throws unchecked too)
+                // must drop the tables ChangeFeed holds for this pooled connection
+                if (!committed)
+                    ChangeFeed.rollback(conn);
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** Applies each record on its own; records the DB rejects go to rejected.log. */
+    private static void applyIndividually(List<JournalRecord> batch) throws SQLException, IOException {
+        try (Connection conn = AccessDb.getConnection()) {
+            for (JournalRecord r : batch) {
+                try {
+                    apply(conn, r);
+                } catch (SQLException rowEx) {
+                    if (conn.isClosed() || !conn.isValid(2))
+                        throw rowEx;
+                    DebugLog.ex(rowEx, "[AttendanceJournal] record %d (%s) rejected", r.seq, r.type);
+                    reject(r, rowEx);
+                }
+            }
+        }
+    }
+
+    private static final String TRANS_EXISTS_SQL = "SELECT 1 FROM trans WHERE carduid = ? AND date_time = ?";
+    private static final String DENIED_EXISTS_SQL = """
+                SELECT 1 FROM Attendance_Denied
+                WHERE carduid = ? AND attempted_date_time = ? AND denial_reason = ?
+            """;
+
+    private static void apply(Connection conn, JournalRecord r) throws SQLException {
+        switch (r.type) {
+            case TYPE_ENTRY -> {
+                if (r.replayed && exists(conn, TRANS_EXISTS_SQL, r.entry.cardUid, r.entry.dateTime))
+                    return;
+                AttendanceRepository.insertAttendance(conn, r.entry);
+            }
+            case TYPE_DENIED -> {
+                if (r.replayed && exists(conn, DENIED_EXISTS_SQL,
+                        r.denied.cardUid, r.denied.attemptedDateTime, r.denied.denialReason))
+                    return;
+                AttendanceRepository.insertDeniedAttendance(conn, r.denied);
+            }
+            case TYPE_EXIT -> AttendanceRepository.applyExit(conn,
+                    r.bsguid, r.eventName, r.location, r.entryDateTime, r.exitDateTime);
+            default -> DebugLog.d("[AttendanceJournal] skipping unknown record type %s", r.type);
+        }
+    }
+
+    private static boolean exists(Connection conn, String sql, String... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++)
+                ps.setString(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /* ================= FILES ================= */
+
+    private static TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> out = new TreeMap<>();
+        try (var stream = Files.newDirectoryStream(dir, "segment-*.log")) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                try {
+                    out.put(Long.parseLong(name.substring(8, name.length() - 4)), p);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<JournalRecord> readSegment(Path seg) throws IOException {
+        List<JournalRecord> out = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(seg, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                try {
+                    out.add(MAPPER.readValue(line, JournalRecord.class));
+                } catch (IOException torn) {
+                    // a crash mid-append leaves at most one partial line at the tail
+                    DebugLog.d("[AttendanceJournal] ignoring unreadable line in %s", seg.getFileName());
+                }
+            }
+        }
+        return out;
+    }
+
+    // caller holds APPEND_LOCK
+    private static void openSegment(long firstSeq) throws IOException {
+        activePath = dir.resolve("segment-" + firstSeq + ".log");
+        active = FileChannel.open(activePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void advanceCheckpoint(long seq) throws IOException {
+        checkpoint = seq;
+        Path tmp = dir.resolve("checkpoint.tmp");
+        Files.writeString(tmp, Long.toString(seq), StandardCharsets.UTF_8);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve("checkpoint"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (APPEND_LOCK) {
+            // start a fresh segment once the active one is large and fully applied
+            if (seq == nextSeq - 1 && active.size() >= ROTATE_BYTES) {
+                active.close();
+                openSegment(nextSeq);
+            }
+            // drop segments whose records are all at or below the checkpoint
+            Path prevPath = null;
+            for (var e : segments().entrySet()) {
+                if (prevPath != null && e.getKey() - 1 <= seq && !prevPath.equals(activePath))
+                    Files.deleteIfExists(prevPath);
+                prevPath = e.getValue();
+            }
+        }
+    }
+
+    private static long readCheckpoint() {
+        try {
+            Path p = dir.resolve("checkpoint");
+            return Files.exists(p) ? Long.parseLong(Files.readString(p).trim()) : 0L;
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[AttendanceJournal] unreadable checkpoint, replaying all segments");
+            return 0L;
+        }
+    }
+
+    private static void reject(JournalRecord r, Exception cause) throws IOException {
+        String reason = String.valueOf(cause.getMessage()).replaceAll("\\s+", " ");
+        String line = MAPPER.writeValueAsString(r) + "\t" + reason + "\n";
+        Files.writeString(dir.resolve("rejected.log"), line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package repository;
 
 import db.AccessDb;
+import db.ParticipantIndex;
 import dto.*;
 
 import java.sql.*;
@@ -40,79 +41,26 @@ public class AttendanceRepository {
                     row.locations.add(location.trim());
                 }
             }
+
+            // refresh compiled gate rules alongside the event list
+            EventRuleCache.reload(conn);
         }
         return new ArrayList<>(map.values());
     }
 
     /* ================= PARTICIPANT ================= */
 
-    private static final String FETCH_PARTICIPANT_BY_CARD_UID_SQL = """
-                SELECT
-                    FullName,
-                    BSGUID,
-                    ParticipationType,
-                    CardUID,
-                    status
-                FROM ParticipantsRecord
-                WHERE CardUID = ?
-            """;
-
+    // served from the in-memory index; ParticipantIndex keeps it in step with
+    // the AccessDb write paths
     public ParticipantRow findParticipantByCardUid(String cardUid) throws Exception {
-
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(FETCH_PARTICIPANT_BY_CARD_UID_SQL)) {
-
-            ps.setString(1, cardUid);
-
-            try (ResultSet rs = ps.executeQuery()) {
-
-                if (!rs.next())
-                    return null;
-
-                ParticipantRow p = new ParticipantRow();
-                p.fullName = rs.getString("FullName");
-                p.bsguid = rs.getString("BSGUID");
-                p.participationType = rs.getString("ParticipationType");
-                p.cardUid = rs.getString("CardUID");
-                p.status = rs.getString("status");
-                return p;
-            }
-        }
+        return ParticipantIndex.lookup(cardUid);
     }
 
     /* ================= EVENT RULE ================= */
 
-    private static final String FETCH_EVENT_LOCATION_RULE_SQL = """
-                SELECT
-                    location_name,
-                    allowed_participant_types,
-                    entry_from,
-                    entry_till
-                FROM Event_Locations
-                WHERE event_id = ? AND location_name = ?
-            """;
-
+    // served from EventRuleCache; rules are compiled once per event load
     public EventLocationRule findEventLocationRule(int eventId, String location) throws Exception {
-
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(FETCH_EVENT_LOCATION_RULE_SQL)) {
-
-            ps.setInt(1, eventId);
-            ps.setString(2, location);
-
-            try (ResultSet rs = ps.executeQuery()) {
-
-                if (!rs.next())
-                    return null;
-
-                EventLocationRule rule = new EventLocationRule();
-                rule.locationName = rs.getString("location_name");
-                rule.allowedParticipantTypes = rs.getString("allowed_participant_types");
-                rule.entryFrom = rs.getString("entry_from");
-                rule.entryTill = rs.getString("entry_till");
-                return rule;
-            }
-        }
+        return EventRuleCache.get(eventId, location);
     }
 
     /* ================= ATTENDANCE ================= */
@@ -140,28 +88,9 @@ public class AttendanceRepository {
         }
     }
 
-    private static final String FETCH_LAST_ATTENDANCE_SQL = """
-                SELECT TOP 1 date_time
-                FROM trans
-                WHERE bsguid = ?
-                  AND event = ?
-                  AND location = ?
-                ORDER BY date_time DESC
-            """;
-
+    // answered from RecentTapWindow: only taps inside its window are reported
     public String fetchLastAttendanceTime(String bsguid, String eventName, String location) throws Exception {
-
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(FETCH_LAST_ATTENDANCE_SQL)) {
-
-            ps.setString(1, bsguid);
-            ps.setString(2, eventName);
-            ps.setString(3, location);
-
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getString("date_time") : null;
-            }
-        }
+        return RecentTapWindow.lastTap(bsguid, eventName, location);
     }
 
     private static final String INSERT_ATTENDANCE_SQL = """
@@ -176,10 +105,15 @@ public class AttendanceRepository {
                 ) VALUES (?, ?, ?, ?, ?, ?, ?)
             """;
 
+    // journaled; AttendanceJournal writes the row to trans in the background
     public void insertAttendance(AttendanceInsertRow row) throws Exception {
+        AttendanceJournal.appendEntry(row);
+        RecentTapWindow.recordEntry(row.bsguid, row.eventName, row.location, row.dateTime);
+    }
 
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(INSERT_ATTENDANCE_SQL)) {
+    static void insertAttendance(Connection conn, AttendanceInsertRow row) throws SQLException {
+
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_ATTENDANCE_SQL)) {
 
             ps.setString(1, row.cardUid);
             ps.setString(2, row.bsguid);
@@ -190,6 +124,7 @@ public class AttendanceRepository {
             ps.setInt(7, row.uploadStatus);
 
             ps.executeUpdate();
+            ChangeFeed.inserted(conn, "trans");
         }
     }
 
@@ -213,10 +148,14 @@ public class AttendanceRepository {
                 ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
 
+    // journaled; AttendanceJournal writes the row to Attendance_Denied in the background
     public void insertDeniedAttendance(DeniedAttendanceRow row) throws Exception {
+        AttendanceJournal.appendDenied(row);
+    }
 
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(INSERT_DENIED_SQL)) {
+    static void insertDeniedAttendance(Connection conn, DeniedAttendanceRow row) throws SQLException {
+
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_DENIED_SQL)) {
 
             ps.setString(1, row.cardUid);
             ps.setString(2, row.bsguid);
@@ -233,62 +172,123 @@ public class AttendanceRepository {
             ps.setInt(13, 0);
 
             ps.executeUpdate();
+            ChangeFeed.inserted(conn, "Attendance_Denied");
         }
     }
 
-    private static final String FIND_LATEST_ENTRY_ID_SQL = """
-            SELECT TOP 1 id, exit_time
-            FROM trans
-            WHERE bsguid = ?
-              AND event = ?
-              AND location = ?
-              AND date_time LIKE ?
-            ORDER BY date_time DESC
-            """;
-
-    public Integer findOpenEntryId(String bsguid, String eventName, String location, String datePrefix)
-            throws Exception {
-
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(FIND_LATEST_ENTRY_ID_SQL)) {
-
-            ps.setString(1, bsguid);
-            ps.setString(2, eventName);
-            ps.setString(3, location);
-            ps.setString(4, datePrefix + "%"); // yyyy-MM-dd%
+    public static DeniedAttendanceRow toDeniedRow(
+            AttendanceRequest req,
+            String reason,
+            ParticipantRow p,
+            EventLocationRule rule,
+            String attemptedTs) {
+
+        DeniedAttendanceRow d = new DeniedAttendanceRow();
+        d.cardUid = req.cardUid;
+        d.bsguid = (p == null) ? null : p.bsguid;
+        d.fullName = (p == null) ? null : p.fullName;
+        d.eventId = req.eventId;
+        d.eventName = req.eventName;
+        d.location = req.location;
+        d.attemptedDateTime = attemptedTs;
+        d.denialReason = reason;
+        d.participantType = (p == null) ? null : p.participationType;
+        d.entryFrom = (rule == null) ? null : rule.entryFrom;
+        d.entryTill = (rule == null) ? null : rule.entryTill;
+        d.createdAt = attemptedTs;
+        return d;
+    }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next())
-                    return null;
+    /* ================= ENTRY DECISION ================= */
 
-                String exitTime = rs.getString("exit_time");
-                if (exitTime != null && !exitTime.isBlank()) {
-                    // already exited
-                    return null;
-                }
+    /**
+     * Business rules applied to the participant, rule and last tap for the card.
+     * Participant, rule and last tap may each be null.
+     */
+    @FunctionalInterface
+    public interface EntryRules {
+        AttendanceDecision evaluate(ParticipantRow p, EventLocationRule rule, String lastAttendanceTs);
+    }
 
-                return rs.getInt("id");
+    // serialises check-then-record so two readers tapping the same card
+    // cannot both pass the duplicate check
+    private static final Object ENTRY_LOCK = new Object();
+
+    /**
+     * Lookup, rule, last-tap read and the resulting trans / Attendance_Denied
+     * record as one atomic step. Reads come from the in-memory index, rule cache
+     * and tap window; the write is acknowledged once it is in AttendanceJournal.
+     */
+    public AttendanceDecision recordEntry(AttendanceRequest req, String nowTs, EntryRules rules) throws Exception {
+
+        synchronized (ENTRY_LOCK) {
+            ParticipantRow p = ParticipantIndex.lookup(req.cardUid);
+            EventLocationRule rule = (p == null) ? null
+                    : EventRuleCache.get(req.eventId, req.location);
+            String lastTs = (p == null || rule == null) ? null
+                    : RecentTapWindow.lastTap(p.bsguid, req.eventName, req.location);
+
+            AttendanceDecision decision = rules.evaluate(p, rule, lastTs);
+            decision.participant = p;
+            decision.rule = rule;
+
+            if (decision.isAllowed()) {
+                AttendanceInsertRow row = new AttendanceInsertRow();
+                row.cardUid = req.cardUid;
+                row.bsguid = p.bsguid;
+                row.fullName = p.fullName;
+                row.dateTime = nowTs;
+                row.location = req.location;
+                row.eventName = req.eventName;
+                row.uploadStatus = 0;
+                insertAttendance(row);
+            } else {
+                insertDeniedAttendance(toDeniedRow(req, decision.denialReason, p, rule, nowTs));
             }
+            return decision;
         }
     }
 
-    private static final String UPDATE_EXIT_SQL = """
+    /**
+     * Closes today's open entry for the participant at this event/location.
+     * Returns false when there is no open entry (never entered, or already
+     * exited).
+     */
+    public boolean recordExit(String bsguid, String eventName, String location, String exitTs) throws Exception {
+
+        synchronized (ENTRY_LOCK) {
+            String entryTs = RecentTapWindow.claimOpenEntry(bsguid, eventName, location);
+            if (entryTs == null)
+                return false;
+            AttendanceJournal.appendExit(bsguid, eventName, location, entryTs, exitTs);
+            return true;
+        }
+    }
+
+    private static final String UPDATE_EXIT_BY_ENTRY_SQL = """
             UPDATE trans
             SET exit_time = ?,
                 exit_status = ?
-            WHERE id = ?
+            WHERE bsguid = ?
+              AND event = ?
+              AND location = ?
+              AND date_time = ?
             """;
 
-    public void updateExitTime(int id, String exitTs) throws Exception {
+    /** Exit update keyed by the entry row's columns (journal rows carry no id). */
+    static int applyExit(Connection conn, String bsguid, String eventName, String location,
+            String entryTs, String exitTs) throws SQLException {
 
-        try (Connection conn = AccessDb.getConnection();
-                PreparedStatement ps = conn.prepareStatement(UPDATE_EXIT_SQL)) {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_EXIT_BY_ENTRY_SQL)) {
 
             ps.setString(1, exitTs);
             ps.setString(2, "1"); // exited
-            ps.setInt(3, id);
+            ps.setString(3, bsguid);
+            ps.setString(4, eventName);
+            ps.setString(5, location);
+            ps.setString(6, entryTs);
 
-            ps.executeUpdate();
+            return ps.executeUpdate();
         }
     }
 
@@ -0,0 +1,90 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import util.DebugLog;
+
+/**
+ * In-process notice that rows were written to a table, so the cloud sync can
+ * wait for work instead of polling for it.
+ *
+ * Inserts report their table through inserted(conn, table). On an
+ * auto-commit connection listeners hear about it at once; inside a
+ * transaction the notice is held until the transaction goes through
+ * commit(conn) (and dropped by rollback(conn)), so nobody looks for rows
+ * that are not visible yet. Listeners run on the writing thread and must
+ * be quick.
+ */
+public final class ChangeFeed {
+
+    private ChangeFeed() {
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void changed(String table);
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // tables written per open transaction
+    private static final Map<Connection, Set<String>> uncommitted = new IdentityHashMap<>();
+
+    public static void subscribe(Listener l) {
+        if (!listeners.contains(l))
+            listeners.add(l);
+    }
+
+    public static void unsubscribe(Listener l) {
+        listeners.remove(l);
+    }
+
+    /* ================= WRITERS ================= */
+
+    /** A row was written to {@code table} on {@code conn}. */
+    static void inserted(Connection conn, String table) throws SQLException {
+        if (conn.getAutoCommit()) {
+            publish(table);
+            return;
+        }
+        synchronized (uncommitted) {
+            uncommitted.computeIfAbsent(conn, k -> new LinkedHashSet<>()).add(table);
+        }
+    }
+
+    /** Commits {@code conn} and publishes what its transaction wrote. */
+    static void commit(Connection conn) throws SQLException {
+        conn.commit();
+        Set<String> tables;
+        synchronized (uncommitted) {
+            tables = uncommitted.remove(conn);
+        }
+        if (tables != null)
+            tables.forEach(ChangeFeed::publish);
+    }
+
+    /** Rolls {@code conn} back; its writes are not published. */
+    static void rollback(Connection conn) throws SQLException {
+        synchronized (uncommitted) {
+            uncommitted.remove(conn);
+        }
+        conn.rollback();
+    }
+
+    /** Tell listeners that {@code table} has new rows. */
+    public static void publish(String table) {
+        for (Listener l : listeners) {
+            try {
+                l.changed(table);
+            } catch (RuntimeException ex) {
+                DebugLog.ex(ex, "[ChangeFeed] listener failed for %s", table);
+            }
+        }
+    }
+}
@@ -1,20 +1,16 @@
 package repository;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
 import db.AccessDb;
+import dto.DeniedUploadRow;
 import util.DebugLog;
 
 public class CloudSyncDeniedRepository {
@@ -23,51 +19,65 @@ public class CloudSyncDeniedRepository {
 
     public static final String alter_table_sql = "ALTER TABLE [Attendance_Denied] ADD COLUMN [uploadstatus] INTEGER DEFAULT 0";
 
-    public static final String fetch_table_sql = """
-            SELECT *
-            FROM [Attendance_Denied]
-            WHERE uploadstatus = 0
-            ORDER BY attempted_date_time ASC
-            """;
+    private static volatile boolean columnChecked = false;
 
-    /* ================= FETCH PENDING DENIED ================= */
+    /* ================= STREAM PENDING ================= */
 
-    public static List<Map<String, Object>> fetchPendingDeniedUploads()
-            throws SQLException {
+    /**
+     * Writes up to {@code limit} pending rows with id > {@code afterId} to
+     * the body opened by {@code body} (see PendingUploads). The returned
+     * batch's lastId is the cursor for the next call; an empty batch means
+     * the pass is done.
+     */
+    public static PendingUploads.Batch streamPendingDeniedUploads(long afterId, int limit,
+            PendingUploads.BodyOpener body) throws SQLException, IOException {
+        ensureColumn();
+        return PendingUploads.stream(name, afterId, limit, CloudSyncDeniedRepository::readRow, body);
+    }
 
-        List<Map<String, Object>> out = new ArrayList<>();
+    // Attendance_Denied row -> upload DTO
+    private static DeniedUploadRow readRow(ResultSet rs, ResultSetMetaData meta) throws SQLException {
+        DeniedUploadRow r = new DeniedUploadRow();
+        r.id = rs.getInt("id");
+        r.cardUid = rs.getString("carduid");
+        r.bsguid = rs.getString("bsguid");
+        r.fullName = rs.getString("full_name");
+        r.eventId = (Integer) rs.getObject("event_id");
+        r.eventName = rs.getString("event_name");
+        r.location = rs.getString("location");
+        r.attemptedDateTime = rs.getString("attempted_date_time");
+        r.denialReason = rs.getString("denial_reason");
+        r.participantType = rs.getString("participant_type");
+        r.entryFrom = rs.getString("entry_from");
+        r.entryTill = rs.getString("entry_till");
+        r.createdAt = rs.getString("created_at");
+        r.uploadStatus = (Integer) rs.getObject("uploadstatus");
+        return r;
+    }
 
-        try (Connection c = AccessDb.getConnection()) {
+    /* ================= MARK UPLOADED ================= */
 
-            boolean uploadStatusExists = ensureUploadStatusColumn(c);
+    public static void markUploadedExceptFailed(PendingUploads.Batch sent, Set<String> failedCardUids)
+            throws SQLException {
+        PendingUploads.markUploaded(name, sent, failedCardUids);
+    }
 
-            if (!uploadStatusExists) {
+    /* ================= ENSURE uploadstatus COLUMN ================= */
+
+    private static void ensureColumn() throws SQLException {
+        if (columnChecked)
+            return;
+        try (Connection c = AccessDb.getConnection()) {
+            if (!ensureUploadStatusColumn(c)) {
                 try (Statement st = c.createStatement()) {
                     st.executeUpdate(alter_table_sql);
                 }
                 DebugLog.d("Attendance_Denied.uploadstatus column created with default=0");
             }
-
-            try (PreparedStatement ps = c.prepareStatement(fetch_table_sql);
-                    ResultSet rs = ps.executeQuery()) {
-
-                ResultSetMetaData meta = rs.getMetaData();
-                int colCount = meta.getColumnCount();
-
-                while (rs.next()) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= colCount; i++) {
-                        row.put(meta.getColumnName(i), rs.getObject(i));
-                    }
-                    out.add(row);
-                }
-            }
         }
-        return out;
+        columnChecked = true;
     }
 
-    /* ================= ENSURE uploadstatus COLUMN ================= */
-
     private static boolean ensureUploadStatusColumn(Connection c)
             throws SQLException {
 
@@ -89,49 +99,4 @@ public class CloudSyncDeniedRepository {
         }
         return exists;
     }
-
-    /* ================= MARK UPLOADED ================= */
-
-    public static void markUploadedExceptFailed(
-            List<Map<String, Object>> sentRows,
-            Set<String> failedCardUids)
-            throws SQLException {
-
-        if (sentRows == null || sentRows.isEmpty())
-            return;
-
-        try (Connection c = AccessDb.getConnection()) {
-
-            c.setAutoCommit(false);
-
-            String sql = """
-                    UPDATE [Attendance_Denied]
-                    SET uploadstatus = 1
-                    WHERE id = ?
-                    """;
-
-            try (PreparedStatement ps = c.prepareStatement(sql)) {
-
-                for (Map<String, Object> row : sentRows) {
-
-                    Object idObj = row.get("id");
-                    String carduid = Objects.toString(row.get("carduid"), null);
-
-                    if (idObj == null)
-                        continue;
-
-                    // if API says failed for this carduid, skip marking uploaded
-                    if (carduid != null && failedCardUids.contains(carduid))
-                        continue;
-
-                    ps.setInt(1, ((Number) idObj).intValue());
-                    ps.addBatch();
-                }
-
-                ps.executeBatch();
-            }
-
-            c.commit();
-        }
-    }
 }
@@ -1,20 +1,16 @@
 package repository;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
 import db.AccessDb;
+import dto.TransUploadRow;
 import util.DebugLog;
 
 public class CloudSyncRepository {
@@ -22,46 +18,61 @@ public class CloudSyncRepository {
 
     public static final String alter_table_sql = "ALTER TABLE [trans] ADD COLUMN [uploadstatus] INTEGER DEFAULT 0";
 
-    public static final String fetch_table_sql = """
-            SELECT *
-            FROM [trans]
-            WHERE uploadstatus = 0
-            ORDER BY date_time ASC
-            """;
+    private static volatile boolean columnChecked = false;
 
-    public static List<Map<String, Object>> fetchPendingTransUploads() throws SQLException {
+    /* ================= STREAM PENDING ================= */
 
-        List<Map<String, Object>> out = new ArrayList<>();
+    /**
+     * Writes up to {@code limit} pending rows with id > {@code afterId} to
+     * the body opened by {@code body} (see PendingUploads). The returned
+     * batch's lastId is the cursor for the next call; an empty batch means
+     * the pass is done.
+     */
+    public static PendingUploads.Batch streamPendingTransUploads(long afterId, int limit,
+            PendingUploads.BodyOpener body) throws SQLException, IOException {
+        ensureColumn();
+        return PendingUploads.stream(name, afterId, limit, CloudSyncRepository::readRow, body);
+    }
 
-        try (Connection c = AccessDb.getConnection()) {
+    // trans row -> upload DTO
+    private static TransUploadRow readRow(ResultSet rs, ResultSetMetaData meta) throws SQLException {
+        TransUploadRow r = new TransUploadRow();
+        r.id = rs.getInt("id");
+        r.cardUid = rs.getString("carduid");
+        r.bsguid = rs.getString("bsguid");
+        r.fullName = rs.getString("fullname");
+        r.dateTime = rs.getString("date_time");
+        r.location = rs.getString("location");
+        r.event = rs.getString("event");
+        r.uploadStatus = (Integer) rs.getObject("uploadstatus");
+        if (PendingUploads.hasColumn(meta, "exit_time"))
+            r.exitTime = rs.getString("exit_time");
+        if (PendingUploads.hasColumn(meta, "exit_status"))
+            r.exitStatus = rs.getString("exit_status");
+        return r;
+    }
 
-            boolean uploadstatusexists = ensureUploadStatusColumn(c);
-            if (!uploadstatusexists) {
-                try (Statement st = c.createStatement()) {
-                    st.executeUpdate(
-                            "ALTER TABLE [trans] ADD COLUMN [uploadstatus] INTEGER DEFAULT 0");
-                }
-                DebugLog.d("uploadstatus column created with default=0");
-            }
+    /* ================= MARK UPLOADED ================= */
 
-            try (PreparedStatement ps = c.prepareStatement(fetch_table_sql);
-                    ResultSet rs = ps.executeQuery()) {
+    public static void markUploadedExceptFailed(PendingUploads.Batch sent, Set<String> failedCardUids)
+            throws SQLException {
+        PendingUploads.markUploaded(name, sent, failedCardUids);
+    }
 
-                ResultSetMetaData meta = rs.getMetaData();
-                int colCount = meta.getColumnCount();
+    /* ================= ENSURE uploadstatus COLUMN ================= */
 
-                while (rs.next()) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= colCount; i++) {
-                        row.put(meta.getColumnName(i), rs.getObject(i));
-                    }
-                    out.add(row);
+    private static void ensureColumn() throws SQLException {
+        if (columnChecked)
+            return;
+        try (Connection c = AccessDb.getConnection()) {
+            if (!ensureUploadStatusColumn(c)) {
+                try (Statement st = c.createStatement()) {
+                    st.executeUpdate(alter_table_sql);
                 }
+                DebugLog.d("uploadstatus column created with default=0");
             }
-
         }
-
-        return out;
+        columnChecked = true;
     }
 
     private static boolean ensureUploadStatusColumn(Connection c) throws SQLException {
@@ -83,43 +94,4 @@ public class CloudSyncRepository {
         }
         return exists;
     }
-
-    public static void markUploadedExceptFailed(
-            List<Map<String, Object>> sentRows,
-            Set<String> failedCardUids) throws SQLException {
-
-        if (sentRows == null || sentRows.isEmpty())
-            return;
-
-        try (Connection c = AccessDb.getConnection()) {
-            c.setAutoCommit(false);
-
-            String sql = """
-                    UPDATE [trans]
-                    SET uploadstatus = 1
-                    WHERE carduid = ? AND date_time = ?
-                    """;
-
-            try (PreparedStatement ps = c.prepareStatement(sql)) {
-
-                for (Map<String, Object> row : sentRows) {
-
-                    String carduid = Objects.toString(row.get("carduid"), null);
-                    String dateTime = Objects.toString(row.get("date_time"), null);
-
-                    if (carduid == null || dateTime == null)
-                        continue;
-
-                    if (failedCardUids.contains(carduid))
-                        continue;
-
-                    ps.setString(1, carduid);
-                    ps.setString(2, dateTime);
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-            }
-            c.commit();
-        }
-    }
 }
@@ -73,6 +73,9 @@ public class EventFormRepository {
 
             conn.commit();
         }
+
+        // gate rules changed; next lookup recompiles them
+        EventRuleCache.invalidate();
     }
 
     /* ================== PRIVATE HELPERS ================== */
@@ -0,0 +1,113 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import db.AccessDb;
+import dto.EventLocationRule;
+import util.DebugLog;
+
+/**
+ * Compiled Event_Locations rules keyed by eventId + location.
+ *
+ * Loaded together with the event list (AttendanceRepository.fetchAllEvents)
+ * and dropped whenever EventFormRepository saves an event, so gate checks
+ * read rules from memory only.
+ */
+public final class EventRuleCache {
+
+    private EventRuleCache() {
+    }
+
+    private static final String LOAD_ALL_RULES_SQL = """
+                SELECT
+                    event_id,
+                    location_name,
+                    allowed_participant_types,
+                    entry_from,
+                    entry_till
+                FROM Event_Locations
+            """;
+
+    private static final Object LOCK = new Object();
+
+    private static volatile Map<String, EventLocationRule> rules = new ConcurrentHashMap<>();
+    private static volatile boolean loaded = false;
+    private static long generation = 0; // bumped by invalidate(); guarded by LOCK
+
+    private static String key(int eventId, String location) {
+        return eventId + "|" + location.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Rule for the event/location, or null. Loads through {@code conn} if cold. */
+    public static EventLocationRule get(Connection conn, int eventId, String location) throws SQLException {
+        if (location == null)
+            return null;
+        if (!loaded) {
+            synchronized (LOCK) {
+                if (!loaded)
+                    reload(conn);
+            }
+        }
+        return rules.get(key(eventId, location));
+    }
+
+    public static EventLocationRule get(int eventId, String location) throws SQLException {
+        if (loaded)
+            return location == null ? null : rules.get(key(eventId, location));
+        try (Connection conn = AccessDb.getConnection()) {
+            return get(conn, eventId, location);
+        }
+    }
+
+    public static void reload(Connection conn) throws SQLException {
+        long startGen;
+        synchronized (LOCK) {
+            startGen = generation;
+        }
+        Map<String, EventLocationRule> fresh = new ConcurrentHashMap<>();
+
+        try (PreparedStatement ps = conn.prepareStatement(LOAD_ALL_RULES_SQL);
+                ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                String location = rs.getString("location_name");
+                if (location == null || location.isBlank())
+                    continue;
+
+                EventLocationRule rule = new EventLocationRule();
+                rule.locationName = location;
+                rule.allowedParticipantTypes = rs.getString("allowed_participant_types");
+                rule.entryFrom = rs.getString("entry_from");
+                rule.entryTill = rs.getString("entry_till");
+
+                // first row wins, matching the old single-row lookup
+                fresh.putIfAbsent(key(rs.getInt("event_id"), location), rule.compile());
+            }
+        }
+
+        synchronized (LOCK) {
+            // an event saved while we were reading: this snapshot may predate it
+            if (generation != startGen) {
+                DebugLog.d("[EventRuleCache] invalidated during load; dropping %d rule(s)", fresh.size());
+                return;
+            }
+            rules = fresh;
+            loaded = true;
+        }
+        DebugLog.d("[EventRuleCache] loaded %d rule(s)", fresh.size());
+    }
+
+    /** Forget everything; the next lookup reloads from Event_Locations. */
+    public static void invalidate() {
+        synchronized (LOCK) {
+            generation++;
+            loaded = false;
+        }
+    }
+}
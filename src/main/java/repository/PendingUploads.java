@@ -0,0 +1,144 @@
+package repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import db.AccessDb;
+import dto.UploadRow;
+import util.Json;
+
+/**
+ * Pending (uploadstatus = 0) rows of a sync table, a batch at a time.
+ *
+ * Batches are pages by id: each one starts after the highest id of the
+ * previous one (the cursor), so rows the server rejected do not come back in
+ * the same pass and a pass over N pending rows is N / limit queries. Each row
+ * is read into its upload DTO and written to the request body as soon as it
+ * comes off the ResultSet (a JSON array through the shared mapper); only
+ * ids and card UIDs are kept, for marking the rows uploaded.
+ */
+public final class PendingUploads {
+
+    private PendingUploads() {
+    }
+
+    /** Opens the request body; only called when the batch has rows. */
+    @FunctionalInterface
+    public interface BodyOpener {
+        OutputStream open() throws IOException;
+    }
+
+    /** Reads the current row into its upload DTO. */
+    @FunctionalInterface
+    public interface RowReader<T extends UploadRow> {
+        T read(ResultSet rs, ResultSetMetaData meta) throws SQLException;
+    }
+
+    /** What one batch sent. */
+    public static final class Batch {
+        public int rows;
+        public long lastId; // cursor for the next batch
+        long[] ids = new long[0];
+        String[] cardUids = new String[0];
+    }
+
+    /**
+     * Streams up to {@code limit} pending rows with id > {@code afterId}, in id
+     * order, as a JSON array of {@code reader}'s DTOs. With no such rows the
+     * body is never opened and the batch is empty.
+     */
+    static <T extends UploadRow> Batch stream(String table, long afterId, int limit, RowReader<T> reader,
+            BodyOpener body) throws SQLException, IOException {
+        String sql = "SELECT TOP " + limit + " * FROM [" + table + "]"
+                + " WHERE uploadstatus = 0 AND id > ? ORDER BY id ASC";
+        Batch b = new Batch();
+        b.lastId = afterId;
+        b.ids = new long[limit];
+        b.cardUids = new String[limit];
+
+        try (Connection c = AccessDb.getConnection();
+                PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, afterId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return trim(b);
+
+                ResultSetMetaData meta = rs.getMetaData();
+                try (OutputStream os = body.open();
+                        JsonGenerator gen = Json.MAPPER.createGenerator(os, JsonEncoding.UTF8)) {
+                    gen.writeStartArray();
+                    do {
+                        T row = reader.read(rs, meta);
+                        gen.writeObject(row);
+
+                        b.ids[b.rows] = row.id;
+                        b.cardUids[b.rows] = row.cardUid;
+                        b.lastId = Math.max(b.lastId, row.id);
+                        b.rows++;
+                    } while (b.rows < limit && rs.next());
+                    gen.writeEndArray();
+                }
+            }
+        }
+        return trim(b);
+    }
+
+    /** uploadstatus = 1 for the batch's rows, except those of failed card UIDs. */
+    static void markUploaded(String table, Batch b, Set<String> failedCardUids) throws SQLException {
+        long[] ids = toMark(b, failedCardUids);
+        if (ids.length == 0) // an empty batch is an error in UCanAccess
+            return;
+        try (Connection c = AccessDb.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "UPDATE [" + table + "] SET uploadstatus = 1 WHERE id = ?")) {
+                for (long id : ids) {
+                    ps.setLong(1, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+    }
+
+    /** Ids of the batch's rows that were taken: all but those of failed card UIDs. */
+    static long[] toMark(Batch b, Set<String> failedCardUids) {
+        if (b == null || b.rows == 0)
+            return new long[0];
+        long[] ids = new long[b.rows];
+        int n = 0;
+        for (int i = 0; i < b.rows; i++) {
+            String uid = b.cardUids[i];
+            if (uid != null && failedCardUids != null && failedCardUids.contains(uid))
+                continue;
+            ids[n++] = b.ids[i];
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    /** True when the result has column {@code name} (optional columns such as exit_time, exit_status). */
+    static boolean hasColumn(ResultSetMetaData meta, String name) throws SQLException {
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (meta.getColumnName(i).equalsIgnoreCase(name))
+                return true;
+        }
+        return false;
+    }
+
+    private static Batch trim(Batch b) {
+        b.ids = Arrays.copyOf(b.ids, b.rows);
+        b.cardUids = Arrays.copyOf(b.cardUids, b.rows);
+        return b;
+    }
+}
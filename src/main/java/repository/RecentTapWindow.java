@@ -0,0 +1,231 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import db.AccessDb;
+import util.DebugLog;
+
+/**
+ * Accepted taps kept in memory so the gate never has to query trans.
+ *
+ * Two views per (bsguid, event, location):
+ * - a ring of one-minute buckets covering the last WINDOW_MINUTES, used by the
+ * duplicate-tap guard;
+ * - today's latest entry (date_time + exit state), claimed by exits.
+ *
+ * Seeded from today's trans rows on first use; afterwards
+ * AttendanceRepository records every entry / exit as it is journaled, so the
+ * window runs ahead of the trans table while AttendanceJournal drains.
+ */
+final class RecentTapWindow {
+
+    private RecentTapWindow() {
+    }
+
+    /** Must cover the duplicate guard in AttendanceService (2 minutes). */
+    static final int WINDOW_MINUTES = 5;
+
+    private static final DateTimeFormatter DT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String SEED_TODAY_SQL = """
+                SELECT *
+                FROM trans
+                WHERE date_time LIKE ?
+            """;
+
+    /* ================= STATE (guarded by LOCK) ================= */
+
+    private static final class Bucket {
+        long minute = -1;
+        final Map<String, String> lastTs = new HashMap<>();
+    }
+
+    private static final class OpenEntry {
+        final String dateTime;
+        boolean exited;
+
+        OpenEntry(String dateTime, boolean exited) {
+            this.dateTime = dateTime;
+            this.exited = exited;
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    private static final Bucket[] ring = new Bucket[WINDOW_MINUTES];
+    static {
+        for (int i = 0; i < ring.length; i++)
+            ring[i] = new Bucket();
+    }
+
+    private static LocalDate day = null;
+    private static final Map<String, OpenEntry> latestToday = new HashMap<>();
+    private static volatile boolean seeded = false;
+
+    private static String key(String bsguid, String eventName, String location) {
+        return bsguid + "|" + eventName + "|" + location;
+    }
+
+    private static long epochMinute(LocalDateTime t) {
+        return t.toLocalDate().toEpochDay() * 1440 + t.getHour() * 60 + t.getMinute();
+    }
+
+    /* ================= READS ================= */
+
+    static String lastTap(String bsguid, String eventName, String location) throws SQLException {
+        if (!seeded) {
+            try (Connection conn = AccessDb.getConnection()) {
+                return lastTap(conn, bsguid, eventName, location);
+            }
+        }
+        return lastTap(null, bsguid, eventName, location);
+    }
+
+    /**
+     * Latest accepted tap inside the window, or null. Older taps are not
+     * reported; they cannot trip the duplicate guard anyway.
+     */
+    static String lastTap(Connection conn, String bsguid, String eventName, String location) throws SQLException {
+        if (bsguid == null)
+            return null; // trans lookups by NULL bsguid never matched
+        ensureSeeded(conn);
+
+        String k = key(bsguid, eventName, location);
+        long nowMin = epochMinute(LocalDateTime.now());
+        String best = null;
+        synchronized (LOCK) {
+            for (Bucket b : ring) {
+                if (b.minute <= nowMin - WINDOW_MINUTES || b.minute > nowMin)
+                    continue;
+                String ts = b.lastTs.get(k);
+                if (ts != null && (best == null || ts.compareTo(best) > 0))
+                    best = ts;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Claims today's open entry for an exit: returns its date_time and marks it
+     * exited, or null when there is no open entry.
+     */
+    static String claimOpenEntry(String bsguid, String eventName, String location) throws SQLException {
+        if (bsguid == null)
+            return null;
+        if (!seeded) {
+            try (Connection conn = AccessDb.getConnection()) {
+                ensureSeeded(conn);
+            }
+        }
+        synchronized (LOCK) {
+            rollDay();
+            OpenEntry e = latestToday.get(key(bsguid, eventName, location));
+            if (e == null || e.exited)
+                return null;
+            e.exited = true;
+            return e.dateTime;
+        }
+    }
+
+    /* ================= WRITES ================= */
+
+    static void recordEntry(String bsguid, String eventName, String location, String dateTime) {
+        if (bsguid == null)
+            return;
+        synchronized (LOCK) {
+            rollDay();
+            put(key(bsguid, eventName, location), dateTime, false);
+        }
+    }
+
+    static void markExited(String bsguid, String eventName, String location, String entryDateTime) {
+        if (bsguid == null)
+            return;
+        synchronized (LOCK) {
+            OpenEntry e = latestToday.get(key(bsguid, eventName, location));
+            if (e != null && e.dateTime.equals(entryDateTime))
+                e.exited = true;
+        }
+    }
+
+    /* ================= SEEDING ================= */
+
+    static void ensureSeeded(Connection conn) throws SQLException {
+        synchronized (LOCK) {
+            if (seeded)
+                return;
+
+            String today = LocalDate.now().toString();
+            int n = 0;
+            try (PreparedStatement ps = conn.prepareStatement(SEED_TODAY_SQL)) {
+                ps.setString(1, today + "%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    // older databases have no exit columns yet
+                    boolean hasExit = hasColumn(rs.getMetaData(), "exit_time");
+                    rollDay();
+                    while (rs.next()) {
+                        String bsguid = rs.getString("bsguid");
+                        String dt = rs.getString("date_time");
+                        if (bsguid == null || dt == null)
+                            continue;
+                        String exit = hasExit ? rs.getString("exit_time") : null;
+                        put(key(bsguid, rs.getString("event"), rs.getString("location")),
+                                dt, exit != null && !exit.isBlank());
+                        n++;
+                    }
+                }
+            }
+            seeded = true;
+            DebugLog.d("[RecentTapWindow] seeded from %d trans row(s) for %s", n, today);
+        }
+    }
+
+    private static boolean hasColumn(ResultSetMetaData md, String name) throws SQLException {
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            if (name.equalsIgnoreCase(md.getColumnLabel(i)))
+                return true;
+        }
+        return false;
+    }
+
+    // caller holds LOCK
+    private static void put(String k, String dateTime, boolean exited) {
+        OpenEntry prev = latestToday.get(k);
+        if (prev == null || dateTime.compareTo(prev.dateTime) >= 0)
+            latestToday.put(k, new OpenEntry(dateTime, exited));
+
+        LocalDateTime t;
+        try {
+            t = LocalDateTime.parse(dateTime, DT_FMT);
+        } catch (Exception ex) {
+            return;
+        }
+        long minute = epochMinute(t);
+        if (minute <= epochMinute(LocalDateTime.now()) - WINDOW_MINUTES)
+            return;
+
+        Bucket b = ring[(int) Math.floorMod(minute, (long) WINDOW_MINUTES)];
+        if (b.minute != minute) {
+            b.minute = minute;
+            b.lastTs.clear();
+        }
+        b.lastTs.merge(k, dateTime, (a, c) -> a.compareTo(c) >= 0 ? a : c);
+    }
+
+    // caller holds LOCK
+    private static void rollDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(day)) {
+            day = today;
+            latestToday.clear();
+        }
+    }
+}
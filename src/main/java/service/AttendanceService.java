@@ -52,89 +52,77 @@ public class AttendanceService {
                 return AttendanceResult.denied("Location not selected");
             }
 
-            /* ---------- PARTICIPANT LOOKUP (ONLY BY CARDUID) ---------- */
+            /* ---------- LOOKUP + RULES + RECORD (ATOMIC, JOURNALED) ---------- */
 
-            System.out.println("[AttendanceService] Fetching participant by cardUid=" + req.cardUid);
-            ParticipantRow p = repo.findParticipantByCardUid(req.cardUid);
-
-            if (p == null) {
-                System.out.println("[AttendanceService] No participant mapped to cardUid");
-                deny(req, DenialReason.PARTICIPANT_NOT_FOUND, null, null);
-                return AttendanceResult.denied("Participant not found");
-            }
-
-            System.out.println("[AttendanceService] Participant found: "
-                    + p.fullName + " | " + p.bsguid + " | " + p.participationType);
-
-            /* ---------- EVENT LOCATION RULE ---------- */
-
-            EventLocationRule rule = repo.findEventLocationRule(req.eventId, req.location);
+            AttendanceDecision d = repo.recordEntry(req, nowTs,
+                    (p, rule, lastTs) -> evaluateEntry(now, p, rule, lastTs));
 
-            if (rule == null) {
-                deny(req, DenialReason.LOCATION_NOT_SELECTED, p, null);
-                return AttendanceResult.denied("Invalid location");
+            if (!d.isAllowed()) {
+                System.out.println("[AttendanceService] Attendance denied: " + d.denialReason);
+                return AttendanceResult.denied(d.message, d.participant);
             }
 
-            /* ---------- TIME WINDOW CHECK ---------- */
+            System.out.println("[AttendanceService] Attendance marked successfully for "
+                    + d.participant.fullName + " | " + d.participant.bsguid);
+            return AttendanceResult.success(d.participant);
 
-            LocalTime nowTime = now.toLocalTime();
-            LocalTime from = LocalTime.parse(rule.entryFrom);
-            LocalTime till = LocalTime.parse(rule.entryTill);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            deny(req, DenialReason.INTERNAL_ERROR, null, null);
+            return AttendanceResult.denied("Internal error");
+        }
+    }
 
-            if (nowTime.isBefore(from) || nowTime.isAfter(till)) {
-                deny(req, DenialReason.TIME_WINDOW_VIOLATION, p, rule);
-                return AttendanceResult.denied(
-                        "Allowed between " + from + " and " + till);
-            }
+    /* ================= ENTRY RULES ================= */
 
-            /* ---------- PARTICIPANT TYPE CHECK ---------- */
+    private AttendanceDecision evaluateEntry(
+            LocalDateTime now,
+            ParticipantRow p,
+            EventLocationRule rule,
+            String lastTs) {
 
-            Set<String> allowedTypes = new HashSet<>();
-            for (String t : rule.allowedParticipantTypes.split(",")) {
-                allowedTypes.add(t.trim().toLowerCase());
-            }
+        if (p == null) {
+            System.out.println("[AttendanceService] No participant mapped to cardUid");
+            return AttendanceDecision.deny(DenialReason.PARTICIPANT_NOT_FOUND, "Participant not found");
+        }
 
-            String participantType = p.participationType == null ? "" : p.participationType.trim().toLowerCase();
+        if (rule == null) {
+            return AttendanceDecision.deny(DenialReason.LOCATION_NOT_SELECTED, "Invalid location");
+        }
 
-            if (!allowedTypes.contains(participantType)) {
-                deny(req, DenialReason.PARTICIPANT_TYPE_MISMATCH, p, rule);
-                return AttendanceResult.denied("Type not allowed");
-            }
+        /* ---------- TIME WINDOW CHECK ---------- */
 
-            /* ---------- DUPLICATE CHECK ---------- */
+        if (rule.from == null || rule.till == null) {
+            throw new IllegalStateException("Unparseable entry window '" + rule.entryFrom
+                    + "' - '" + rule.entryTill + "' for location " + rule.locationName);
+        }
 
-            String lastTs = repo.fetchLastAttendanceTime(p.bsguid, req.eventName, req.location);
+        LocalTime nowTime = now.toLocalTime();
 
-            if (lastTs != null) {
-                LocalDateTime last = LocalDateTime.parse(lastTs, DT_FMT);
-                if (Duration.between(last, now).toMinutes() < 2) {
-                    deny(req, DenialReason.DUPLICATE_ATTENDANCE, p, rule);
-                    return AttendanceResult.denied(
-                            "Attendance already marked recently");
-                }
-            }
+        if (nowTime.isBefore(rule.from) || nowTime.isAfter(rule.till)) {
+            return AttendanceDecision.deny(DenialReason.TIME_WINDOW_VIOLATION,
+                    "Allowed between " + rule.from + " and " + rule.till);
+        }
 
-            /* ---------- SUCCESS INSERT ---------- */
+        /* ---------- PARTICIPANT TYPE CHECK ---------- */
 
-            AttendanceInsertRow row = new AttendanceInsertRow();
-            row.cardUid = req.cardUid;
-            row.bsguid = p.bsguid;
-            row.fullName = p.fullName;
-            row.dateTime = nowTs;
-            row.location = req.location;
-            row.eventName = req.eventName;
-            row.uploadStatus = 0;
+        String participantType = p.participationType == null ? "" : p.participationType.trim().toLowerCase();
 
-            repo.insertAttendance(row);
+        if (!rule.allowedTypes.contains(participantType)) {
+            return AttendanceDecision.deny(DenialReason.PARTICIPANT_TYPE_MISMATCH, "Type not allowed");
+        }
 
-            System.out.println("[AttendanceService] Attendance marked successfully");
-            return AttendanceResult.success();
+        /* ---------- DUPLICATE CHECK ---------- */
 
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            deny(req, DenialReason.INTERNAL_ERROR, null, null);
-            return AttendanceResult.denied("Internal error");
+        if (lastTs != null) {
+            LocalDateTime last = LocalDateTime.parse(lastTs, DT_FMT);
+            if (Duration.between(last, now).toMinutes() < 2) {
+                return AttendanceDecision.deny(DenialReason.DUPLICATE_ATTENDANCE,
+                        "Attendance already marked recently");
+            }
         }
+
+        return AttendanceDecision.allow();
     }
 
     /* ================= DENIAL HANDLER ================= */
@@ -146,20 +134,8 @@ public class AttendanceService {
             EventLocationRule rule) {
 
         try {
-            DeniedAttendanceRow d = new DeniedAttendanceRow();
-            d.cardUid = req.cardUid;
-            d.bsguid = (p == null) ? null : p.bsguid;
-            d.fullName = (p == null) ? null : p.fullName;
-            d.eventId = req.eventId;
-            d.eventName = req.eventName;
-            d.location = req.location;
-            d.attemptedDateTime = LocalDateTime.now().format(DT_FMT);
-            d.denialReason = reason;
-            d.participantType = (p == null) ? null : p.participationType;
-            d.entryFrom = (rule == null) ? null : rule.entryFrom;
-            d.entryTill = (rule == null) ? null : rule.entryTill;
-            d.createdAt = d.attemptedDateTime;
-
+            DeniedAttendanceRow d = AttendanceRepository.toDeniedRow(
+                    req, reason, p, rule, LocalDateTime.now().format(DT_FMT));
             repo.insertDeniedAttendance(d);
 
         } catch (Exception e) {
@@ -220,23 +196,22 @@ public class AttendanceService {
             EventLocationRule rule = repo.findEventLocationRule(req.eventId, req.location);
             if (rule == null) {
                 deny(req, DenialReason.LOCATION_NOT_SELECTED, p, null);
-                return AttendanceResult.denied("Invalid location");
+                return AttendanceResult.denied("Invalid location", p);
             }
 
-            // find today's latest entry row where exit is not done
-            Integer openId = repo.findOpenEntryId(
+            // close today's latest entry row where exit is not done
+            boolean closed = repo.recordExit(
                     p.bsguid,
                     req.eventName,
                     req.location,
-                    LocalDate.now().toString());
+                    nowTs);
 
-            if (openId == null) {
+            if (!closed) {
                 deny(req, DenialReason.EXIT_WITHOUT_ENTRY, p, rule);
-                return AttendanceResult.denied("No open entry found / already exited");
+                return AttendanceResult.denied("No open entry found / already exited", p);
             }
 
-            repo.updateExitTime(openId, nowTs);
-            return AttendanceResult.success();
+            return AttendanceResult.success(p);
 
         } catch (Exception ex) {
             ex.printStackTrace();
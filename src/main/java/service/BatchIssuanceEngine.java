@@ -0,0 +1,325 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import db.AccessDb;
+import nfc.CardEventDispatcher;
+import nfc.CardPayloadCodec;
+import nfc.ReadProfile;
+import nfc.ReaderSession;
+import nfc.SmartMifareReader;
+import nfc.SmartMifareWriter;
+import nfc.VerifyPolicy;
+import util.DebugLog;
+
+/**
+ * Issues cards for a list of participants (BatchFilterDialog rows) without
+ * a click per card: present a card, it is written, take it off, present the
+ * next one.
+ *
+ * Payloads are encoded up front. The database commit for card N
+ * (AccessDb.insertAttendee) runs on its own thread while the operator swaps
+ * cards and card N+1 is written; at most one commit is in flight, and a
+ * failed commit stops the batch at that record.
+ *
+ * position() is the first record not yet committed, so a stopped or failed
+ * batch continues with start(position()). Card events are suspended while
+ * the engine runs.
+ */
+public final class BatchIssuanceEngine {
+
+    static final long WAIT_SLICE_MS = 250;
+
+    /** Snapshot handed to the listener. */
+    public static final class Progress {
+        public int position; // next record to issue
+        public int total;
+        public int issued; // committed since start()
+        public int skipped;
+        public double cardsPerMin;
+        public String lastUid;
+        public String lastName;
+        public String message;
+        public boolean running;
+        public boolean failed;
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(Progress p);
+    }
+
+    private static final class Item {
+        final Map<String, String> data; // insertAttendee keys
+        final byte[] payload;
+        final String label;
+
+        Item(Map<String, String> row) {
+            String[] fields = CardPayloadCodec.fieldsOf(row);
+            this.data = new LinkedHashMap<>();
+            for (int i = 0; i < fields.length; i++)
+                data.put(CardPayloadCodec.FIELDS.get(i), fields[i]);
+            this.payload = CardPayloadCodec.encode(fields);
+            this.label = CardPayloadCodec.toDisplay(fields);
+        }
+    }
+
+    private final List<Item> items;
+    private final Listener listener;
+    private final VerifyPolicy verify;
+
+    private final Object lock = new Object();
+    private Thread worker = null; // guarded by lock
+    private volatile boolean stopRequested = false;
+    private volatile boolean skipRequested = false;
+    private volatile int position = 0;
+
+    private int issued;
+    private int skipped;
+    private long startedAt;
+    private String lastUid;
+    private String lastName;
+
+    public BatchIssuanceEngine(List<Map<String, String>> rows, Listener listener) {
+        this(rows, listener, VerifyPolicy.FULL_READBACK);
+    }
+
+    public BatchIssuanceEngine(List<Map<String, String>> rows, Listener listener, VerifyPolicy verify) {
+        this.items = new ArrayList<>(rows == null ? 0 : rows.size());
+        if (rows != null) {
+            for (Map<String, String> row : rows)
+                items.add(new Item(row));
+        }
+        this.listener = listener;
+        this.verify = verify == null ? VerifyPolicy.FULL_READBACK : verify;
+    }
+
+    public int total() {
+        return items.size();
+    }
+
+    /** First record not yet committed. */
+    public int position() {
+        return position;
+    }
+
+    /** Insert-ready field map of record i (the keys EntryForm uses). */
+    public Map<String, String> record(int i) {
+        return items.get(i).data;
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return worker != null;
+        }
+    }
+
+    /* ================= CONTROL ================= */
+
+    /** Issue records from {@code from} onwards on a background thread. */
+    public void start(int from) {
+        synchronized (lock) {
+            if (worker != null)
+                return;
+            position = Math.max(0, Math.min(from, items.size()));
+            stopRequested = false;
+            skipRequested = false;
+            issued = 0;
+            skipped = 0;
+            startedAt = System.nanoTime();
+            worker = new Thread(this::run, "batch-issuance");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /** Stop after the card in hand (if any) is written and committed. */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** Leave the record waiting for a card out and move to the next. */
+    public void skip() {
+        skipRequested = true;
+    }
+
+    /* ================= LOOP ================= */
+
+    private void run() {
+        ExecutorService dbThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "batch-issuance-db");
+            t.setDaemon(true);
+            return t;
+        });
+        CardEventDispatcher.suspend();
+        Future<?> pending = null;
+        int pendingIndex = -1;
+        String failure = null;
+        try {
+            int next = position;
+            while (next < items.size() && !stopRequested) {
+                Item item = items.get(next);
+                String prompt = "Present card for record " + (next + 1) + " / " + items.size();
+                report(prompt, false);
+
+                // card for this record, or skip / stop
+                if (!awaitCard(prompt)) {
+                    if (skipRequested) {
+                        skipRequested = false;
+                        // settle the previous card first so position stays contiguous
+                        failure = await(pending, pendingIndex);
+                        pending = null;
+                        if (failure != null)
+                            break;
+                        skipped++;
+                        position = ++next;
+                        DebugLog.d("[BatchIssuance] record %d skipped", next);
+                        continue;
+                    }
+                    break;
+                }
+
+                skipRequested = false; // too late to skip this one
+
+                // check the UID before writing: the card just issued must not be overwritten
+                SmartMifareReader.ReadResult present;
+                try {
+                    present = SmartMifareReader.readPresentCard(ReadProfile.UID_ONLY, false);
+                } catch (Exception ex) {
+                    present = null;
+                }
+                if (present == null) {
+                    awaitRemoval(); // unreadable or pulled away; start over
+                    continue;
+                }
+                if (normalizeUid(present.uid).equals(lastUid)) {
+                    report("That card was just issued. Present a new card.", false);
+                    awaitRemoval();
+                    continue;
+                }
+
+                SmartMifareWriter.WriteResult wr;
+                try {
+                    wr = SmartMifareWriter.writePayload(item.payload, item.label, 1_000, 0, verify);
+                } catch (Exception ex) {
+                    DebugLog.d("[BatchIssuance] write failed for record %d: %s", next + 1, ex.getMessage());
+                    report("Write failed (" + ex.getMessage() + "). Present the card again.", false);
+                    awaitRemoval();
+                    continue; // same record
+                }
+                String uid = normalizeUid(wr.uid);
+
+                // previous commit must land before this one is queued
+                failure = await(pending, pendingIndex);
+                pending = null;
+                if (failure != null)
+                    break;
+
+                final int index = next;
+                pending = dbThread.submit(() -> {
+                    AccessDb.insertAttendee(item.data, uid);
+                    return null;
+                });
+                pendingIndex = index;
+                lastUid = uid;
+                lastName = item.data.get("FullName");
+                next++;
+                report("Written record " + next + " / " + items.size() + ". Remove the card.", false);
+                awaitRemoval();
+            }
+            if (failure == null)
+                failure = await(pending, pendingIndex);
+        } finally {
+            dbThread.shutdown();
+            CardEventDispatcher.resume();
+            synchronized (lock) {
+                worker = null;
+            }
+            if (failure != null)
+                report(failure, true);
+            else if (position >= items.size())
+                report("Batch finished. Issued " + issued + ", skipped " + skipped + ".", false);
+            else
+                report("Batch stopped at record " + (position + 1) + " / " + items.size() + ".", false);
+        }
+    }
+
+    // null on success (position moves past the record), else the message
+    private String await(Future<?> pending, int index) {
+        if (pending == null)
+            return null;
+        try {
+            pending.get();
+            issued++;
+            if (position <= index)
+                position = index + 1;
+            return null;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return "Interrupted while saving record " + (index + 1) + ".";
+        } catch (ExecutionException ee) {
+            Throwable t = ee.getCause() == null ? ee : ee.getCause();
+            DebugLog.ex(t, "[BatchIssuance] DB insert failed for record %d", index + 1);
+            position = index;
+            return "Card for record " + (index + 1) + " was written but saving it failed: "
+                    + (t.getMessage() == null ? t.toString() : t.getMessage());
+        }
+    }
+
+    // false on stop / skip; without a reader it keeps waiting for one to be plugged in
+    private boolean awaitCard(String prompt) {
+        boolean noReader = false;
+        while (!stopRequested && !skipRequested) {
+            boolean attached = ReaderSession.isReaderAttached();
+            if (attached == noReader) {
+                noReader = !attached;
+                report(noReader ? "No NFC reader. Connect one to continue, or press Stop." : prompt, false);
+            }
+            if (ReaderSession.awaitCardPresent(WAIT_SLICE_MS))
+                return true;
+        }
+        return false;
+    }
+
+    private void awaitRemoval() {
+        while (!stopRequested && ReaderSession.isReaderAttached()
+                && !ReaderSession.awaitCardAbsent(WAIT_SLICE_MS)) {
+            // keep waiting
+        }
+    }
+
+    private static String normalizeUid(String uid) {
+        return uid == null ? "" : uid.replaceAll("[^0-9A-Fa-f]", "").toUpperCase();
+    }
+
+    /* ================= PROGRESS ================= */
+
+    private void report(String message, boolean failed) {
+        if (listener == null)
+            return;
+        Progress p = new Progress();
+        p.position = position;
+        p.total = items.size();
+        p.issued = issued;
+        p.skipped = skipped;
+        double minutes = (System.nanoTime() - startedAt) / 60e9;
+        p.cardsPerMin = minutes > 0 ? issued / minutes : 0;
+        p.lastUid = lastUid;
+        p.lastName = lastName;
+        p.message = message;
+        p.running = isRunning();
+        p.failed = failed;
+        try {
+            listener.onProgress(p);
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[BatchIssuance] progress listener failed");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.smartcardio.CardTerminal;
+
+import controller.AttendanceController;
+import dto.AttendanceRequest;
+import dto.AttendanceResult;
+import nfc.CardEventDispatcher;
+import nfc.DebounceStore;
+import nfc.ReaderLane;
+import nfc.ReaderSession;
+import nfc.SmartMifareReader;
+import util.DebugLog;
+
+/**
+ * Several readers on one PC, each acting as its own gate: a reader is bound
+ * to an event, a location and ENTRY / EXIT, and every tap on it is marked
+ * through one shared AttendanceController (the same path AttendanceView
+ * uses), so duplicate and rule checks see all gates.
+ *
+ * Each gate runs on its own ReaderLane thread and reads the UID only. When
+ * a gate is bound to the primary reader, the attendance screen's
+ * CardEventDispatcher is suspended while the gates run.
+ */
+public final class GateLanes {
+
+    /** One reader's binding. */
+    public static final class Gate {
+        public String readerName;
+        public int eventId;
+        public String eventName;
+        public String location;
+        public String mode = "ENTRY"; // ENTRY or EXIT
+    }
+
+    /** Called on the gate's lane thread; hop to the FX thread as needed. */
+    @FunctionalInterface
+    public interface Listener {
+        void onTap(Gate gate, String uid, AttendanceResult result);
+    }
+
+    /** Marks one tap; AttendanceController in the app. */
+    @FunctionalInterface
+    interface Marker {
+        AttendanceResult mark(AttendanceRequest req) throws Exception;
+    }
+
+    /** How long stop() waits for the lanes to let go of their readers. */
+    static final long STOP_TIMEOUT_MS = 3_000;
+
+    private final Marker marker;
+    private final List<ReaderLane> lanes = new ArrayList<>();
+    private final Listener listener;
+    private boolean dispatcherSuspended = false;
+
+    public GateLanes(Listener listener) {
+        this(listener, new AttendanceController()::markAttendance);
+    }
+
+    GateLanes(Listener listener, Marker marker) {
+        this.listener = listener;
+        this.marker = marker;
+    }
+
+    /** Names of the readers attached right now, primary first. */
+    public static List<String> readerNames() {
+        List<String> names = new ArrayList<>();
+        for (CardTerminal t : ReaderSession.terminals())
+            names.add(t.getName());
+        return names;
+    }
+
+    public synchronized boolean isRunning() {
+        return !lanes.isEmpty();
+    }
+
+    /* ================= CONTROL ================= */
+
+    /** Start one lane per gate (stopping any running ones first). */
+    public synchronized void start(List<Gate> gates) {
+        stop();
+        if (gates == null || gates.isEmpty())
+            return;
+
+        CardTerminal primary = ReaderSession.terminal();
+        for (Gate g : gates) {
+            if (primary != null && primary.getName().equals(g.readerName) && !dispatcherSuspended) {
+                CardEventDispatcher.suspend();
+                dispatcherSuspended = true;
+            }
+            ReaderLane lane = new ReaderLane(g.readerName, card -> onCard(g, card));
+            lanes.add(lane);
+            lane.start();
+            DebugLog.d("[GateLanes] %s -> event=%s location=%s mode=%s",
+                    g.readerName, g.eventName, g.location, g.mode);
+        }
+    }
+
+    /**
+     * Stops every lane and waits (up to STOP_TIMEOUT_MS) for them to finish
+     * the read or tap in hand before the dispatcher gets the primary reader
+     * back.
+     */
+    public synchronized void stop() {
+        for (ReaderLane lane : lanes)
+            lane.stop();
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+        for (ReaderLane lane : lanes) {
+            if (!lane.awaitStopped(deadline - System.currentTimeMillis()))
+                DebugLog.d("[GateLanes] %s still busy after %d ms", lane.readerName(), STOP_TIMEOUT_MS);
+        }
+        lanes.clear();
+        if (dispatcherSuspended) {
+            CardEventDispatcher.resume();
+            dispatcherSuspended = false;
+        }
+    }
+
+    /* ================= TAPS ================= */
+
+    private void onCard(Gate gate, SmartMifareReader.ReadResult card) {
+        // the same card straight back on the same reader
+        if (!DebounceStore.accept(DebounceStore.Mode.GATE, gate.readerName + "|" + card.uid))
+            return;
+
+        AttendanceRequest req = new AttendanceRequest();
+        req.cardUid = card.uid;
+        req.eventId = gate.eventId;
+        req.eventName = gate.eventName;
+        req.location = gate.location;
+        req.mode = gate.mode;
+
+        AttendanceResult result;
+        try {
+            result = marker.mark(req);
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[GateLanes] %s: marking failed for %s", gate.readerName, card.uid);
+            result = AttendanceResult.denied("Error: " + ex.getMessage());
+        }
+        if (listener != null) {
+            try {
+                listener.onTap(gate, card.uid, result);
+            } catch (Exception ex) {
+                DebugLog.ex(ex, "[GateLanes] listener failed");
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import dto.AttendanceRequest;
 import dto.AttendanceResult;
 
 import controller.AttendanceController;
+import util.AppExecutors;
 
 public class AttendanceView {
 
@@ -31,6 +32,9 @@ public class AttendanceView {
     private static final String HEADING_BG_COLOR = "#1c56aeff";
 
     private volatile String locationText = "(unknown)";
+
+    // one controller for every tap on this screen
+    private final AttendanceController controller = new AttendanceController();
     // Scaling limits for dynamic typography
     private static final double BASE_HEADING_FONT = 15.0;
     private static final double BASE_VALUE_FONT = 16.0;
@@ -69,47 +73,63 @@ public class AttendanceView {
     private ToggleButton exitBtn;
     private ToggleGroup typeGroup;
 
-    private void attemptMarkAttendance(String cardUid, String extractedBsguid) {
-
-        AttendanceController controller = new AttendanceController();
+    private void attemptMarkAttendance(String cardUid) {
 
         AttendanceRequest req = new AttendanceRequest();
         req.cardUid = cardUid;
-        req.bsguid = extractedBsguid != null ? extractedBsguid : bsguidValue.getText();
         req.eventId = (eventCombo.getValue() == null) ? 0 : eventCombo.getValue().id;
         req.eventName = getEventText();
         req.location = getLocationText();
         req.mode = (typeGroup.getSelectedToggle() == entryBtn) ? "ENTRY" : "EXIT";
 
-        System.out.println("[AttendanceView] Attempting to mark attendance - cardUid=" + cardUid + ", bsguid="
-                + req.bsguid + ", eventId=" + req.eventId + ", event=" + req.eventName + ", location=" + req.location + ", mode=" + req.mode);
-
-        // Avoid blocking JavaFX thread
-        new Thread(() -> {
+        System.out.println("[AttendanceView] Attempting to mark attendance - cardUid=" + cardUid
+                + ", eventId=" + req.eventId + ", event=" + req.eventName + ", location=" + req.location + ", mode=" + req.mode);
+
+        // Mark off the JavaFX thread, then show the verdict (or the failure) on it
+        AppExecutors.supply("attendance-mark", () -> controller.markAttendance(req))
+                .whenComplete((result, err) -> {
+                    if (err != null)
+                        result = AttendanceResult.denied("Could not mark attendance");
+                    System.out.println("[AttendanceView] Attendance result received - success=" + result.success
+                            + ", message=" + result.message);
+                    showResult(result);
+                });
+    }
 
-            AttendanceResult result = controller.markAttendance(req);
-            System.out.println("[AttendanceView] Attendance result received - success=" + result.success + ", message="
-                    + result.message);
+    private void showResult(AttendanceResult result) {
+        final dto.ParticipantRow participant = result.participant;
+        final String nowDate = LocalDate.now().format(DATE_FMT);
+        final String nowTime = LocalTime.now().format(TIME_FMT);
 
-            Platform.runLater(() -> {
-                if (result.success) {
-                    headline.setText("Attendance Marked");
-                    headline.setStyle("""
-                                -fx-font-size: 32px;
-                                -fx-font-weight: 900;
-                                -fx-text-fill: #2E7D32;
-                            """);
-                } else {
-                    headline.setText(result.message);
-                    headline.setStyle("""
-                                -fx-font-size: 28px;
-                                -fx-font-weight: 900;
-                                -fx-text-fill: #C62828;
-                            """);
-                }
-            });
+        Platform.runLater(() -> {
+            if (participant == null) {
+                fullNameValue.setText("(unregistered)");
+                bsguidValue.setText("(card not assigned)");
+            } else {
+                fullNameValue.setText(participant.fullName == null || participant.fullName.isBlank()
+                        ? "(empty)" : participant.fullName);
+                bsguidValue.setText(participant.bsguid == null || participant.bsguid.isBlank()
+                        ? "(empty)" : participant.bsguid);
+            }
+            dateValue.setText(nowDate);
+            timeValue.setText(nowTime);
 
-        }, "attendance-submit-thread").start();
+            if (result.success) {
+                headline.setText("Attendance Marked");
+                headline.setStyle("""
+                            -fx-font-size: 32px;
+                            -fx-font-weight: 900;
+                            -fx-text-fill: #2E7D32;
+                        """);
+            } else {
+                headline.setText(result.message);
+                headline.setStyle("""
+                            -fx-font-size: 28px;
+                            -fx-font-weight: 900;
+                            -fx-text-fill: #C62828;
+                        """);
+            }
+        });
     }
 
     public void acceptReadResult(SmartMifareReader.ReadResult rr) {
@@ -123,43 +143,9 @@ public class AttendanceView {
         System.out.println("[AttendanceView] Card tapped - UID: " + uidText);
         Platform.runLater(() -> getUidLabel().setText("UID: " + uidText));
 
-        // 2) Lookup participant from database using cardUid to get the BSGUID
-        // This is done in a background thread to avoid blocking UI
-        new Thread(() -> {
-            AttendanceController controller = new AttendanceController();
-            dto.ParticipantRow participant = controller.lookupParticipantByCardUid(uidText);
-
-            if (participant == null) {
-                System.out.println(
-                        "[AttendanceView] Card UID not found in database - card is not assigned to any participant");
-                final String nowDate = java.time.LocalDate.now().format(DATE_FMT);
-                final String nowTime = java.time.LocalTime.now().format(TIME_FMT);
-                Platform.runLater(() -> {
-                    fullNameValue.setText("(unregistered)");
-                    bsguidValue.setText("(card not assigned)");
-                    dateValue.setText(nowDate);
-                    timeValue.setText(nowTime);
-                });
-                attemptMarkAttendance(uidText, null);
-                return;
-            }
-
-            // Participant found - update UI with data from database
-            final String finalFullName = participant.fullName;
-            final String finalBsguid = participant.bsguid;
-            final String nowDate = java.time.LocalDate.now().format(DATE_FMT);
-            final String nowTime = java.time.LocalTime.now().format(TIME_FMT);
-
-            Platform.runLater(() -> {
-                fullNameValue.setText(finalFullName == null || finalFullName.isBlank() ? "(empty)" : finalFullName);
-                bsguidValue.setText(finalBsguid == null || finalBsguid.isBlank() ? "(empty)" : finalBsguid);
-                dateValue.setText(nowDate);
-                timeValue.setText(nowTime);
-            });
-
-            // Attempt attendance marking with BSGUID from database
-            attemptMarkAttendance(uidText, finalBsguid);
-        }, "card-lookup-thread").start();
+        // Lookup, rule checks and insert happen in one DB transaction; the
+        // participant details for the card come back with the verdict
+        attemptMarkAttendance(uidText);
     }
 
     // ---------------- Constructor / UI ----------------
@@ -364,9 +350,8 @@ public class AttendanceView {
 
     public void loadEventsAndBindLocations() {
 
-        new Thread(() -> {
+        AppExecutors.run("attendance-load-events", () -> {
 
-            AttendanceController controller = new AttendanceController();
             List<AttendanceEvent> events = controller.getAllEvents();
 
             Platform.runLater(() -> {
@@ -388,7 +373,7 @@ public class AttendanceView {
                 }
             });
 
-        }, "attendance-load-events").start();
+        });
     }
 
     private Label createHeadingLabel(String text) {
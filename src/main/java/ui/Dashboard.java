@@ -3,9 +3,9 @@ package ui;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import controller.EventFormController;
+import nfc.CardEventDispatcher;
 import nfc.SmartMifareReader;
 import ui.pages.EventFormPage;
 import util.DebugLog;
@@ -19,15 +19,14 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.util.Duration;
 import javafx.scene.Node;
+import util.AppExecutors;
 
 public class Dashboard extends BorderPane {
 
     private final ScrollPane scrollPane = new ScrollPane();
 
-    // >>> Attendance poller state (runs ONLY on Attendance tab)
-    private volatile Thread attendancePollerThread = null;
-    private final AtomicBoolean attendancePollerRunning = new AtomicBoolean(false);
-    private final AtomicBoolean onAttendanceTab = new AtomicBoolean(false);
+    // >>> Attendance card events (subscribed ONLY while on Attendance tab)
+    private CardEventDispatcher.Subscription attendanceCards = null;
 
     private static final String LOGO_PATH = "/logo-removebg-preview.png";
 
@@ -156,6 +155,7 @@ public class Dashboard extends BorderPane {
         Button importBtn = new Button("Import Excel");
         Button exportParticipantsBtn = new Button("Export Data");
         Button addEventBtn = new Button("Add Event");
+        Button gatesBtn = new Button("Gates");
 
         // --- Common Button Style ---
         String btnStyle = """
@@ -181,7 +181,7 @@ public class Dashboard extends BorderPane {
                 """;
 
         for (Button btn : new Button[] { attendanceBtn, entryFormBtn, batchBtn, reportBtn, importBtn,
-                exportParticipantsBtn, addEventBtn }) {
+                exportParticipantsBtn, addEventBtn, gatesBtn }) {
             btn.setStyle(btnStyle);
             btn.setOnMouseEntered(e -> btn.setStyle(hoverStyle));
             btn.setOnMouseExited(e -> btn.setStyle(btnStyle));
@@ -189,13 +189,13 @@ public class Dashboard extends BorderPane {
 
         // --- Navbar Layout (added Import Excel at the end) ---
         HBox navBar = new HBox(20, attendanceBtn, entryFormBtn, batchBtn, reportBtn, importBtn, exportParticipantsBtn,
-                addEventBtn);
+                addEventBtn, gatesBtn);
         navBar.setPadding(new Insets(15, 20, 15, 20));
         navBar.setStyle(
                 "-fx-background-color: linear-gradient(to bottom, #1565c0, #0d47a1); -fx-alignment: center; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.2), 8, 0, 0, 2);");
 
         for (Button btn : new Button[] { attendanceBtn, entryFormBtn, batchBtn, reportBtn, importBtn,
-                exportParticipantsBtn, addEventBtn }) {
+                exportParticipantsBtn, addEventBtn, gatesBtn }) {
             HBox.setHgrow(btn, Priority.ALWAYS);
             btn.setMaxWidth(Double.MAX_VALUE);
         }
@@ -207,7 +207,6 @@ public class Dashboard extends BorderPane {
         attendanceView.setLogo(LOGO_PATH);
         attendanceView.loadEventsAndBindLocations();
 
-        onAttendanceTab.set(true);
         startAttendancePoller();
 
         // --- Add Components to Layout ---
@@ -242,31 +241,10 @@ public class Dashboard extends BorderPane {
         // --- Actions ---
         attendanceBtn.setOnAction(e -> {
 
-            // 1) request we are no longer on attendance tab (helps poller exit quickly)
-            onAttendanceTab.set(false);
+            // 1) drop the previous view's card subscription (no thread to wait for)
+            stopAttendancePoller();
 
-            // 2) stop existing poller (if any) and wait a short time for it to die
-            try {
-                DebugLog.d("Stopping existing attendance poller (if running)...");
-                stopAttendancePoller(); // should request stop and attempt to cancel blocking read
-
-                Thread t = attendancePollerThread;
-                if (t != null && t.isAlive()) {
-                    DebugLog.d("Waiting for poller thread to terminate (join up to 2000ms)...");
-                    try {
-                        t.join(2000); // wait up to 2s for previous poller to exit
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        DebugLog.d("Interrupted while waiting for poller thread to join");
-                    }
-                    DebugLog.d("Poller thread alive after join=%b", t.isAlive());
-                }
-            } catch (Throwable stopEx) {
-                DebugLog.ex(stopEx, "Error while stopping previous attendance poller");
-            }
-
-            // 3) mark we are on attendance tab and create fresh AttendanceView
-            onAttendanceTab.set(true);
+            // 2) create fresh AttendanceView and subscribe it to card events
             try {
                 DebugLog.d("Creating new AttendanceView instance");
                 attendanceView = new AttendanceView(); // create new instance
@@ -274,39 +252,28 @@ public class Dashboard extends BorderPane {
                 setContent(attendanceView.getView());
 
                 attendanceView.loadEventsAndBindLocations();
-
-                DebugLog.d("Starting attendance poller");
-                startAttendancePoller();
-                DebugLog.d("Attendance tab ready (poller started)");
             } catch (Throwable initEx) {
                 DebugLog.ex(initEx, "Failed to initialize Attendance tab");
-                // best-effort fallback: still try to start poller if partial init succeeded
-                try {
-                    if (!attendancePollerRunning.get()) {
-                        startAttendancePoller();
-                    }
-                } catch (Throwable t2) {
-                    DebugLog.ex(t2, "Failed to start poller after initialization failure");
-                }
             }
+            startAttendancePoller();
+            DebugLog.d("Attendance tab ready (card events subscribed)");
         });
 
+        // --- Gates: several readers as parallel entry / exit points ---
+        gatesBtn.setOnAction(e -> GateLanesDialog.show(
+                this.getScene() == null ? null : this.getScene().getWindow()));
+
         // --- Entry Form ---
         entryFormBtn.setOnAction(e -> {
             leaveAttendance(); // stop attendance poller
 
             Parent form = EntryForm.create((formData, done) -> {
                 // Do NFC + DB work off the UI thread
-                Thread t = new Thread(() -> {
+                AppExecutors.run("entryform-write", () -> {
                     String uid = null;
                     try {
-                        // Build CSV if not present
-                        String csv = formData.get("__CSV__");
-                        if (csv == null) {
-                            csv = formData.values().stream()
-                                    .map(v -> v == null ? "" : v.trim())
-                                    .collect(java.util.stream.Collectors.joining(","));
-                        }
+                        // Card record (binary, see CardPayloadCodec)
+                        String[] cardFields = nfc.CardPayloadCodec.fieldsOf(formData);
 
                         // Make sure only one NFC op runs at a time
                         EntryForm.setNfcBusy(true);
@@ -314,7 +281,7 @@ public class Dashboard extends BorderPane {
                         // 1) Wait for card (blocks until present)
                         nfc.SmartMifareReader.ReadResult present;
                         try {
-                            present = nfc.SmartMifareReader.readUIDWithData(0); // 0 = infinite wait
+                            present = nfc.SmartMifareReader.readUIDWithData(0, nfc.ReadProfile.UID_ONLY); // 0 = infinite wait
                         } catch (Throwable ex) {
                             present = null;
                         }
@@ -333,7 +300,7 @@ public class Dashboard extends BorderPane {
                         // 2) Write to card
                         nfc.SmartMifareWriter.WriteResult wr;
                         try {
-                            wr = nfc.SmartMifareWriter.writeText(csv);
+                            wr = nfc.SmartMifareWriter.writeRecord(cardFields);
                         } catch (Throwable ex) {
                             wr = null;
                         }
@@ -351,7 +318,7 @@ public class Dashboard extends BorderPane {
                         // 3) Quick verify while card still present (UID match is enough)
                         nfc.SmartMifareReader.ReadResult verify = null;
                         try {
-                            verify = nfc.SmartMifareReader.readUIDWithData(800);
+                            verify = nfc.SmartMifareReader.readUIDWithData(800, nfc.ReadProfile.UID_ONLY);
                         } catch (Throwable ignore) {
                         }
                         if (verify == null || verify.uid == null || !uid.equalsIgnoreCase(verify.uid)) {
@@ -397,10 +364,7 @@ public class Dashboard extends BorderPane {
                         if (done != null)
                             done.run();
                     }
-                }, "entryform-write-thread");
-
-                t.setDaemon(true);
-                t.start();
+                });
             });
 
             setContent(form);
@@ -427,118 +391,9 @@ public class Dashboard extends BorderPane {
             bannerWrap.setAlignment(Pos.CENTER);
             bannerWrap.setPadding(new Insets(8, 0, 12, 0));
 
-            java.util.concurrent.atomic.AtomicInteger processed = new java.util.concurrent.atomic.AtomicInteger(0);
-
-            Parent batch = EntryForm.createBatch((formData, finish) -> {
-                Thread t = new Thread(() -> {
-                    String uid = null;
-                    try {
-                        // Build CSV if missing
-                        String textToWrite = formData.get("__CSV__");
-                        if (textToWrite == null) {
-                            textToWrite = formData.values().stream()
-                                    .map(v -> v == null ? "" : v.trim())
-                                    .collect(java.util.stream.Collectors.joining(","));
-                        }
-
-                        // STRICT, SEQUENTIAL, FAIL-FAST
-                        EntryForm.setNfcBusy(true);
-
-                        // 1) Wait for card & read UID (block until present)
-                        nfc.SmartMifareReader.ReadResult present = null;
-                        try {
-                            present = nfc.SmartMifareReader.readUIDWithData(0); // infinite wait
-                        } catch (Throwable ignored) {
-                        }
-                        if (present == null || present.uid == null || present.uid.isBlank()) {
-                            Platform.runLater(() -> {
-                                Alert alert = new Alert(Alert.AlertType.ERROR,
-                                        "No card detected. Please present a card and try again.",
-                                        ButtonType.OK);
-                                alert.setHeaderText(null);
-                                alert.showAndWait();
-                            });
-                            finish.accept(false); // stay on same record
-                            return;
-                        }
-                        uid = present.uid;
-
-                        // 2) WRITE to card
-                        nfc.SmartMifareWriter.WriteResult wr;
-                        try {
-                            wr = nfc.SmartMifareWriter.writeText(textToWrite);
-                        } catch (Throwable ex) {
-                            wr = null;
-                        }
-                        if (wr == null) {
-                            Platform.runLater(() -> {
-                                Alert alert = new Alert(Alert.AlertType.ERROR,
-                                        "Writing to the card failed. Nothing was saved to the database.",
-                                        ButtonType.OK);
-                                alert.setHeaderText(null);
-                                alert.showAndWait();
-                            });
-                            finish.accept(false);
-                            return;
-                        }
-
-                        // 3) QUICK VERIFY (UID should still match while card is present)
-                        nfc.SmartMifareReader.ReadResult verify = null;
-                        try {
-                            verify = nfc.SmartMifareReader.readUIDWithData(800);
-                        } catch (Throwable ignored) {
-                        }
-                        if (verify == null || verify.uid == null || verify.uid.isBlank()
-                                || !uid.equalsIgnoreCase(verify.uid)) {
-                            Platform.runLater(() -> {
-                                Alert alert = new Alert(Alert.AlertType.ERROR,
-                                        "Could not verify the card after writing. Nothing was saved to the database.",
-                                        ButtonType.OK);
-                                alert.setHeaderText(null);
-                                alert.showAndWait();
-                            });
-                            finish.accept(false);
-                            return;
-                        }
-
-                        // 4) DB INSERT — only after successful read + write + verify
-                        try {
-                            db.AccessDb.insertAttendee(formData, uid);
-                        } catch (Exception dbEx) {
-                            final String msg = dbEx.getMessage() == null ? dbEx.toString() : dbEx.getMessage();
-                            Platform.runLater(() -> {
-                                Alert alert = new Alert(Alert.AlertType.ERROR,
-                                        "DB insert failed: " + msg,
-                                        ButtonType.OK);
-                                alert.setHeaderText(null);
-                                alert.showAndWait();
-                            });
-                            finish.accept(false);
-                            return;
-                        }
-
-                        // SUCCESS UI + counter only after DB success
-                        int doneCount = processed.incrementAndGet();
-                        final String name = formData.getOrDefault("FullName", "(no name)");
-                        final String uidFinal = uid;
-                        Platform.runLater(() -> {
-                            banner.setText("Processed " + doneCount + " / " + total);
-                            Alert ok = new Alert(Alert.AlertType.INFORMATION,
-                                    "Saved: " + name + " — UID " + uidFinal,
-                                    ButtonType.OK);
-                            ok.setHeaderText(null);
-                            ok.showAndWait();
-                        });
-
-                        finish.accept(true); // advance to next record
-
-                    } finally {
-                        EntryForm.setNfcBusy(false);
-                    }
-                }, "batch-write-thread");
-                t.setDaemon(true);
-                t.start();
-            }, rows);
+            // cards are written and saved by BatchIssuanceEngine (see EntryForm.createBatch)
+            Parent batch = EntryForm.createBatch(rows, p -> banner.setText(String.format(
+                    "Processed %d / %d — %.1f cards/min", p.position, total, p.cardsPerMin)));
 
             // Make the existing form look cleaner/bigger WITHOUT changing its structure
             prettifyForm(batch);
@@ -564,7 +419,7 @@ public class Dashboard extends BorderPane {
             categoryCb.setPromptText("Category (optional)");
 
             // Try to populate from AccessDb (off the FX thread)
-            new Thread(() -> {
+            AppExecutors.run("load-states-cats", () -> {
                 try {
                     java.util.List<String> states = db.AccessDb.fetchDistinctStates();
                     java.util.List<String> cats = db.AccessDb.fetchDistinctExcelCategories();
@@ -583,7 +438,7 @@ public class Dashboard extends BorderPane {
                         categoryCb.getItems().clear();
                     });
                 }
-            }, "load-states-cats").start();
+            });
 
             Button loadBtn = new Button("Load");
             Button exportBtn = new Button("Export CSV");
@@ -715,7 +570,7 @@ public class Dashboard extends BorderPane {
                 final String chosenCat = (categoryCb.getValue() == null || categoryCb.getValue().isBlank()) ? null
                         : categoryCb.getValue().trim();
 
-                Thread q = new Thread(() -> {
+                AppExecutors.run("load-trans", () -> {
                     java.util.List<Map<String, String>> rows = new ArrayList<>();
                     // Query trans joined with ParticipantsRecord to get state/category/rank
                     String sql = """
@@ -805,9 +660,7 @@ public class Dashboard extends BorderPane {
                         inlineMsg.setStyle("-fx-text-fill:#2E7D32; -fx-font-weight:600;");
                         inlineMsg.setText("Loaded " + finalRows.size() + " row(s).");
                     });
-                }, "load-trans-thread");
-                q.setDaemon(true);
-                q.start();
+                });
             });
         });
 
@@ -896,7 +749,7 @@ public class Dashboard extends BorderPane {
             setContent(page);
 
             // Populate filter lists off FX thread
-            new Thread(() -> {
+            AppExecutors.run("load-filters-export-page", () -> {
                 try {
                     java.util.List<String> states = db.AccessDb.fetchDistinctStates();
                     java.util.List<String> cats = db.AccessDb.fetchDistinctExcelCategories();
@@ -920,7 +773,7 @@ public class Dashboard extends BorderPane {
                                 + (ex.getMessage() != null ? ex.getMessage() : ex.toString()));
                     });
                 }
-            }, "load-filters-export-page").start();
+            });
 
             // Load handler
             loadBtn.setOnAction(ae -> {
@@ -934,7 +787,7 @@ public class Dashboard extends BorderPane {
                 statusLbl.setStyle("-fx-text-fill:#666;");
                 statusLbl.setText("Loading participants...");
 
-                new Thread(() -> {
+                AppExecutors.run("fetch-participants-export-page", () -> {
                     java.util.List<Map<String, String>> participants;
                     try {
                         participants = db.AccessDb.fetchParticipantsByStateAndCategory(chosenState, chosenCat, false);
@@ -969,7 +822,7 @@ public class Dashboard extends BorderPane {
                         loadBtn.setDisable(false);
                         exportBtn.setDisable(finalParticipants.isEmpty());
                     });
-                }, "fetch-participants-export-page").start();
+                });
             });
 
             // Export handler (writes the currently displayed rows)
@@ -993,7 +846,7 @@ public class Dashboard extends BorderPane {
                 List<Map<String, String>> toExport = new ArrayList<>(table.getItems());
 
                 // perform write in background
-                new Thread(() -> {
+                AppExecutors.run("export-write", () -> {
                     try {
                         // Ensure parent dir exists
                         java.io.File parent = chosen.getParentFile();
@@ -1060,7 +913,7 @@ public class Dashboard extends BorderPane {
                             a.showAndWait();
                         });
                     }
-                }, "export-write-thread").start();
+                });
             });
         });
 
@@ -1147,129 +1000,59 @@ public class Dashboard extends BorderPane {
         });
     }
 
-    // >>> Attendance poller control
+    // >>> Attendance card events
 
     /**
-     * Start (or restart) the attendance poller. Safe to call repeatedly.
-     * Waits indefinitely for a card; when present, shows UID, then waits until card
-     * is removed and returns to "Tap your card".
+     * Subscribe the attendance screen to card taps. Safe to call repeatedly.
+     * On card-in: show UID and hand the read to AttendanceView, then prompt for
+     * removal; on card-out: back to "Tap your card".
      */
-    // Add near the top of Dashboard (class fields) or as local finals inside
-    // startAttendancePoller():
-    private static final int PROBE_TIMEOUT_MS = 200; // each probe wait
-
     private void startAttendancePoller() {
-
-        if (attendancePollerRunning.get())
+        if (attendanceCards != null)
             return;
 
-        attendancePollerRunning.set(true);
-        attendancePollerThread = new Thread(() -> {
-            Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-
-            while (attendancePollerRunning.get() && onAttendanceTab.get()) {
-                // WAIT FOR CARD (short-timeout polling so we can stop cooperatively)
-                SmartMifareReader.ReadResult rr = null;
-                try {
-                    // use a short timeout so the thread checks the running flag often
-                    rr = SmartMifareReader.readUIDWithData(PROBE_TIMEOUT_MS);
+        attendanceCards = CardEventDispatcher.subscribe(new CardEventDispatcher.Subscriber() {
+            @Override
+            public void cardIn(SmartMifareReader.ReadResult rr) {
+                if (rr.uid == null || rr.uid.isBlank())
+                    return;
+                System.out.println(rr.data);
+                showUid(rr.uid);
 
-                    // Security check: gracefully handle null ReadResult
-                    if (rr == null) {
-                        continue;
+                AttendanceView view = attendanceView;
+                if (view != null) {
+                    try {
+                        view.acceptReadResult(rr);
+                    } catch (Throwable t) {
+                        t.printStackTrace();
                     }
-
-                    System.out.println(rr.data);
-                } catch (Throwable t) {
-                    // swallow and continue if still running
-                    // if the error is fatal you may want to log it
-                    t.printStackTrace();
-                    continue;
                 }
+                // Prompt removal (next card is only processed after this one leaves)
+                showRemovePrompt();
+            }
 
-                if (!attendancePollerRunning.get() || !onAttendanceTab.get()) {
-                    break;
-                }
-
-                if (rr != null && rr.uid != null && !rr.uid.isBlank()) {
-                    // Process card present exactly like before
-                    showUid(rr.uid);
-
-                    if (attendanceView != null) {
-                        try {
-                            attendanceView.acceptReadResult(rr);
-                        } catch (Throwable t) {
-                            t.printStackTrace();
-                        }
-                    }
-                    // Prompt removal and block until absent (prevents processing next card)
-                    showRemovePrompt();
-                    boolean absentConfirmed = SmartMifareReader.waitForCardAbsent(0); // 0 = wait forever
-
-                    if (attendancePollerRunning.get() && onAttendanceTab.get() && absentConfirmed) {
-                        setAttendancePrompt();
-                        if (attendanceView != null) {
-                            try {
-                                attendanceView.clearDetails();
-                            } catch (Throwable ignored) {
-                            }
-                        }
-                    }
-                } else {
-                    // no card seen in this short probe -> continue loop (no tight spin)
+            @Override
+            public void cardOut(String uid) {
+                setAttendancePrompt();
+                AttendanceView view = attendanceView;
+                if (view != null) {
                     try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException ie) {
-                        // don't propagate interrupt; just honour shutdown flag
-                        Thread.currentThread().interrupt();
-                        break;
+                        view.clearDetails();
+                    } catch (Throwable ignored) {
                     }
                 }
             }
-
-            attendancePollerRunning.set(false);
-        }, "attendance-poller");
-        attendancePollerThread.setDaemon(true);
-        attendancePollerThread.start();
+        });
     }
 
     private void leaveAttendance() {
-        onAttendanceTab.set(false);
         stopAttendancePoller();
     }
 
     private void stopAttendancePoller() {
-        if (!attendancePollerRunning.get())
-            return;
-
-        // tell the poller to stop
-        attendancePollerRunning.set(false);
-
-        // If your SmartMifareReader provides a cancel/unblock method, call it so
-        // readUIDWithData(0)
-        // will return quickly. We try reflectively to avoid compile-time dependency.
-        try {
-            java.lang.reflect.Method cancel = null;
-            try {
-                cancel = SmartMifareReader.class.getMethod("cancelWait");
-            } catch (NoSuchMethodException ignored) {
-                // try alternative method name used in some libs
-                try {
-                    cancel = SmartMifareReader.class.getMethod("close");
-                } catch (NoSuchMethodException ignored2) {
-                }
-            }
-            if (cancel != null) {
-                try {
-                    cancel.invoke(null); // assume static cancel; if instance method exists adjust accordingly
-                } catch (Throwable ignore) {
-                }
-            }
-        } catch (Throwable ignore) {
-        }
-
-        // Do NOT interrupt the thread — let it finish its I/O and exit. Interrupting
-        // can close
-        // file channels used by Jackcess and lead to ClosedByInterruptException.
+        CardEventDispatcher.Subscription sub = attendanceCards;
+        attendanceCards = null;
+        if (sub != null)
+            sub.close();
     }
 }
@@ -12,16 +12,18 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Window;
+import nfc.CardEventDispatcher;
+import nfc.CardPayloadCodec;
+import nfc.DebounceStore;
+import nfc.ReadProfile;
 import nfc.SmartMifareReader;
+import service.BatchIssuanceEngine;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import util.AppExecutors;
 
 public class EntryForm {
 
@@ -30,7 +32,13 @@ public class EntryForm {
     private static final AtomicBoolean NFC_BUSY = new AtomicBoolean(false);
 
     public static void setNfcBusy(boolean b) {
-        NFC_BUSY.set(b);
+        // card events pause while a write / erase owns the reader
+        if (NFC_BUSY.compareAndSet(!b, b)) {
+            if (b)
+                CardEventDispatcher.suspend();
+            else
+                CardEventDispatcher.resume();
+        }
     }
 
     /**
@@ -244,14 +252,6 @@ public class EntryForm {
             data.put("dataOfBirth", dobStr); // AccessDb expects dataOfBirth
             data.put("age", ageVal);
 
-            String csvForNfc = String.join(",",
-                    Arrays.asList(
-                            fullNameVal, bsguidVal, participationVal, bsgDistrictVal,
-                            emailVal, phoneVal, bsgStateVal, memberTypVal, unitNamVal,
-                            rankVal, dobStr, ageVal));
-
-            data.put("__CSV__", csvForNfc);
-
             saveBtn.setDisable(true);
             clearBtn.setDisable(true);
             eraseBtn.setDisable(true);
@@ -316,14 +316,14 @@ public class EntryForm {
                 eraseBtn.setDisable(true);
                 setBannerInfo(banner, "Hold the card steady: reading UID…");
 
-                Thread th = new Thread(() -> {
+                AppExecutors.run("nfc-eraser", () -> {
                     try {
                         setNfcBusy(true);
 
                         // 1) Read UID (block until card present)
                         nfc.SmartMifareReader.ReadResult present = null;
                         try {
-                            present = nfc.SmartMifareReader.readUIDWithData(0); // infinite wait
+                            present = nfc.SmartMifareReader.readUIDWithData(0, nfc.ReadProfile.UID_ONLY); // infinite wait
                         } catch (Exception ignore) {
                         }
 
@@ -377,26 +377,21 @@ public class EntryForm {
                             eraseBtn.setDisable(false);
                         });
                     }
-                }, "nfc-eraser-thread");
-                th.setDaemon(true);
-                th.start();
+                });
             });
         });
 
         fontSizeBinding.getValue();
 
-        // Start NFC auto-fill (false = don't overwrite existing fields; 1000ms poll)
-        ScheduledExecutorService svc = startNfcAutoFill(root,
+        // Start NFC auto-fill on card events (false = don't overwrite existing fields)
+        CardEventDispatcher.Subscription sub = startNfcAutoFill(root,
                 fullName, bsguid, participationType,
                 bsgDistrict, email, phoneNumber,
                 bsgState, memberTyp, unitNam,
                 rank_or_section, dateOfBirth, age,
-                false, // overwriteAlways
-                1000);
-        // expose poller on the root so Dashboard can stop it when switching screens
-        if (svc != null) {
-            root.getProperties().put("nfc-poller", svc);
-        }
+                false); // overwriteAlways
+        // expose subscription on the root so Dashboard can stop it when switching screens
+        root.getProperties().put("nfc-poller", sub);
 
         return root;
     }
@@ -450,120 +445,123 @@ public class EntryForm {
     }
 
     // ---------------- NFC auto-fill helpers ----------------
-    private static ScheduledExecutorService startNfcAutoFill(
+    private static CardEventDispatcher.Subscription startNfcAutoFill(
             Parent root,
             TextField fullName, TextField bsguid, ComboBox<String> participationType,
             TextField bsgDistrict, TextField email, TextField phoneNumber,
             TextField bsgState, TextField memberTyp, TextField unitNam,
             ComboBox<String> rank_or_section, DatePicker dateOfBirth, TextField age,
-            boolean overwriteAlways, long pollIntervalMs) {
-
-        ScheduledExecutorService svc = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "nfc-poller");
-            t.setDaemon(true);
-            return t;
-        });
-
-        AtomicReference<String> lastUid = new AtomicReference<>("");
-
-        Runnable task = () -> {
-            try {
-                // if someone else is using NFC (write/erase/info), don't poll now
-                if (NFC_BUSY.get())
-                    return;
-
-                SmartMifareReader.ReadResult rr = SmartMifareReader.readUIDWithData(1500);
-                if (rr == null || rr.uid == null || rr.uid.isEmpty())
-                    return;
-
-                String uid = rr.uid;
-                String data = rr.data == null ? "" : rr.data.trim();
-
-                // debounce: ignore if same UID processed recently
-                if (uid.equals(lastUid.get()))
-                    return;
-                lastUid.set(uid);
+            boolean overwriteAlways) {
 
-                if (data.isEmpty())
-                    return;
-
-                String[] parts = Arrays.stream(data.split(",", -1))
-                        .map(String::trim)
-                        .toArray(String[]::new);
-
-                Platform.runLater(() -> {
-                    try {
-                        int i = 0;
-                        setFieldFromCsv(fullName, parts, i++, overwriteAlways);
-                        setFieldFromCsv(bsguid, parts, i++, overwriteAlways);
-                        setComboFromCsv(participationType, parts, i++, overwriteAlways);
-                        setFieldFromCsv(bsgDistrict, parts, i++, overwriteAlways);
-                        setFieldFromCsv(email, parts, i++, overwriteAlways);
-                        setFieldFromCsv(phoneNumber, parts, i++, overwriteAlways);
-                        setFieldFromCsv(bsgState, parts, i++, overwriteAlways);
-                        setFieldFromCsv(memberTyp, parts, i++, overwriteAlways);
-                        setFieldFromCsv(unitNam, parts, i++, overwriteAlways);
-                        setComboFromCsv(rank_or_section, parts, i++, overwriteAlways);
-
-                        if (parts.length > i) {
-                            String dobStr = parts[i++].trim();
-                            if (!dobStr.isEmpty()) {
-                                try {
-                                    LocalDate d = LocalDate.parse(dobStr);
-                                    if (overwriteAlways || dateOfBirth.getValue() == null)
-                                        dateOfBirth.setValue(d);
-                                } catch (Exception ignored) {
-                                }
-                            }
-                        }
-
-                        if (parts.length > i) {
-                            setFieldFromCsv(age, parts, i++, overwriteAlways);
-                        }
-
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-                });
-
-            } catch (Exception ex) {
-                ex.printStackTrace();
+        CardEventDispatcher.Subscription sub = CardEventDispatcher.subscribe(new CardEventDispatcher.Subscriber() {
+            @Override
+            public ReadProfile profile() {
+                return ReadProfile.KNOWN_BLOCKS; // the CSV written by SmartMifareWriter
             }
-        };
 
-        svc.scheduleWithFixedDelay(task, 0, Math.max(200, pollIntervalMs), TimeUnit.MILLISECONDS);
+            @Override
+            public void cardIn(SmartMifareReader.ReadResult rr) {
+                fillFromCard(rr, overwriteAlways, fullName, bsguid, participationType,
+                        bsgDistrict, email, phoneNumber, bsgState, memberTyp, unitNam,
+                        rank_or_section, dateOfBirth, age);
+            }
+        });
 
-        // shutdown when window closes (safety)
+        // unsubscribe when window closes (safety)
         root.sceneProperty().addListener((obs, oldScene, newScene) -> {
             if (newScene != null) {
                 Window w = newScene.getWindow();
                 if (w != null) {
-                    w.setOnHidden(evt -> svc.shutdownNow());
+                    w.setOnHidden(evt -> sub.close());
                 } else {
                     newScene.windowProperty().addListener((o, oldW, newW) -> {
                         if (newW != null)
-                            newW.setOnHidden(e -> svc.shutdownNow());
+                            newW.setOnHidden(e -> sub.close());
                     });
                 }
             }
         });
 
-        // also stop when this node is removed from scene graph
+        // also unsubscribe when this node is removed from scene graph
         root.parentProperty().addListener((o, oldP, newP) -> {
             if (newP == null) {
-                svc.shutdownNow();
+                sub.close();
             }
         });
 
-        return svc;
+        return sub;
+    }
+
+    private static void fillFromCard(SmartMifareReader.ReadResult rr, boolean overwriteAlways,
+            TextField fullName, TextField bsguid, ComboBox<String> participationType,
+            TextField bsgDistrict, TextField email, TextField phoneNumber,
+            TextField bsgState, TextField memberTyp, TextField unitNam,
+            ComboBox<String> rank_or_section, DatePicker dateOfBirth, TextField age) {
+        try {
+            // if someone else is using NFC (write/erase/info), ignore taps
+            if (NFC_BUSY.get())
+                return;
+            if (rr == null || rr.uid == null || rr.uid.isEmpty())
+                return;
+
+            String uid = rr.uid;
+
+            // debounce: ignore if same UID processed recently
+            if (!DebounceStore.accept(DebounceStore.Mode.AUTO_FILL, uid))
+                return;
+
+            // binary record, or the comma-separated text of older cards
+            String[] parts = CardPayloadCodec.fields(rr);
+            if (parts == null)
+                return;
+
+            Platform.runLater(() -> {
+                try {
+                    int i = 0;
+                    setFieldFromCsv(fullName, parts, i++, overwriteAlways);
+                    setFieldFromCsv(bsguid, parts, i++, overwriteAlways);
+                    setComboFromCsv(participationType, parts, i++, overwriteAlways);
+                    setFieldFromCsv(bsgDistrict, parts, i++, overwriteAlways);
+                    setFieldFromCsv(email, parts, i++, overwriteAlways);
+                    setFieldFromCsv(phoneNumber, parts, i++, overwriteAlways);
+                    setFieldFromCsv(bsgState, parts, i++, overwriteAlways);
+                    setFieldFromCsv(memberTyp, parts, i++, overwriteAlways);
+                    setFieldFromCsv(unitNam, parts, i++, overwriteAlways);
+                    setComboFromCsv(rank_or_section, parts, i++, overwriteAlways);
+
+                    if (parts.length > i) {
+                        String dobStr = parts[i++].trim();
+                        if (!dobStr.isEmpty()) {
+                            try {
+                                LocalDate d = LocalDate.parse(dobStr);
+                                if (overwriteAlways || dateOfBirth.getValue() == null)
+                                    dateOfBirth.setValue(d);
+                            } catch (Exception ignored) {
+                            }
+                        }
+                    }
+
+                    if (parts.length > i) {
+                        setFieldFromCsv(age, parts, i++, overwriteAlways);
+                    }
+
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            });
+
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+
     }
 
     public static void stopNfcPolling(Node root) {
         if (root == null)
             return;
-        Object svc = root.getProperties().get("nfc-poller");
-        if (svc instanceof ScheduledExecutorService s) {
-            s.shutdownNow();
+        Object sub = root.getProperties().get("nfc-poller");
+        if (sub instanceof CardEventDispatcher.Subscription s) {
+            s.close();
             root.getProperties().remove("nfc-poller");
         }
     }
@@ -595,9 +593,14 @@ public class EntryForm {
     }
 
     // ---------- Batch UI ----------
+    /**
+     * Batch issuance screen: shows the record waiting for a card while a
+     * BatchIssuanceEngine writes and saves one card after another.
+     * onProgress (may be null) gets every engine update on the FX thread.
+     */
     public static Parent createBatch(
-            BiConsumer<Map<String, String>, Consumer<Boolean>> onSave,
-            List<Map<String, String>> batchRows) {
+            List<Map<String, String>> batchRows,
+            Consumer<BatchIssuanceEngine.Progress> onProgress) {
 
         util.DebugLog.d("createBatch() start; rows=%d", batchRows == null ? 0 : batchRows.size());
 
@@ -665,10 +668,13 @@ public class EntryForm {
         HBox columns = new HBox(40, left, right);
         columns.setPadding(new Insets(8));
 
-        Button writeNextBtn = new Button("Write & Next");
+        Button writeNextBtn = new Button("Start Issuing");
         Button skipBtn = new Button("Skip / Next");
         Button stopBtn = new Button("Stop Batch");
-        HBox controls = new HBox(10, writeNextBtn, skipBtn, stopBtn);
+        ProgressIndicator spinner = new ProgressIndicator();
+        spinner.setMaxSize(28, 28);
+        spinner.setVisible(false);
+        HBox controls = new HBox(10, spinner, writeNextBtn, skipBtn, stopBtn);
         controls.setAlignment(Pos.CENTER_RIGHT);
 
         // --- Center layout (status moved to TOP) ---
@@ -677,7 +683,6 @@ public class EntryForm {
 
         final int total = batchRows == null ? 0 : batchRows.size();
         final int[] index = new int[] { 0 };
-        final boolean[] running = new boolean[] { true };
 
         // helper to pick a value from map by likely keys (case-insensitive)
         java.util.function.BiFunction<Map<String, String>, String, String> pick = (map, key) -> {
@@ -758,232 +763,48 @@ public class EntryForm {
         } else {
             fillCurrent.run();
             status.setText("Ready for record " + (index[0] + 1) + " / " + total +
-                    " — Present card and click Write & Next.");
+                    " — click Start Issuing, then present cards one after another.");
         }
+        stopBtn.setDisable(true);
 
-        StackPane overlay = new StackPane();
-        overlay.setVisible(false); // hidden by default
-        overlay.setPickOnBounds(true); // intercept mouse events so background is blocked
-
-        // semi-transparent background to dim UI
-        overlay.setStyle("-fx-background-color: rgba(132, 132, 132, 0.04); -fx-background-radius: 10;");
-
-        // spinner + message
-        VBox loaderBox = new VBox(10);
-        loaderBox.setAlignment(Pos.CENTER);
-
-        ProgressIndicator spinner = new ProgressIndicator();
-        spinner.setMaxSize(72, 72);
-
-        loaderBox.getChildren().addAll(spinner);
-        overlay.getChildren().add(loaderBox);
-        StackPane.setAlignment(loaderBox, Pos.CENTER);
+        root.setCenter(center);
 
-        StackPane centerStack = new StackPane(center, overlay);
-        centerStack.setPadding(new Insets(10));
-        root.setCenter(centerStack);
+        BatchIssuanceEngine engine = new BatchIssuanceEngine(batchRows, p -> Platform.runLater(() -> {
+            index[0] = p.position;
+            fillCurrent.run();
+            status.setText(p.message + String.format(" — %d issued, %.1f cards/min", p.issued, p.cardsPerMin));
+            spinner.setVisible(p.running);
+            boolean more = p.position < total;
+            writeNextBtn.setText(p.position > 0 && more ? "Resume" : "Start Issuing");
+            writeNextBtn.setDisable(p.running || !more);
+            skipBtn.setDisable(!more);
+            stopBtn.setDisable(!p.running);
+            if (p.failed) {
+                Alert a = new Alert(Alert.AlertType.ERROR, p.message, ButtonType.OK);
+                a.setHeaderText(null);
+                a.show();
+            }
+            if (onProgress != null)
+                onProgress.accept(p);
+        }));
 
         writeNextBtn.setOnAction(evt -> {
-            util.DebugLog.d("Write button clicked; running=%b idx=%d", running[0], index[0]);
-            if (!running[0])
-                return;
-            if (index[0] < 0 || index[0] >= total) {
+            util.DebugLog.d("Start issuing at idx=%d", index[0]);
+            if (index[0] >= total) {
                 status.setText("No more rows.");
-                util.DebugLog.d("No more rows");
                 return;
             }
-            Map<String, String> cur = batchRows.get(index[0]);
-
-            Map<String, String> data = new LinkedHashMap<>();
-            String fn = pick.apply(cur, "FullName");
-            String bs = pick.apply(cur, "BSGUID");
-            String pt = pick.apply(cur, "ParticipationType");
-            String bd = pick.apply(cur, "bsgDistrict");
-            String em = pick.apply(cur, "Email");
-            String ph = pick.apply(cur, "phoneNumber");
-            String st = pick.apply(cur, "bsgState");
-
-            String mt = pick.apply(cur, "memberTyp");
-            if (mt.isEmpty())
-                mt = pick.apply(cur, "memberType");
-            String un = pick.apply(cur, "unitNam");
-            if (un.isEmpty())
-                un = pick.apply(cur, "unitName");
-
-            String rk = pick.apply(cur, "rank_or_section");
-            String dob = pick.apply(cur, "dataOfBirth");
-            if (dob.isEmpty())
-                dob = pick.apply(cur, "dateOfBirth");
-            String ag = pick.apply(cur, "age");
-
-            data.put("FullName", fn);
-            data.put("BSGUID", bs);
-            data.put("ParticipationType", pt);
-            data.put("bsgDistrict", bd);
-            data.put("Email", em);
-            data.put("phoneNumber", ph);
-            data.put("bsgState", st);
-            data.put("memberTyp", mt);
-            data.put("unitNam", un);
-            data.put("rank_or_section", rk);
-            data.put("dataOfBirth", dob);
-            data.put("age", ag);
-
-            String csv = String.join(",", Arrays.asList(fn, bs, pt, bd, em, ph, st, mt, un, rk, dob, ag));
-            data.put("__CSV__", csv);
-
-            // Disable actions during write
             writeNextBtn.setDisable(true);
-            skipBtn.setDisable(true);
-            stopBtn.setDisable(true);
-
-            // --- STOP any running NFC auto-fill poller to avoid device contention ---
-            Object svcObj = root.getProperties().get("nfc-poller");
-            try (java.util.concurrent.ScheduledExecutorService savedSvc = svcObj instanceof java.util.concurrent.ScheduledExecutorService
-                    ? (java.util.concurrent.ScheduledExecutorService) svcObj
-                    : null) {
-                if (savedSvc != null) {
-                    util.DebugLog.d("Stopping nfc-poller before write (idx=%d).", index[0]);
-                    try {
-                        // best-effort shutdown
-                        savedSvc.shutdownNow();
-                        // remove property so other code knows poller is stopped
-                        root.getProperties().remove("nfc-poller");
-                        // wait briefly for tasks to die (non-blocking; short wait)
-                        try {
-                            savedSvc.awaitTermination(250, java.util.concurrent.TimeUnit.MILLISECONDS);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                        }
-                    } catch (Throwable t) {
-                        util.DebugLog.ex(t, "Error shutting down nfc-poller:");
-                    }
-                }
-
-                overlay.setVisible(true);
-                util.DebugLog.d("Overlay visible -> true (starting write). idx=%d", index[0]);
-
-                status.setText("Writing record " + (index[0] + 1) + " / " + total + " — present card now...");
-
-                Consumer<Boolean> finish = success -> {
-                    util.DebugLog.d("finish called for idx=%d success=%b", index[0], success);
-                    Platform.runLater(() -> {
-                        overlay.setVisible(false);
-                        util.DebugLog.d("Overlay visible -> false (finished). idx=%d success=%b", index[0], success);
-
-                        // Attempt to restart poller if we had one before; give driver a tiny settle
-                        // delay.
-                        if (savedSvc != null) {
-                            util.DebugLog.d("Waiting briefly (200ms) before restarting nfc-poller.");
-                            // spawn a short background task to restart without blocking FX
-                            new Thread(() -> {
-                                try {
-                                    Thread.sleep(200);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                }
-                                try {
-                                    util.DebugLog.d("Restarting nfc-poller after write (idx=%d).", index[0]);
-                                    java.util.concurrent.ScheduledExecutorService newSvc = startNfcAutoFill(root,
-                                            fullName, bsguid, participationType,
-                                            bsgDistrict, email, phoneNumber,
-                                            bsgState, memberTyp, unitNam,
-                                            rank_or_section, dateOfBirth, age,
-                                            false,
-                                            1200);
-                                    if (newSvc != null) {
-                                        root.getProperties().put("nfc-poller", newSvc);
-                                        util.DebugLog.d("nfc-poller restarted successfully.");
-                                    } else {
-                                        util.DebugLog.d("startNfcAutoFill returned null; nfc-poller not restarted.");
-                                    }
-                                } catch (Throwable t) {
-                                    util.DebugLog.ex(t, "Failed to restart nfc-poller:");
-                                }
-                            }, "nfc-restart-thread").start();
-                        }
-
-                        if (success) {
-                            index[0]++;
-                            if (!running[0] || index[0] >= total) {
-                                status.setText("Batch finished. Processed " + Math.min(total, index[0]) + " rows.");
-                                writeNextBtn.setDisable(true);
-                                skipBtn.setDisable(true);
-                                stopBtn.setDisable(true);
-                                util.DebugLog.d("Batch finished. processed=%d", index[0]);
-                                return;
-                            }
-                            fillCurrent.run();
-                            status.setText("Ready for record " + (index[0] + 1) + " / " + total
-                                    + " — Present card and click Write & Next.");
-                            util.DebugLog.d("Ready for next record idx=%d", index[0]);
-                        } else {
-                            // stay on same record
-                            status.setText("Write failed. Present the card again and click Write & Next.");
-                            util.DebugLog.d("Write failed; staying on idx=%d", index[0]);
-                        }
-                        // Re-enable controls for next action (both cases)
-                        writeNextBtn.setDisable(false);
-                        skipBtn.setDisable(false);
-                        stopBtn.setDisable(false);
-                    });
-                };
-
-                try {
-                    util.DebugLog.d("onSave.accept() about to be called for idx=%d", index[0]);
-                    if (onSave != null) {
-                        long before = System.nanoTime();
-                        onSave.accept(data, success -> {
-                            long durMs = (System.nanoTime() - before) / 1_000_000L;
-                            util.DebugLog.d("onSave callback completed (idx=%d) duration=%dms -> result=%b", index[0],
-                                    durMs, success);
-                            finish.accept(success);
-                        });
-                    } else {
-                        util.DebugLog.d("onSave is null; auto-marking success for idx=%d", index[0]);
-                        finish.accept(true);
-                    }
-                } catch (Exception ex) {
-                    util.DebugLog.ex(ex, "Exception while calling onSave for idx=%d", index[0]);
-                    // hide overlay and re-enable UI on error
-                    overlay.setVisible(false);
-                    status.setText("Write failed: " + ex.getMessage());
-                    writeNextBtn.setDisable(false);
-                    skipBtn.setDisable(false);
-                    stopBtn.setDisable(false);
-
-                    // ensure poller restarted if needed
-                    if (savedSvc != null) {
-                        new Thread(() -> {
-                            try {
-                                Thread.sleep(200);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                            }
-                            try {
-                                java.util.concurrent.ScheduledExecutorService newSvc = startNfcAutoFill(root,
-                                        fullName, bsguid, participationType,
-                                        bsgDistrict, email, phoneNumber,
-                                        bsgState, memberTyp, unitNam,
-                                        rank_or_section, dateOfBirth, age,
-                                        false,
-                                        1200);
-                                if (newSvc != null) {
-                                    root.getProperties().put("nfc-poller", newSvc);
-                                }
-                            } catch (Throwable t) {
-                                util.DebugLog.ex(t, "Failed to restart nfc-poller after exception:");
-                            }
-                        }, "nfc-restart-on-error").start();
-                    }
-                }
-            }
+            stopBtn.setDisable(false);
+            engine.start(index[0]);
         });
 
         skipBtn.setOnAction(evt -> {
             util.DebugLog.d("Skip clicked; current idx=%d", index[0]);
-            if (!running[0])
+            if (engine.isRunning()) {
+                engine.skip();
                 return;
+            }
             index[0]++;
             if (index[0] >= total) {
                 status.setText("Reached end of batch.");
@@ -998,27 +819,26 @@ public class EntryForm {
 
         stopBtn.setOnAction(evt -> {
             util.DebugLog.d("Stop clicked at idx=%d", index[0]);
-            running[0] = false;
-            status.setText("Batch stopped by user. Processed " + index[0] + " rows.");
-            writeNextBtn.setDisable(true);
-            skipBtn.setDisable(true);
+            engine.stop();
             stopBtn.setDisable(true);
+            status.setText("Stopping after the current card…");
+        });
+
+        // leaving the screen ends the batch (the card in hand is still saved)
+        root.parentProperty().addListener((o, oldP, newP) -> {
+            if (newP == null)
+                engine.stop();
         });
 
         // optional NFC auto-fill during batch (guarded by NFC_BUSY)
-        ScheduledExecutorService svc = startNfcAutoFill(root,
+        CardEventDispatcher.Subscription sub = startNfcAutoFill(root,
                 fullName, bsguid, participationType,
                 bsgDistrict, email, phoneNumber,
                 bsgState, memberTyp, unitNam,
                 rank_or_section, dateOfBirth, age,
-                false,
-                1200);
-        if (svc != null) {
-            root.getProperties().put("nfc-poller", svc);
-            util.DebugLog.d("NFC auto-fill poller started (svc != null)");
-        } else {
-            util.DebugLog.d("NFC auto-fill poller not started (svc == null)");
-        }
+                false);
+        root.getProperties().put("nfc-poller", sub);
+        util.DebugLog.d("NFC auto-fill subscribed to card events");
 
         util.DebugLog.d("createBatch() end; ready for interaction");
         return root;
@@ -1,6 +1,6 @@
 package ui;
 
-import db.AccessDb;
+import db.ParticipantImportPipeline;
 import javafx.scene.control.Control;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
@@ -12,6 +12,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
@@ -21,22 +22,16 @@ import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import util.ExcelStreamReader;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import util.AppExecutors;
 
 public final class ExcelImportDialog {
 
@@ -86,9 +81,16 @@ public final class ExcelImportDialog {
         table.setPlaceholder(new Label("Sheet preview will appear here"));
         table.setPrefHeight(420);
 
+        ProgressBar progress = new ProgressBar(0);
+        progress.setPrefWidth(260);
+        progress.setVisible(false);
+        Label progressLabel = new Label();
+        progressLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: #455A64;");
+
         // state
         final List<Map<String, String>>[] currentData = new List[] { List.of() };
         final String[] currentSheetName = new String[1];
+        final ParticipantImportPipeline[] running = new ParticipantImportPipeline[1];
 
         // browse action
         // browse action
@@ -119,7 +121,7 @@ public final class ExcelImportDialog {
                 return;
             File f = new File(fileField.getText());
             try {
-                List<Map<String, String>> rows = readSheet(f, newSheet, 200); // preview first 200
+                List<Map<String, String>> rows = ExcelStreamReader.preview(f, newSheet, 200); // preview first 200
                 currentData[0] = rows;
                 currentSheetName[0] = newSheet;
                 buildTable(table, rows);
@@ -132,32 +134,77 @@ public final class ExcelImportDialog {
             }
         });
 
-        // import
+        // import (runs off the FX thread; progress comes back via runLater)
         importBtn.setOnAction(e -> {
             if (currentData[0] == null || currentData[0].isEmpty() || currentSheetName[0] == null) {
                 showAlert(Alert.AlertType.WARNING, "Nothing to import.");
                 return;
             }
 
-            // Re-read full sheet (not just 200 rows)
-            try {
-                List<Map<String, String>> allRows = readSheet(new File(fileField.getText()), currentSheetName[0],
-                        Integer.MAX_VALUE);
-                int n = AccessDb.bulkImportParticipantsRecord(currentSheetName[0], allRows);
-                showAlert(Alert.AlertType.INFORMATION,
-                        "Imported " + n + " row(s) as status='F' with excel_category='" + currentSheetName[0] + "'");
-                stage.setUserData(Integer.valueOf(n));
-                stage.close();
-            } catch (Exception ex) {
-                showAlert(Alert.AlertType.ERROR, "Import failed: " + ex.getMessage());
-            }
+            String sheet = currentSheetName[0];
+            ParticipantImportPipeline pipeline = new ParticipantImportPipeline(
+                    new File(fileField.getText()), sheet,
+                    p -> Platform.runLater(() -> showProgress(progress, progressLabel, p)));
+            running[0] = pipeline;
+
+            browse.setDisable(true);
+            sheetBox.setDisable(true);
+            importBtn.setDisable(true);
+            progress.setVisible(true);
+            progress.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+            progressLabel.setText("Starting import…");
+
+            // Stream the full sheet (not just the 200 preview rows) into the DB
+            AppExecutors.run("excel-import", () -> {
+                try {
+                    int n = pipeline.run();
+                    Platform.runLater(() -> {
+                        running[0] = null;
+                        showAlert(Alert.AlertType.INFORMATION,
+                                "Imported " + n + " row(s) as status='F' with excel_category='" + sheet + "'");
+                        stage.setUserData(Integer.valueOf(n));
+                        stage.close();
+                    });
+                } catch (Exception ex) {
+                    boolean cancelled = ex instanceof CancellationException;
+                    Platform.runLater(() -> {
+                        running[0] = null;
+                        if (cancelled) {
+                            showAlert(Alert.AlertType.INFORMATION, "Import cancelled. Nothing was saved.");
+                            stage.setUserData(Integer.valueOf(-1));
+                            stage.close();
+                            return;
+                        }
+                        showAlert(Alert.AlertType.ERROR, "Import failed: " + ex.getMessage());
+                        browse.setDisable(false);
+                        sheetBox.setDisable(false);
+                        importBtn.setDisable(false);
+                        progress.setVisible(false);
+                        progressLabel.setText("");
+                    });
+                }
+            });
         });
 
         cancelBtn.setOnAction(e -> {
+            if (running[0] != null) {
+                // the worker closes the dialog once the rollback is done
+                running[0].cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("Cancelling…");
+                return;
+            }
             stage.setUserData(Integer.valueOf(-1));
             stage.close();
         });
 
+        stage.setOnCloseRequest(e -> {
+            if (running[0] != null) {
+                e.consume();
+                cancelBtn.fire();
+            }
+        });
+
         // layout
         GridPane top = new GridPane();
         top.setHgap(10);
@@ -168,8 +215,9 @@ public final class ExcelImportDialog {
         top.add(new Label("Sheet:"), 0, 1);
         top.add(sheetBox, 1, 1);
 
-        VBox card = new VBox(12, top, table, new HBox(10, importBtn, cancelBtn));
-        ((HBox) card.getChildren().get(card.getChildren().size() - 1)).setAlignment(Pos.CENTER_RIGHT);
+        HBox actions = new HBox(10, progressLabel, progress, importBtn, cancelBtn);
+        actions.setAlignment(Pos.CENTER_RIGHT);
+        VBox card = new VBox(12, top, table, actions);
         card.setPadding(new Insets(16));
         card.setStyle("""
                     -fx-background-color: white;
@@ -192,6 +240,21 @@ public final class ExcelImportDialog {
 
     // ---- helpers ----
 
+    private static void showProgress(ProgressBar bar, Label label, ParticipantImportPipeline.Progress p) {
+        if (p.totalEstimate > 0)
+            bar.setProgress(Math.min(1.0, (double) p.written / p.totalEstimate));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Read ").append(p.parsed);
+        if (p.totalEstimate > 0)
+            sb.append(" / ~").append(p.totalEstimate);
+        sb.append(" · saved ").append(p.written);
+        sb.append(String.format(" · %.0f rows/s", p.rowsPerSec));
+        if (p.etaSeconds >= 0 && !p.done)
+            sb.append(" · ").append(p.etaSeconds / 60).append("m ").append(p.etaSeconds % 60).append("s left");
+        label.setText(sb.toString());
+    }
+
     private static void buildTable(TableView<Map<String, String>> table, List<Map<String, String>> rows) {
         table.getItems().clear();
         table.getColumns().clear();
@@ -233,12 +296,8 @@ public final class ExcelImportDialog {
 
     private static void loadSheetsIntoCombo(File file, ComboBox<String> sheetBox) {
         List<String> names = new ArrayList<>();
-        try (FileInputStream fis = new FileInputStream(file)) {
-            try (Workbook wb = WorkbookFactory.create(fis)) {
-                int n = wb.getNumberOfSheets();
-                for (int i = 0; i < n; i++)
-                    names.add(wb.getSheetName(i));
-            }
+        try {
+            names = ExcelStreamReader.sheetNames(file);
         } catch (Exception ex) {
             showAlert(Alert.AlertType.ERROR, "Failed to open Excel: " + ex.getMessage());
         }
@@ -248,82 +307,6 @@ public final class ExcelImportDialog {
             sheetBox.getSelectionModel().selectFirst();
     }
 
-    /**
-     * Read a sheet into list of maps using first row as headers. Limit rows if >0.
-     */
-    private static List<Map<String, String>> readSheet(File file, String sheetName, int limit) throws Exception {
-        try (FileInputStream fis = new FileInputStream(file);
-                Workbook wb = WorkbookFactory.create(fis)) {
-
-            Sheet sh = wb.getSheet(sheetName);
-            if (sh == null)
-                throw new IllegalArgumentException("Sheet not found: " + sheetName);
-
-            Iterator<Row> it = sh.iterator();
-            if (!it.hasNext())
-                return List.of();
-
-            // headers
-            Row header = it.next();
-            List<String> headers = new ArrayList<>();
-            for (Cell c : header)
-                headers.add(getCellString(c).trim());
-
-            List<Map<String, String>> out = new ArrayList<>();
-            int count = 0;
-            while (it.hasNext()) {
-                Row r = it.next();
-                Map<String, String> row = new LinkedHashMap<>();
-                for (int i = 0; i < headers.size(); i++) {
-                    String h = headers.get(i);
-                    if (h == null || h.isBlank())
-                        continue;
-                    Cell c = r.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                    row.put(h, c == null ? "" : getCellString(c));
-                }
-                // ignore fully-empty rows
-                boolean any = row.values().stream().anyMatch(v -> v != null && !v.trim().isEmpty());
-                if (any)
-                    out.add(row);
-                if (limit != Integer.MAX_VALUE && ++count >= limit)
-                    break;
-            }
-            return out;
-        }
-    }
-
-    private static String getCellString(Cell cell) {
-        if (cell == null)
-            return "";
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> {
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    java.util.Date d = cell.getDateCellValue();
-                    java.time.LocalDate ld = d.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
-                    yield ld.toString(); // yyyy-MM-dd
-                } else {
-                    java.math.BigDecimal bd = new java.math.BigDecimal(cell.getNumericCellValue());
-                    yield bd.stripTrailingZeros().toPlainString();
-                }
-            }
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-            case FORMULA -> {
-                try {
-                    yield cell.getStringCellValue();
-                } catch (Exception ex) {
-                    try {
-                        java.math.BigDecimal bd = new java.math.BigDecimal(cell.getNumericCellValue());
-                        yield bd.stripTrailingZeros().toPlainString();
-                    } catch (Exception e2) {
-                        yield cell.getCellFormula();
-                    }
-                }
-            }
-            default -> "";
-        };
-    }
-
     private static void styleField(Control c) {
         c.setStyle("""
                     -fx-background-color: white;
@@ -0,0 +1,176 @@
+package ui;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import controller.AttendanceController;
+import dto.AttendanceEvent;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.stage.Window;
+import service.GateLanes;
+
+/**
+ * Binds each attached reader to an event, a location and ENTRY / EXIT and
+ * runs them as parallel gates (GateLanes) while the dialog is open. Every
+ * tap is listed with its gate and result.
+ */
+public final class GateLanesDialog {
+
+    private GateLanesDialog() {
+    }
+
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final int MAX_LOG = 500;
+
+    /** One reader's row of controls. */
+    private static final class Row {
+        final String readerName;
+        final CheckBox enabled;
+        final ComboBox<AttendanceEvent> event = new ComboBox<>();
+        final ComboBox<String> location = new ComboBox<>();
+        final ComboBox<String> mode = new ComboBox<>();
+
+        Row(String readerName, List<AttendanceEvent> events) {
+            this.readerName = readerName;
+            this.enabled = new CheckBox(readerName);
+            event.getItems().addAll(events);
+            event.setPromptText("Select Event");
+            location.setPromptText("Select room");
+            location.setDisable(true);
+            mode.getItems().addAll("ENTRY", "EXIT");
+            mode.setValue("ENTRY");
+            event.valueProperty().addListener((obs, o, ev) -> {
+                location.getItems().clear();
+                location.setValue(null);
+                location.setDisable(ev == null || ev.locations == null || ev.locations.isEmpty());
+                if (ev != null && ev.locations != null)
+                    location.getItems().addAll(ev.locations);
+            });
+        }
+
+        boolean ready() {
+            return enabled.isSelected() && event.getValue() != null && location.getValue() != null;
+        }
+
+        GateLanes.Gate gate() {
+            GateLanes.Gate g = new GateLanes.Gate();
+            g.readerName = readerName;
+            g.eventId = event.getValue().id;
+            g.eventName = event.getValue().name;
+            g.location = location.getValue();
+            g.mode = mode.getValue();
+            return g;
+        }
+
+        void lock(boolean locked) {
+            enabled.setDisable(locked);
+            event.setDisable(locked);
+            location.setDisable(locked || location.getItems().isEmpty());
+            mode.setDisable(locked);
+        }
+    }
+
+    /** Show the dialog; gates run between Start and Stop / close. */
+    public static void show(Window owner) {
+        List<String> readers = GateLanes.readerNames();
+        List<AttendanceEvent> events = new AttendanceController().getAllEvents();
+
+        Dialog<Void> dlg = new Dialog<>();
+        dlg.setTitle("Gates");
+        if (owner != null)
+            dlg.initOwner(owner);
+        dlg.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        VBox root = new VBox(14);
+        root.setPadding(new Insets(18));
+        root.setPrefWidth(820);
+
+        Label title = new Label("🚪 Reader Gates");
+        title.setStyle("-fx-font-size:20px; -fx-font-weight:800; -fx-text-fill:#1565C0;");
+        root.getChildren().add(title);
+
+        GridPane grid = new GridPane();
+        grid.setHgap(12);
+        grid.setVgap(10);
+        grid.addRow(0, bold("Reader"), bold("Event"), bold("Location"), bold("Mode"));
+
+        List<Row> rows = new ArrayList<>();
+        for (String name : readers) {
+            Row r = new Row(name, events);
+            rows.add(r);
+            grid.addRow(rows.size(), r.enabled, r.event, r.location, r.mode);
+        }
+        if (readers.isEmpty())
+            grid.add(new Label("No NFC readers detected."), 0, 1, 4, 1);
+        root.getChildren().add(grid);
+
+        Label status = new Label(readers.size() + " reader(s) attached");
+        status.setStyle("-fx-font-weight:700; -fx-text-fill:#0D47A1;");
+
+        ListView<String> log = new ListView<>();
+        log.setPrefHeight(260);
+        VBox.setVgrow(log, Priority.ALWAYS);
+
+        GateLanes gates = new GateLanes((gate, uid, result) -> {
+            String line = LocalTime.now().format(TIME_FMT) + "  " + gate.readerName + "  [" + gate.mode + " "
+                    + gate.location + "]  " + uid + "  "
+                    + (result.participant != null && result.participant.fullName != null
+                            ? result.participant.fullName + "  " : "")
+                    + (result.success ? "✔ " + result.message : "✘ " + result.message);
+            Platform.runLater(() -> {
+                log.getItems().add(0, line);
+                if (log.getItems().size() > MAX_LOG)
+                    log.getItems().remove(MAX_LOG, log.getItems().size());
+            });
+        });
+
+        Button startBtn = new Button("Start");
+        Button stopBtn = new Button("Stop");
+        stopBtn.setDisable(true);
+        startBtn.setDisable(readers.isEmpty());
+
+        startBtn.setOnAction(e -> {
+            List<GateLanes.Gate> selected = new ArrayList<>();
+            for (Row r : rows) {
+                if (r.ready())
+                    selected.add(r.gate());
+            }
+            if (selected.isEmpty()) {
+                status.setText("Tick at least one reader and pick its event and location.");
+                return;
+            }
+            gates.start(selected);
+            rows.forEach(r -> r.lock(true));
+            startBtn.setDisable(true);
+            stopBtn.setDisable(false);
+            status.setText(selected.size() + " gate(s) running");
+        });
+        stopBtn.setOnAction(e -> {
+            gates.stop();
+            rows.forEach(r -> r.lock(false));
+            startBtn.setDisable(false);
+            stopBtn.setDisable(true);
+            status.setText("Gates stopped");
+        });
+
+        HBox controls = new HBox(10, startBtn, stopBtn, status);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        root.getChildren().addAll(controls, log);
+
+        dlg.getDialogPane().setContent(root);
+        dlg.setOnHidden(e -> gates.stop());
+        dlg.showAndWait();
+    }
+
+    private static Label bold(String s) {
+        Label l = new Label(s);
+        l.setStyle("-fx-font-weight:700;");
+        return l;
+    }
+}
@@ -2,10 +2,17 @@ package ui;
 
 import cloudSync.CloudSync;
 import cloudSync.CloudSyncDenied;
+import cloudSync.SyncEngine;
+import db.AccessDb;
+import db.ParticipantIndex;
+import nfc.CardEventDispatcher;
+import nfc.ReaderSession;
+import repository.AttendanceJournal;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import util.AppExecutors;
 
 public class MainUI extends Application {
     @Override
@@ -15,6 +22,9 @@ public class MainUI extends Application {
         Dashboard dashboard = new Dashboard();
         root.setCenter(dashboard);
 
+        ParticipantIndex.warmUpAsync();
+        ReaderSession.startWatcher();
+        AttendanceJournal.startAsync();
         CloudSync.startBackgroundSync();
         CloudSyncDenied.startBackgroundSync();
         
@@ -27,6 +37,20 @@ public class MainUI extends Application {
                 getClass().getResource("/ui/styles/app.css").toExternalForm());
     }
 
+    @Override
+    public void stop() {
+        CardEventDispatcher.shutdown();
+        ReaderSession.shutdown();
+        // an upload pass in progress finishes marking its batch
+        SyncEngine.shutdown(3_000);
+        // taps being marked finish before the journal is flushed
+        AppExecutors.shutdown(3_000);
+        // let queued taps reach the .accdb; anything left is replayed next start
+        AttendanceJournal.shutdown(5_000);
+        // release pooled DB connections so the .accdb is flushed and unlocked
+        AccessDb.shutdown();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -14,6 +14,7 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import util.AppExecutors;
 
 public class EventFormPage {
 
@@ -109,7 +110,7 @@ public class EventFormPage {
             save.setDisable(true);
             loader.show();
 
-            new Thread(() -> {
+            AppExecutors.run("event-save", () -> {
                 try {
                     onSubmit.accept(ev);
                     javafx.application.Platform.runLater(() -> new Alert(Alert.AlertType.INFORMATION,
@@ -125,7 +126,7 @@ public class EventFormPage {
                         save.setDisable(false);
                     });
                 }
-            }, "event-save-thread").start();
+            });
         });
 
         LoaderOverlay loader = LoaderOverlay.wrap(root);
@@ -0,0 +1,146 @@
+package util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the UI sends short background jobs (a tap to mark, events to load,
+ * a form to save) instead of starting a platform thread per action.
+ *
+ * Every task gets its own virtual thread, named after the task so DebugLog
+ * lines still say what ran. Chains (look something up, then act on it) are
+ * built by composing the returned CompletableFutures; a failure anywhere in
+ * the chain completes it exceptionally. Per-name counters (submitted /
+ * completed / failed / running, time taken) are kept for diagnostics.
+ *
+ * Long-lived loops (card dispatcher, reader watcher, journal drainer) keep
+ * their own threads.
+ */
+public final class AppExecutors {
+
+    private AppExecutors() {
+    }
+
+    /** Counters for one task name. */
+    public static final class TaskStats {
+        public long submitted;
+        public long completed;
+        public long failed;
+        public long running;
+        public long totalMs;
+        public long maxMs;
+    }
+
+    private static final class Counters {
+        final LongAdder submitted = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder running = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("app-task-", 0).factory());
+    private static final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /* ================= SUBMIT ================= */
+
+    /** Run {@code task} in the background. */
+    public static CompletableFuture<Void> run(String name, Runnable task) {
+        return supply(name, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /** Compute a value in the background. */
+    public static <T> CompletableFuture<T> supply(String name, Callable<T> task) {
+        Counters c = counters.computeIfAbsent(name, k -> new Counters());
+        CompletableFuture<T> result = new CompletableFuture<>();
+        c.submitted.increment();
+        try {
+            EXECUTOR.execute(() -> {
+                Thread.currentThread().setName(name);
+                c.running.increment();
+                long start = System.nanoTime();
+                try {
+                    result.complete(task.call());
+                    c.completed.increment();
+                } catch (Throwable t) {
+                    c.failed.increment();
+                    DebugLog.ex(t, "[AppExecutors] task %s failed", name);
+                    result.completeExceptionally(t);
+                } finally {
+                    long took = System.nanoTime() - start;
+                    c.running.decrement();
+                    c.totalNanos.add(took);
+                    c.maxNanos.accumulateAndGet(took, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            c.failed.increment();
+            DebugLog.d("[AppExecutors] task %s rejected: shutting down", name);
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    /* ================= STATS ================= */
+
+    /** Counters per task name, sorted by name. */
+    public static Map<String, TaskStats> stats() {
+        Map<String, TaskStats> out = new TreeMap<>();
+        counters.forEach((name, c) -> {
+            TaskStats s = new TaskStats();
+            s.submitted = c.submitted.sum();
+            s.completed = c.completed.sum();
+            s.failed = c.failed.sum();
+            s.running = c.running.sum();
+            s.totalMs = TimeUnit.NANOSECONDS.toMillis(c.totalNanos.sum());
+            s.maxMs = TimeUnit.NANOSECONDS.toMillis(c.maxNanos.get());
+            out.put(name, s);
+        });
+        return out;
+    }
+
+    /* ================= SHUTDOWN ================= */
+
+    /**
+     * Stop taking tasks and give running ones up to {@code timeoutMs} to
+     * finish; true when all did. Stragglers are logged and left to run:
+     * most are database writes, and UCanAccess does not like being
+     * interrupted mid-statement.
+     */
+    public static boolean shutdown(long timeoutMs) {
+        EXECUTOR.shutdown();
+        try {
+            if (EXECUTOR.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS))
+                return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        // no shutdownNow(): the journal and AccessDb still close after this
+        DebugLog.d("[AppExecutors] tasks still running at shutdown: %s", running());
+        return false;
+    }
+
+    private static String running() {
+        StringBuilder sb = new StringBuilder();
+        counters.forEach((name, c) -> {
+            long n = c.running.sum();
+            if (n > 0)
+                sb.append(sb.length() == 0 ? "" : ", ").append(name).append('=').append(n);
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,337 @@
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Streaming reader for participant sheets.
+ *
+ * .xlsx files are parsed with POI's SAX event API, so memory stays flat no
+ * matter how many rows the sheet has: sheet names come from workbook.xml
+ * only, a preview stops parsing after N rows, and a full read hands rows to a
+ * callback one at a time. Legacy .xls files (at most 65k rows) still go
+ * through WorkbookFactory.
+ *
+ * Rows are maps keyed by the first row's headers. Dates come out as
+ * yyyy-MM-dd and numbers in plain notation, as the DOM-based reader did.
+ */
+public final class ExcelStreamReader {
+
+    private ExcelStreamReader() {
+    }
+
+    /** Receives one non-empty data row; return false to stop reading. */
+    @FunctionalInterface
+    public interface RowHandler {
+        boolean onRow(Map<String, String> row) throws Exception;
+    }
+
+    /* ================= PUBLIC API ================= */
+
+    public static List<String> sheetNames(File file) throws Exception {
+        List<String> names = new ArrayList<>();
+        if (!isXlsx(file)) {
+            try (FileInputStream fis = new FileInputStream(file);
+                    Workbook wb = WorkbookFactory.create(fis)) {
+                for (int i = 0; i < wb.getNumberOfSheets(); i++)
+                    names.add(wb.getSheetName(i));
+            }
+            return names;
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            while (it.hasNext()) {
+                InputStream sheet = it.next(); // getSheetName() names the sheet just opened
+                names.add(it.getSheetName());
+                sheet.close();
+            }
+        }
+        return names;
+    }
+
+    /** First {@code limit} non-empty data rows of the sheet. */
+    public static List<Map<String, String>> preview(File file, String sheetName, int limit) throws Exception {
+        List<Map<String, String>> out = new ArrayList<>();
+        if (limit <= 0)
+            return out;
+        stream(file, sheetName, row -> {
+            out.add(row);
+            return out.size() < limit;
+        });
+        return out;
+    }
+
+    /** Feed every non-empty data row to {@code handler}. Returns rows delivered. */
+    public static long stream(File file, String sheetName, RowHandler handler) throws Exception {
+        RowAssembler rows = new RowAssembler(handler);
+        if (isXlsx(file))
+            streamXlsx(file, sheetName, rows);
+        else
+            readLegacy(file, sheetName, rows);
+        return rows.delivered;
+    }
+
+    /**
+     * Data rows the sheet claims to have, from its {@code <dimension>} element
+     * (header excluded). Only the start of the sheet XML is read. Returns -1
+     * when unknown, e.g. for .xls files or sheets written without a dimension.
+     */
+    public static long estimateRowCount(File file, String sheetName) {
+        try {
+            if (!isXlsx(file))
+                return -1;
+            try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+                XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+                while (it.hasNext()) {
+                    try (InputStream sheet = it.next()) {
+                        if (!it.getSheetName().equals(sheetName))
+                            continue;
+
+                        long[] rows = { -1 };
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        parser.setContentHandler(new org.xml.sax.helpers.DefaultHandler() {
+                            @Override
+                            public void startElement(String uri, String local, String qName,
+                                    org.xml.sax.Attributes atts) {
+                                if ("dimension".equals(local)) {
+                                    String ref = atts.getValue("ref");
+                                    int colon = ref == null ? -1 : ref.indexOf(':');
+                                    if (colon > 0)
+                                        rows[0] = Math.max(0, new CellReference(ref.substring(colon + 1)).getRow());
+                                    throw new StopReading();
+                                }
+                                if ("sheetData".equals(local))
+                                    throw new StopReading();
+                            }
+                        });
+                        try {
+                            parser.parse(new InputSource(sheet));
+                        } catch (StopReading done) {
+                            // dimension found (or sheet data reached without one)
+                        }
+                        return rows[0];
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            DebugLog.ex(ex, "[ExcelStreamReader] could not estimate row count for %s", sheetName);
+        }
+        return -1;
+    }
+
+    /* ================= XLSX (SAX) ================= */
+
+    private static boolean isXlsx(File file) throws Exception {
+        return FileMagic.valueOf(file) == FileMagic.OOXML;
+    }
+
+    // thrown from the SAX callback to abandon the rest of the sheet
+    private static final class StopReading extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StopReading() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static void streamXlsx(File file, String sheetName, RowAssembler rows) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                try (InputStream sheet = it.next()) {
+                    if (!it.getSheetName().equals(sheetName))
+                        continue;
+
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            styles, strings, rows, new IsoDataFormatter(), false));
+                    try {
+                        parser.parse(new InputSource(sheet));
+                    } catch (StopReading done) {
+                        // preview limit reached or handler asked to stop
+                    }
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Sheet not found: " + sheetName);
+    }
+
+    /** Formats numeric cells the way the old DOM reader did. */
+    private static final class IsoDataFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            return formatRawCellContents(value, formatIndex, formatString, false);
+        }
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value))
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            return new BigDecimal(value).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /** Turns cell events into header-keyed row maps. */
+    private static final class RowAssembler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final TreeMap<Integer, String> headers = new TreeMap<>();
+        private final TreeMap<Integer, String> cells = new TreeMap<>();
+        private boolean headerDone = false;
+        private long delivered = 0;
+
+        RowAssembler(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void cell(String ref, String formattedValue, XSSFComment comment) {
+            if (ref == null || formattedValue == null)
+                return;
+            cells.put((int) new CellReference(ref).getCol(), formattedValue);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!headerDone) {
+                // first row seen is the header row
+                for (Map.Entry<Integer, String> e : cells.entrySet())
+                    headers.put(e.getKey(), e.getValue().trim());
+                headerDone = true;
+                return;
+            }
+            emit(cells);
+        }
+
+        void emit(Map<Integer, String> byColumn) {
+            Map<String, String> row = new LinkedHashMap<>();
+            boolean any = false;
+            for (Map.Entry<Integer, String> h : headers.entrySet()) {
+                if (h.getValue().isBlank())
+                    continue;
+                String v = byColumn.getOrDefault(h.getKey(), "");
+                row.put(h.getValue(), v);
+                if (!any && !v.trim().isEmpty())
+                    any = true;
+            }
+            // ignore fully-empty rows
+            if (!any)
+                return;
+
+            delivered++;
+            boolean more;
+            try {
+                more = handler.onRow(row);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+            if (!more)
+                throw new StopReading();
+        }
+    }
+
+    /* ================= XLS (DOM fallback) ================= */
+
+    private static void readLegacy(File file, String sheetName, RowAssembler rows) throws Exception {
+        try (FileInputStream fis = new FileInputStream(file);
+                Workbook wb = WorkbookFactory.create(fis)) {
+
+            Sheet sh = wb.getSheet(sheetName);
+            if (sh == null)
+                throw new IllegalArgumentException("Sheet not found: " + sheetName);
+
+            Iterator<Row> it = sh.iterator();
+            if (!it.hasNext())
+                return;
+
+            for (Cell c : it.next())
+                rows.headers.put(c.getColumnIndex(), getCellString(c).trim());
+            rows.headerDone = true;
+
+            Map<Integer, String> byColumn = new TreeMap<>();
+            try {
+                while (it.hasNext()) {
+                    byColumn.clear();
+                    for (Cell c : it.next())
+                        byColumn.put(c.getColumnIndex(), getCellString(c));
+                    rows.emit(byColumn);
+                }
+            } catch (StopReading done) {
+                // preview limit reached or handler asked to stop
+            }
+        }
+    }
+
+    private static String getCellString(Cell cell) {
+        if (cell == null)
+            return "";
+        return switch (cell.getCellType()) {
+            case STRING -> cell.getStringCellValue();
+            case NUMERIC -> {
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    java.util.Date d = cell.getDateCellValue();
+                    java.time.LocalDate ld = d.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+                    yield ld.toString(); // yyyy-MM-dd
+                } else {
+                    BigDecimal bd = new BigDecimal(cell.getNumericCellValue());
+                    yield bd.stripTrailingZeros().toPlainString();
+                }
+            }
+            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
+            case FORMULA -> {
+                try {
+                    yield cell.getStringCellValue();
+                } catch (Exception ex) {
+                    try {
+                        BigDecimal bd = new BigDecimal(cell.getNumericCellValue());
+                        yield bd.stripTrailingZeros().toPlainString();
+                    } catch (Exception e2) {
+                        yield cell.getCellFormula();
+                    }
+                }
+            }
+            default -> "";
+        };
+    }
+}
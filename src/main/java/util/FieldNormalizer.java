@@ -0,0 +1,319 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Phone and date-of-birth normalization for roster imports.
+ *
+ * Same results as the original AccessDb helpers, without their per-call
+ * cost:
+ * - dates in the usual d/M/yyyy-style layouts are read by a single character
+ * scan and resolved by hand (no formatter, no exception per miss); anything
+ * else goes through the original pattern list, with the formatters built once;
+ * - phones are reduced to digits with one pass over a char buffer instead of
+ * a regex.
+ *
+ * An instance adds a per-column fast path: once the first LEARN_SAMPLE dates
+ * of a column all resolved with the same layout, that layout is tried first
+ * for the rest of the column. This is what settles ambiguous values like
+ * 05/03/2000 in a column that is otherwise clearly month-first.
+ */
+public final class FieldNormalizer {
+
+    /** Dates sampled before a column's layout is locked in. */
+    static final int LEARN_SAMPLE = 32;
+
+    /** Batches smaller than this are normalized on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 2_048;
+
+    // The original lookup order. Index = layout id.
+    private static final String[] DOB_PATTERNS = {
+            "yyyy-MM-dd", "dd/MM/yyyy", "dd-MM-yyyy", "MM/dd/yyyy",
+            "dd.MM.yyyy", "d/M/yyyy", "d-M-yyyy", "M/d/yyyy"
+    };
+    private static final DateTimeFormatter[] DOB_FORMATTERS = new DateTimeFormatter[DOB_PATTERNS.length];
+    static {
+        for (int i = 0; i < DOB_PATTERNS.length; i++)
+            DOB_FORMATTERS[i] = DateTimeFormatter.ofPattern(DOB_PATTERNS[i]);
+    }
+
+    // layout descriptors, parallel to DOB_PATTERNS
+    private static final boolean[] YEAR_FIRST = { true, false, false, false, false, false, false, false };
+    private static final char[] SEPARATOR = { '-', '/', '-', '/', '.', '/', '-', '/' };
+    private static final boolean[] MONTH_FIRST = { true, false, false, true, false, false, false, true };
+    private static final boolean[] TWO_DIGITS = { true, true, true, true, true, false, false, false };
+
+    private static final int NO_LAYOUT = -1;
+
+    // per-column learning state for dateOfBirth
+    private final Object learnLock = new Object();
+    private volatile int learnedLayout = NO_LAYOUT;
+    private int sampleLayout = NO_LAYOUT;
+    private int samples = 0;
+    private boolean learningDone = false;
+
+    /* ================= DATE OF BIRTH ================= */
+
+    /** ISO yyyy-MM-dd for a recognised date, else null. Stateless. */
+    public static String normalizeDob(String raw) {
+        if (raw == null)
+            return null;
+        String s = raw.trim();
+        if (s.isEmpty())
+            return null;
+
+        long shape = scanDate(s);
+        if (shape == UNKNOWN_SHAPE)
+            return slowDob(s);
+        for (int i = 0; i < DOB_PATTERNS.length; i++) {
+            String iso = resolve(shape, i);
+            if (iso != null)
+                return iso;
+        }
+        // ISO_LOCAL_DATE accepts nothing here that yyyy-MM-dd did not
+        return null;
+    }
+
+    /** Like {@link #normalizeDob(String)}, using and training this column's layout. */
+    public String normalizeDobColumn(String raw) {
+        if (raw == null)
+            return null;
+        String s = raw.trim();
+        if (s.isEmpty())
+            return null;
+
+        long shape = scanDate(s);
+        if (shape == UNKNOWN_SHAPE)
+            return slowDob(s);
+
+        int learned = learnedLayout;
+        if (learned != NO_LAYOUT) {
+            String iso = resolve(shape, learned);
+            if (iso != null)
+                return iso;
+        }
+
+        for (int i = 0; i < DOB_PATTERNS.length; i++) {
+            String iso = resolve(shape, i);
+            if (iso != null) {
+                if (!learningDone)
+                    learn(i);
+                return iso;
+            }
+        }
+        return null;
+    }
+
+    private void learn(int layout) {
+        synchronized (learnLock) {
+            if (learningDone)
+                return;
+            if (samples == 0)
+                sampleLayout = layout;
+            else if (sampleLayout != layout) {
+                // mixed layouts: keep the plain ordered lookup
+                learningDone = true;
+                DebugLog.d("[FieldNormalizer] mixed date layouts; not learning a column format");
+                return;
+            }
+            if (++samples >= LEARN_SAMPLE) {
+                learningDone = true;
+                learnedLayout = layout;
+                DebugLog.d("[FieldNormalizer] date column learned as %s", DOB_PATTERNS[layout]);
+            }
+        }
+    }
+
+    // Shape packed in a long: year << 24 | first << 16 | second << 8 |
+    // two-digit flags (bits 4, 5) | separator code (bits 1-2) | yearFirst (bit 0).
+    private static final long UNKNOWN_SHAPE = -1L;
+
+    /**
+     * Recognises {@code yyyy<sep>n<sep>n} and {@code n<sep>n<sep>yyyy} with
+     * 1-2 digit day/month fields, a 4-digit year and one of - / . used twice.
+     */
+    private static long scanDate(String s) {
+        int len = s.length();
+        if (len < 8 || len > 10)
+            return UNKNOWN_SHAPE;
+
+        int[] value = new int[3];
+        int[] width = new int[3];
+        char sep = 0;
+        int field = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                value[field] = value[field] * 10 + (ch - '0');
+                width[field]++;
+            } else if (ch == '-' || ch == '/' || ch == '.') {
+                if (field == 2 || width[field] == 0 || (sep != 0 && ch != sep))
+                    return UNKNOWN_SHAPE;
+                sep = ch;
+                field++;
+            } else {
+                return UNKNOWN_SHAPE;
+            }
+        }
+        if (field != 2 || width[2] == 0)
+            return UNKNOWN_SHAPE;
+
+        boolean yearFirst = width[0] == 4;
+        int year, first, second, w1, w2;
+        if (yearFirst) {
+            year = value[0];
+            first = value[1];
+            second = value[2];
+            w1 = width[1];
+            w2 = width[2];
+        } else {
+            year = value[2];
+            first = value[0];
+            second = value[1];
+            w1 = width[0];
+            w2 = width[1];
+            if (width[2] != 4)
+                return UNKNOWN_SHAPE;
+        }
+        // year 0 is rejected by yyyy but accepted by the ISO fallback
+        if (w1 > 2 || w2 > 2 || year == 0)
+            return UNKNOWN_SHAPE;
+
+        int sepCode = sep == '-' ? 0 : sep == '/' ? 1 : 2;
+        return ((long) year << 24) | ((long) first << 16) | ((long) second << 8)
+                | ((long) (w1 - 1) << 4) | ((long) (w2 - 1) << 5)
+                | ((long) sepCode << 1) | (yearFirst ? 1 : 0);
+    }
+
+    /** ISO date if the scanned shape parses under layout i, with SMART resolving. */
+    private static String resolve(long shape, int i) {
+        boolean yearFirst = (shape & 1) != 0;
+        char sep = switch ((int) ((shape >> 1) & 3)) {
+            case 0 -> '-';
+            case 1 -> '/';
+            default -> '.';
+        };
+        if (yearFirst != YEAR_FIRST[i] || sep != SEPARATOR[i])
+            return null;
+
+        boolean bothTwo = ((shape >> 4) & 1) == 1 && ((shape >> 5) & 1) == 1;
+        if (TWO_DIGITS[i] && !bothTwo)
+            return null;
+
+        int year = (int) (shape >>> 24);
+        int first = (int) ((shape >> 16) & 0xFF);
+        int second = (int) ((shape >> 8) & 0xFF);
+        int month = MONTH_FIRST[i] ? first : second;
+        int day = MONTH_FIRST[i] ? second : first;
+
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31)
+            return null;
+        // ResolverStyle.SMART pulls 30/31 Feb etc. back to the month's last day
+        int monthLength = java.time.Month.of(month).length(java.time.Year.isLeap(year));
+        if (day > monthLength)
+            day = monthLength;
+
+        char[] out = new char[10];
+        out[0] = (char) ('0' + year / 1000);
+        out[1] = (char) ('0' + year / 100 % 10);
+        out[2] = (char) ('0' + year / 10 % 10);
+        out[3] = (char) ('0' + year % 10);
+        out[4] = '-';
+        out[5] = (char) ('0' + month / 10);
+        out[6] = (char) ('0' + month % 10);
+        out[7] = '-';
+        out[8] = (char) ('0' + day / 10);
+        out[9] = (char) ('0' + day % 10);
+        return new String(out);
+    }
+
+    // the original loop, for shapes the scanner does not cover
+    private static String slowDob(String s) {
+        for (DateTimeFormatter fmt : DOB_FORMATTERS) {
+            try {
+                return LocalDate.parse(s, fmt).toString();
+            } catch (Exception ignore) {
+            }
+        }
+        try {
+            return LocalDate.parse(s).toString();
+        } catch (Exception ignore) {
+        }
+        return null;
+    }
+
+    /* ================= PHONE ================= */
+
+    // Examples:
+    // "9.186E11" -> "+918638281911"
+    // "0918638281911" -> "+918638281911"
+    // "8638281911" -> "+918638281911"
+    // "91918638281911" -> "+918638281911"
+    /** +E.164 (India) phone, or "" when there are no digits. Stateless. */
+    public static String normalizePhone(String raw) {
+        if (raw == null)
+            return "";
+
+        // 3 spare slots in front for a "+91" prefix
+        char[] buf = new char[raw.length() + 3];
+        int end = 3;
+        for (int i = 0; i < raw.length(); i++) {
+            char ch = raw.charAt(i);
+            if (ch >= '0' && ch <= '9')
+                buf[end++] = ch;
+        }
+        int start = 3;
+
+        // remove 00/0 prefixes
+        while (end - start >= 2 && buf[start] == '0' && buf[start + 1] == '0')
+            start += 2;
+        if (end - start >= 1 && buf[start] == '0')
+            start++;
+
+        int len = end - start;
+        // collapse accidental 9191... once
+        if (len == 13 && startsWith91(buf, start) && startsWith91(buf, start + 2)) {
+            start += 2;
+            len -= 2;
+        }
+
+        if (len == 12 && startsWith91(buf, start)) {
+            buf[--start] = '+'; // already with country
+            return new String(buf, start, len + 1);
+        }
+        if (len == 10) {
+            buf[--start] = '1'; // add country
+            buf[--start] = '9';
+            buf[--start] = '+';
+            return new String(buf, start, len + 3);
+        }
+
+        if (len > 12 && startsWith91(buf, start))
+            len = 12;
+        if (len == 0)
+            return "";
+        buf[--start] = '+';
+        return new String(buf, start, len + 1);
+    }
+
+    private static boolean startsWith91(char[] buf, int at) {
+        return buf[at] == '9' && buf[at + 1] == '1';
+    }
+
+    /* ================= BATCH ================= */
+
+    /**
+     * Applies {@code fn} to every row, on the common fork-join pool when the
+     * batch is at least PARALLEL_THRESHOLD rows and the pool has more than one
+     * worker. Output order matches input.
+     */
+    public static <T, R> List<R> mapAll(List<T> rows, Function<T, R> fn) {
+        if (rows.size() < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2)
+            return rows.stream().map(fn).toList();
+        return rows.parallelStream().map(fn).toList();
+    }
+}
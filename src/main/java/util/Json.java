@@ -0,0 +1,26 @@
+package util;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * The app's one ObjectMapper. Building a mapper is expensive and it caches
+ * serializers per class, so everything shares this instance; it is
+ * thread-safe once configured, which happens here and nowhere else.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    public static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** Reads a JSON array of strings (e.g. the card UIDs a sync upload rejected). */
+    public static final ObjectReader STRING_LIST = MAPPER.readerFor(new TypeReference<List<String>>() {
+    });
+}
@@ -0,0 +1,201 @@
+package cloudSync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import dto.TransUploadRow;
+import repository.Batches;
+import repository.PendingUploads;
+import util.Json;
+
+/**
+ * Upload passes against SyncStubServer, with the trans table kept in memory:
+ * gzip and plain bodies, the fallback to plain JSON when a server will not
+ * take gzip, the byte counters on both ends, and rows of rejected cards
+ * left pending.
+ */
+class BatchUploaderTest {
+
+    private final List<TransUploadRow> table = new ArrayList<>();
+    private final Set<Long> marked = new ConcurrentSkipListSet<>();
+    private SyncStubServer stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null)
+            stub.stop();
+        SyncHttp.useGzip(false);
+    }
+
+    private void insert(int count, String cardUid) {
+        for (int i = 0; i < count; i++) {
+            TransUploadRow r = new TransUploadRow();
+            r.id = table.size() + 1;
+            r.cardUid = cardUid;
+            r.bsguid = "BSG-" + r.id;
+            r.fullName = "Participant " + r.id;
+            r.dateTime = "2026-10-17 09:00:00";
+            r.location = "Gate-1";
+            r.event = "Main Hall";
+            r.uploadStatus = 0;
+            table.add(r);
+        }
+    }
+
+    // what PendingUploads.stream does, over the in-memory table
+    private PendingUploads.Batch stream(long afterId, int limit, PendingUploads.BodyOpener body) throws IOException {
+        List<TransUploadRow> page = new ArrayList<>();
+        for (TransUploadRow r : table) {
+            if (r.id > afterId && !marked.contains((long) r.id) && page.size() < limit)
+                page.add(r);
+        }
+        long[] ids = new long[page.size()];
+        String[] uids = new String[page.size()];
+        if (page.isEmpty())
+            return Batches.of(ids, uids);
+        try (OutputStream os = body.open();
+                JsonGenerator gen = Json.MAPPER.createGenerator(os, JsonEncoding.UTF8)) {
+            gen.writeStartArray();
+            for (int i = 0; i < page.size(); i++) {
+                gen.writeObject(page.get(i));
+                ids[i] = page.get(i).id;
+                uids[i] = page.get(i).cardUid;
+            }
+            gen.writeEndArray();
+        }
+        return Batches.of(ids, uids);
+    }
+
+    private BatchUploader.Pass upload() throws Exception {
+        return BatchUploader.uploadAll("[TEST]", stub.endpoint(), this::stream,
+                (sent, failed) -> {
+                    for (long id : Batches.toMark(sent, failed))
+                        marked.add(id);
+                });
+    }
+
+    private int pass() throws Exception {
+        return upload().sent;
+    }
+
+    @Test
+    void gzipBodyIsCountedPackedAndUnpacked() throws Exception {
+        stub = SyncStubServer.start(SyncStubServer.Gzip.ACCEPT);
+        SyncHttp.useGzip(true);
+        insert(200, "04AA0001");
+        SyncHttp.Stats before = SyncHttp.stats();
+
+        assertEquals(200, pass());
+
+        SyncHttp.Stats after = SyncHttp.stats();
+        assertEquals(1, stub.gzipBatches.get());
+        assertEquals(200, stub.rows.get());
+        assertEquals(200, marked.size());
+        assertEquals(stub.wireBytes.get(), after.wireBytesOut - before.wireBytesOut);
+        assertEquals(stub.rawBytes.get(), after.rawBytesOut - before.rawBytesOut);
+        assertTrue(stub.wireBytes.get() < stub.rawBytes.get(), "repetitive rows compress");
+        assertTrue(after.wireBytesIn - before.wireBytesIn > 0);
+    }
+
+    @Test
+    void plainBodyIsTheSameOnTheWire() throws Exception {
+        stub = SyncStubServer.start(SyncStubServer.Gzip.ACCEPT);
+        insert(20, "04AA0001");
+        SyncHttp.Stats before = SyncHttp.stats();
+
+        assertEquals(20, pass());
+
+        SyncHttp.Stats after = SyncHttp.stats();
+        assertEquals(0, stub.gzipBatches.get());
+        assertEquals(stub.rawBytes.get(), stub.wireBytes.get());
+        assertEquals(stub.wireBytes.get(), after.wireBytesOut - before.wireBytesOut);
+        assertEquals(after.rawBytesOut - before.rawBytesOut, after.wireBytesOut - before.wireBytesOut);
+    }
+
+    @Test
+    void gzipAnswered415IsSentPlainFromThenOn() throws Exception {
+        stub = SyncStubServer.start(SyncStubServer.Gzip.REFUSE);
+        SyncHttp.useGzip(true);
+        insert(BatchUploader.BATCH_SIZE + 10, "04AA0001");
+
+        assertEquals(BatchUploader.BATCH_SIZE + 10, pass());
+
+        // refused once, then both batches plain
+        assertEquals(3, stub.requests.get());
+        assertEquals(2, stub.batches.get());
+        assertEquals(0, stub.gzipBatches.get());
+        assertFalse(SyncHttp.stats().gzipRequests);
+        assertEquals(table.size(), marked.size());
+    }
+
+    @Test
+    void gzipAnswered400FallsBackToo() throws Exception {
+        stub = SyncStubServer.start(SyncStubServer.Gzip.IGNORE);
+        SyncHttp.useGzip(true);
+        insert(5, "04AA0001");
+
+        assertEquals(5, pass());
+
+        assertEquals(2, stub.requests.get());
+        assertEquals(1, stub.batches.get());
+        assertFalse(SyncHttp.stats().gzipRequests);
+    }
+
+    @Test
+    void failureThatIsNotAboutGzipKeepsGzipOn() throws Exception {
+        stub = SyncStubServer.start(SyncStubServer.Gzip.ACCEPT);
+        SyncHttp.useGzip(true);
+        insert(5, "04AA0001");
+        String endpoint = stub.endpoint().replace(SyncStubServer.TRANS_PATH, "/no/such/path"); // 404
+        SyncHttp.Stats before = SyncHttp.stats();
+
+        assertThrows(IOException.class, () -> BatchUploader.uploadAll("[TEST]", endpoint, this::stream,
+                (sent, failed) -> fail("nothing should be marked")));
+
+        assertEquals(2, SyncHttp.stats().requests - before.requests, "gzip, then plain once");
+        assertTrue(SyncHttp.stats().gzipRequests);
+        assertTrue(marked.isEmpty());
+    }
+
+    @Test
+    void rowsOfRejectedCardsStayPending() throws Exception {
+        stub = SyncStubServer.start(SyncStubServer.Gzip.ACCEPT);
+        insert(3, "04AA0001");
+        insert(2, "04BAD002");
+        insert(3, "04CC0003");
+        stub.reject("04BAD002");
+
+        BatchUploader.Pass first = upload();
+        assertEquals(8, first.sent);
+        assertEquals(1, first.rejected);
+        assertEquals(Set.of(1L, 2L, 3L, 6L, 7L, 8L), marked);
+
+        // still pending: the next pass sends those two again and nothing else
+        assertEquals(2, pass());
+        assertEquals(10, stub.rows.get());
+        assertEquals(6, marked.size());
+
+        // taken this time: nothing left
+        table.forEach(r -> r.cardUid = r.cardUid.replace("BAD", "OK_"));
+        BatchUploader.Pass third = upload();
+        assertEquals(2, third.sent);
+        assertEquals(0, third.rejected);
+        assertEquals(0, pass());
+    }
+}
@@ -0,0 +1,169 @@
+package cloudSync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import repository.Batches;
+import repository.ChangeFeed;
+import repository.PendingUploads;
+
+/**
+ * The scheduler with a table that has nothing pending: a pass at start-up,
+ * one pass per burst of changes, no reads while idle, and backoff after a
+ * failed pass. A pass is counted by its source.stream call (an empty batch
+ * makes no request). The surefire config shortens the timings.
+ */
+class SyncEngineTest {
+
+    private static final String TABLE = "sync_engine_test";
+    private static final long SLACK_MS = 250; // scheduler wake-up and the pass itself
+
+    private final List<Long> calls = new CopyOnWriteArrayList<>(); // ms, one per source.stream
+    private volatile boolean failing = false;
+
+    @BeforeEach
+    void setUp() {
+        SyncEngine.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SyncEngine.unregister(TABLE);
+        SyncEngine.shutdown(2_000);
+    }
+
+    private PendingUploads.Batch stream(long afterId, int limit, PendingUploads.BodyOpener body)
+            throws SQLException {
+        calls.add(now());
+        if (failing)
+            throw new SQLException("database unavailable");
+        return Batches.of(new long[0], new String[0]);
+    }
+
+    private void register() {
+        SyncEngine.register(TABLE, "[TEST]", "http://127.0.0.1:9/unused", this::stream,
+                (sent, failed) -> {
+                });
+    }
+
+    @Test
+    void passAtStartUpThenNothingWhileIdle() {
+        register();
+        await(() -> calls.size() == 1);
+
+        sleep(4 * SyncEngine.COALESCE_MS);
+        assertEquals(1, calls.size(), "an idle stream reads nothing");
+        assertEquals(-1, stats().dueInMs);
+    }
+
+    @Test
+    void burstOfChangesIsOnePass() {
+        register();
+        await(() -> calls.size() == 1);
+
+        long first = now();
+        for (int i = 0; i < 20; i++) {
+            ChangeFeed.publish(TABLE);
+            sleep(SyncEngine.COALESCE_MS / 40);
+        }
+        await(() -> calls.size() == 2);
+        long after = calls.get(1) - first;
+        assertTrue(after >= SyncEngine.COALESCE_MS - 20 && after <= SyncEngine.COALESCE_MS + SLACK_MS,
+                "pass " + after + " ms after the first change");
+
+        sleep(3 * SyncEngine.COALESCE_MS);
+        assertEquals(2, calls.size(), "the whole burst went in one pass");
+    }
+
+    @Test
+    void otherTablesDoNotWakeTheStream() {
+        register();
+        await(() -> calls.size() == 1);
+
+        ChangeFeed.publish("some_other_table");
+        sleep(3 * SyncEngine.COALESCE_MS);
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void failedPassesBackOffWithinBounds() {
+        failing = true;
+        register();
+        await(() -> calls.size() == 4);
+
+        // a change does not cut the fourth backoff short (at least maxBackoffMs / 2)
+        ChangeFeed.publish(TABLE);
+        sleep(SyncEngine.COALESCE_MS + SLACK_MS);
+        assertEquals(4, calls.size(), "woken during backoff");
+
+        for (int n = 1; n <= 3; n++) {
+            long d = SyncEngine.backoffBound(n);
+            long gap = calls.get(n) - calls.get(n - 1);
+            assertTrue(gap >= d / 2 && gap <= d + SLACK_MS, "retry " + n + " after " + gap + " ms, d = " + d);
+        }
+        assertTrue(stats().failures >= 4);
+        assertEquals("database unavailable", stats().lastError);
+
+        // back to idle once the database is back
+        failing = false;
+        await(() -> stats().failures == 0);
+        int settled = calls.size();
+        sleep(3 * SyncEngine.COALESCE_MS);
+        assertEquals(settled, calls.size());
+    }
+
+    @Test
+    void backoffStaysInItsBand() {
+        for (int n = 1; n <= 30; n++) {
+            long d = SyncEngine.backoffBound(n);
+            for (int i = 0; i < 50; i++) {
+                long b = SyncEngine.backoff(n);
+                assertTrue(b >= d / 2 && b <= d, n + ": " + b + " outside [" + d / 2 + ", " + d + "]");
+            }
+        }
+        assertEquals(SyncEngine.MAX_BACKOFF_MS, SyncEngine.backoffBound(30));
+    }
+
+    @Test
+    void rejectRetryDoublesUpToTheCap() {
+        assertEquals(SyncEngine.REJECT_RETRY_MS, SyncEngine.rejectRetry(1));
+        assertEquals(Math.min(2 * SyncEngine.REJECT_RETRY_MS, SyncEngine.MAX_REJECT_RETRY_MS),
+                SyncEngine.rejectRetry(2));
+        assertEquals(SyncEngine.MAX_REJECT_RETRY_MS, SyncEngine.rejectRetry(30));
+        assertEquals(SyncEngine.MAX_REJECT_RETRY_MS, SyncEngine.rejectRetry(Integer.MAX_VALUE));
+    }
+
+    private static SyncEngine.StreamStats stats() {
+        return SyncEngine.stats().stream().filter(s -> s.table.equals(TABLE)).findFirst().orElseThrow();
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = now() + 4 * SyncEngine.MAX_BACKOFF_MS + 2_000;
+        while (!condition.getAsBoolean()) {
+            if (now() > deadline)
+                throw new AssertionError("condition not met in time");
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package cloudSync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import util.Json;
+
+/**
+ * The dashboard's upload-batch endpoint on a free local port. It answers
+ * each accepted batch with the card UIDs it was told to reject that were in
+ * it, gzips its reply when asked to, and counts what it took: request
+ * bodies as received (wireBytes) and as JSON (rawBytes).
+ */
+final class SyncStubServer {
+
+    static final String TRANS_PATH = "/api/attendance/admin/upload-batch";
+
+    /** What the stub does with a Content-Encoding: gzip body. */
+    enum Gzip {
+        ACCEPT,
+        REFUSE, // 415
+        IGNORE // parses the bytes as JSON, fails, answers 400
+    }
+
+    private final HttpServer server;
+    private final Gzip gzip;
+    private final Set<String> reject = ConcurrentHashMap.newKeySet();
+
+    final AtomicLong requests = new AtomicLong(); // every POST
+    final AtomicLong batches = new AtomicLong(); // accepted ones
+    final AtomicLong rows = new AtomicLong();
+    final AtomicLong gzipBatches = new AtomicLong();
+    final AtomicLong wireBytes = new AtomicLong();
+    final AtomicLong rawBytes = new AtomicLong();
+
+    private SyncStubServer(Gzip gzip) throws IOException {
+        this.gzip = gzip;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(TRANS_PATH, this::handle);
+    }
+
+    static SyncStubServer start(Gzip gzip) throws IOException {
+        SyncStubServer s = new SyncStubServer(gzip);
+        s.server.start();
+        return s;
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + TRANS_PATH;
+    }
+
+    /** Card UIDs to report back as failed. */
+    void reject(String cardUid) {
+        reject.add(cardUid);
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            requests.incrementAndGet();
+            byte[] body = ex.getRequestBody().readAllBytes();
+            boolean packed = "gzip".equalsIgnoreCase(ex.getRequestHeaders().getFirst("Content-Encoding"));
+            if (packed && gzip == Gzip.REFUSE) {
+                ex.sendResponseHeaders(415, -1);
+                return;
+            }
+            byte[] json = body;
+            if (packed && gzip == Gzip.ACCEPT) {
+                try (InputStream gz = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    json = gz.readAllBytes();
+                }
+            }
+
+            JsonNode batch;
+            try {
+                batch = Json.MAPPER.readTree(json);
+            } catch (IOException unreadable) {
+                ex.sendResponseHeaders(400, -1);
+                return;
+            }
+            List<String> failed = new ArrayList<>();
+            for (JsonNode row : batch) {
+                String uid = row.path("carduid").asText(null);
+                if (uid != null && reject.contains(uid) && !failed.contains(uid))
+                    failed.add(uid);
+            }
+            batches.incrementAndGet();
+            rows.addAndGet(batch.size());
+            if (packed)
+                gzipBatches.incrementAndGet();
+            wireBytes.addAndGet(body.length);
+            rawBytes.addAndGet(json.length);
+
+            byte[] reply = Json.MAPPER.writeValueAsBytes(failed);
+            String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (OutputStream gz = new GZIPOutputStream(bos)) {
+                    gz.write(reply);
+                }
+                reply = bos.toByteArray();
+                ex.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, reply.length);
+            ex.getResponseBody().write(reply);
+        } finally {
+            ex.close();
+        }
+    }
+}
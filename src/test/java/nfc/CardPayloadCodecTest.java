@@ -0,0 +1,244 @@
+package nfc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The card format: values survive a write and read whether or not they fit
+ * a dictionary or number code, damaged payloads decode to null instead of
+ * throwing, and cards from before the binary format still read.
+ */
+class CardPayloadCodecTest {
+
+    private static final int DATE = CardPayloadCodec.FIELDS.indexOf("dataOfBirth");
+
+    private static String[] participant() {
+        return new String[] {
+                "Asha Rao", "BSG-0042", "scout", "Ernakulam", "asha@example.org", "+919876543210",
+                "Kerala", "Member", "1st Kochi", "rover", "2008-05-14", "16" };
+    }
+
+    private static String[] roundTrip(String[] fields) {
+        return CardPayloadCodec.decode(CardPayloadCodec.encode(fields));
+    }
+
+    /* ================= ROUND TRIPS ================= */
+
+    @Test
+    void dictionaryValuesRoundTripAndPackSmall() {
+        String[] in = participant();
+        byte[] payload = CardPayloadCodec.encode(in);
+
+        assertArrayEquals(in, CardPayloadCodec.decode(payload));
+        int csv = String.join(",", in).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(payload.length < csv, payload.length + " vs " + csv);
+    }
+
+    @Test
+    void offDictionaryValuesGoAsText() {
+        String[] in = participant();
+        in[2] = "Sea Scout";
+        in[6] = "Goa (North)";
+        in[9] = "Ranger / Rover";
+        in[0] = "Ånanya Dévi 🙂";
+        assertArrayEquals(in, roundTrip(in));
+    }
+
+    @Test
+    void phoneNumbersKeepPlusAndLeadingZeros() {
+        for (String phone : new String[] { "+919876543210", "9876543210", "09876543210", "0", "+0",
+                "98765 43210", "+91-98765-43210", "1234567890123456789012" }) {
+            String[] in = participant();
+            in[5] = phone;
+            assertEquals(phone, roundTrip(in)[5], phone);
+        }
+    }
+
+    @Test
+    void nonIsoDatesComeBackAsWritten() {
+        for (String date : new String[] { "2008-05-14", "1900-01-01", "14/05/2008", "2008-5-14", "1899-12-31",
+                "not a date" }) {
+            String[] in = participant();
+            in[DATE] = date;
+            assertEquals(date, roundTrip(in)[DATE], date);
+        }
+    }
+
+    @Test
+    void emptyAndNullFieldsReadAsEmptyTrimmedValuesAsTrimmed() {
+        String[] in = new String[CardPayloadCodec.FIELDS.size()];
+        in[0] = "  Asha Rao ";
+        in[2] = " scout ";
+        String[] out = roundTrip(in);
+        assertEquals("Asha Rao", out[0]);
+        assertEquals("scout", out[2]);
+        for (int i = 3; i < out.length; i++)
+            assertEquals("", out[i]);
+    }
+
+    @Test
+    void encodeWantsAllFields() {
+        assertThrows(IllegalArgumentException.class, () -> CardPayloadCodec.encode(new String[3]));
+        assertThrows(IllegalArgumentException.class, () -> CardPayloadCodec.encode(null));
+    }
+
+    /* ================= DAMAGE ================= */
+
+    @Test
+    void crcMismatchIsNull() {
+        byte[] payload = CardPayloadCodec.encode(participant());
+        byte[] body = payload.clone();
+        body[5] ^= 0x01;
+        assertNull(CardPayloadCodec.decode(body));
+
+        byte[] crc = payload.clone();
+        crc[crc.length - 1] ^= 0x01;
+        assertNull(CardPayloadCodec.decode(crc));
+    }
+
+    @Test
+    void cutShortIsNull() {
+        byte[] payload = CardPayloadCodec.encode(participant());
+        for (int n = 0; n < payload.length; n++)
+            assertNull(CardPayloadCodec.decode(Arrays.copyOf(payload, n)), "length " + n);
+    }
+
+    @Test
+    void truncatedVarintIsNull() {
+        // a length that says "more bytes follow" and then the body ends
+        assertNull(CardPayloadCodec.decode(frame(bytes(0x80))));
+        // the body's own length varint cut off in the header
+        assertNull(CardPayloadCodec.decode(bytes(0xB5, 0x01, 0x80)));
+    }
+
+    @Test
+    void overLongVarintIsNull() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++)
+            body.write(0xFF);
+        body.write(0x01);
+        assertNull(CardPayloadCodec.decode(frame(body.toByteArray())));
+    }
+
+    @Test
+    void hugeTextLengthIsNull() {
+        // FullName length 2^63 - 1: must not wrap around the bounds check
+        assertNull(CardPayloadCodec.decode(frame(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x7F))));
+    }
+
+    @Test
+    void dateCodeBeyondLocalDateIsNull() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < DATE; i++)
+            body.write(0); // empty
+        body.writeBytes(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x7F));
+        body.write(0); // age
+        assertNull(CardPayloadCodec.decode(frame(body.toByteArray())));
+    }
+
+    @Test
+    void unknownDictionaryCodeIsNull() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(0);
+        body.write(0);
+        body.write(0x7F); // ParticipationType code far past the list
+        for (int i = 3; i < CardPayloadCodec.FIELDS.size(); i++)
+            body.write(0);
+        assertNull(CardPayloadCodec.decode(frame(body.toByteArray())));
+    }
+
+    /* ================= HEADS ================= */
+
+    @Test
+    void payloadLengthOnShortHeads() {
+        assertEquals(-1, CardPayloadCodec.payloadLength(null, 0));
+        assertEquals(-1, CardPayloadCodec.payloadLength(bytes(0xB5), 1));
+        assertEquals(-1, CardPayloadCodec.payloadLength(bytes(0xB5, 0x01), 2));
+        assertEquals(-1, CardPayloadCodec.payloadLength(bytes(0xB5, 0x02, 0x05), 3), "unknown version");
+        assertEquals(-1, CardPayloadCodec.payloadLength(bytes('A', 's', 'h'), 3), "legacy text");
+        assertEquals(2 + 1 + 5 + 4, CardPayloadCodec.payloadLength(bytes(0xB5, 0x01, 0x05), 3));
+
+        byte[] twoByteLength = bytes(0xB5, 0x01, 0x80, 0x01); // 128
+        assertEquals(-1, CardPayloadCodec.payloadLength(twoByteLength, 3), "length not all there yet");
+        assertEquals(2 + 2 + 128 + 4, CardPayloadCodec.payloadLength(twoByteLength, 4));
+        assertEquals(-1, CardPayloadCodec.payloadLength(bytes(0xB5, 0x01, 0x81, 0x40), 4), "over 4096");
+    }
+
+    @Test
+    void payloadLengthMatchesEncode() {
+        byte[] payload = CardPayloadCodec.encode(participant());
+        assertEquals(payload.length, CardPayloadCodec.payloadLength(payload, 16));
+    }
+
+    /* ================= READ RESULTS ================= */
+
+    @Test
+    void legacyCsvCardsStillRead() {
+        SmartMifareReader.ReadResult rr = new SmartMifareReader.ReadResult("04AA0001",
+                " Asha Rao, BSG-0042 ,scout,,,9876543210,Kerala,Member,1st Kochi,rover,14/05/2008,16 ");
+        String[] out = CardPayloadCodec.fields(rr);
+        assertEquals(12, out.length);
+        assertEquals("Asha Rao", out[0]);
+        assertEquals("BSG-0042", out[1]);
+        assertEquals("", out[3]);
+        assertEquals("16", out[11]);
+    }
+
+    @Test
+    void binaryPayloadWinsOverText() {
+        String[] in = participant();
+        SmartMifareReader.ReadResult rr = new SmartMifareReader.ReadResult("04AA0001", "garbage,text",
+                CardPayloadCodec.encode(in));
+        assertArrayEquals(in, CardPayloadCodec.fields(rr));
+    }
+
+    @Test
+    void blankOrMissingCardIsNull() {
+        assertNull(CardPayloadCodec.fields(null));
+        assertNull(CardPayloadCodec.fields(new SmartMifareReader.ReadResult("04AA0001", "   ")));
+        byte[] damaged = CardPayloadCodec.encode(participant());
+        damaged[4] ^= 0x10;
+        assertNull(CardPayloadCodec.fields(new SmartMifareReader.ReadResult("04AA0001", "", damaged)));
+    }
+
+    /* ================= HELPERS ================= */
+
+    // a v1 payload around {@code body}, with a good CRC
+    private static byte[] frame(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(CardPayloadCodec.MAGIC);
+        out.write(CardPayloadCodec.VERSION);
+        long n = body.length;
+        while ((n & ~0x7FL) != 0) {
+            out.write((int) ((n & 0x7F) | 0x80));
+            n >>>= 7;
+        }
+        out.write((int) n);
+        out.writeBytes(body);
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        long c = crc.getValue();
+        out.write((int) (c >> 24));
+        out.write((int) (c >> 16));
+        out.write((int) (c >> 8));
+        out.write((int) c);
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] b = new byte[values.length];
+        for (int i = 0; i < b.length; i++)
+            b[i] = (byte) values[i];
+        return b;
+    }
+}
@@ -0,0 +1,173 @@
+package nfc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * A PC/SC reader in memory: a card is "on" it while {@code present} is set,
+ * and unplugging ({@code attached = false}) makes every call fail the way a
+ * pulled USB reader does. The card answers GET UID (FF CA) only, which is
+ * all a UID_ONLY read sends.
+ */
+public final class FakeCardTerminal extends CardTerminal {
+
+    private final String name;
+    public volatile boolean present = false;
+    public volatile boolean attached = true;
+    volatile byte[] uid = { 0x04, 0x11, 0x22, 0x33 };
+
+    public FakeCardTerminal(String name) {
+        this.name = name;
+    }
+
+    /** Put a card with {@code uidHex} on the reader. */
+    public void tap(String uidHex) {
+        byte[] b = new byte[uidHex.length() / 2];
+        for (int i = 0; i < b.length; i++)
+            b[i] = (byte) Integer.parseInt(uidHex.substring(2 * i, 2 * i + 2), 16);
+        uid = b;
+        present = true;
+    }
+
+    public void lift() {
+        present = false;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Card connect(String protocol) throws CardException {
+        checkAttached();
+        if (!present)
+            throw new CardException("no card present");
+        return new FakeCard();
+    }
+
+    @Override
+    public boolean isCardPresent() throws CardException {
+        checkAttached();
+        return present;
+    }
+
+    @Override
+    public boolean waitForCardPresent(long timeout) throws CardException {
+        return waitFor(true, timeout);
+    }
+
+    @Override
+    public boolean waitForCardAbsent(long timeout) throws CardException {
+        return waitFor(false, timeout);
+    }
+
+    private boolean waitFor(boolean wanted, long timeout) throws CardException {
+        long end = timeout == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < end) {
+            checkAttached();
+            if (present == wanted)
+                return true;
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new CardException("interrupted");
+            }
+        }
+        return present == wanted;
+    }
+
+    private void checkAttached() throws CardException {
+        if (!attached)
+            throw new CardException("SCARD_E_READER_UNAVAILABLE");
+    }
+
+    private final class FakeCard extends Card {
+        @Override
+        public ATR getATR() {
+            return new ATR(new byte[] { 0x3B, 0x00 });
+        }
+
+        @Override
+        public String getProtocol() {
+            return "T=1";
+        }
+
+        @Override
+        public CardChannel getBasicChannel() {
+            return new FakeChannel(this);
+        }
+
+        @Override
+        public CardChannel openLogicalChannel() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void beginExclusive() {
+        }
+
+        @Override
+        public void endExclusive() {
+        }
+
+        @Override
+        public byte[] transmitControlCommand(int controlCode, byte[] command) {
+            return new byte[0];
+        }
+
+        @Override
+        public void disconnect(boolean reset) {
+        }
+    }
+
+    private final class FakeChannel extends CardChannel {
+        private final Card card;
+
+        FakeChannel(Card card) {
+            this.card = card;
+        }
+
+        @Override
+        public Card getCard() {
+            return card;
+        }
+
+        @Override
+        public int getChannelNumber() {
+            return 0;
+        }
+
+        @Override
+        public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+            checkAttached();
+            if (!present)
+                throw new CardException("card removed");
+            if ((command.getINS() & 0xFF) == 0xCA) {
+                byte[] u = uid;
+                byte[] r = Arrays.copyOf(u, u.length + 2);
+                r[u.length] = (byte) 0x90;
+                return new ResponseAPDU(r);
+            }
+            return new ResponseAPDU(new byte[] { 0x6D, 0x00 });
+        }
+
+        @Override
+        public int transmit(ByteBuffer command, ByteBuffer response) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
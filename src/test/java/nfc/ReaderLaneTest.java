@@ -0,0 +1,145 @@
+package nfc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import javax.smartcardio.CardTerminal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lanes on simulated readers: each lane reports only its own reader's taps
+ * and picks its reader up again after it is unplugged and plugged back in.
+ * What GateLanes does with the taps is in service.GateLanesTest.
+ */
+class ReaderLaneTest {
+
+    private final List<CardTerminal> attached = new CopyOnWriteArrayList<>();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final List<ReaderLane> lanes = new ArrayList<>();
+    private FakeCardTerminal gate1;
+    private FakeCardTerminal gate2;
+
+    @BeforeEach
+    void setUp() {
+        gate1 = new FakeCardTerminal("Gate-1");
+        gate2 = new FakeCardTerminal("Gate-2");
+        attached.add(gate1);
+        attached.add(gate2);
+        ReaderSession.useProvider(() -> attached);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (ReaderLane lane : lanes) {
+            lane.stop();
+            lane.awaitStopped(2_000);
+        }
+        ReaderSession.useProvider(null);
+    }
+
+    private ReaderLane lane(String reader) {
+        ReaderLane lane = new ReaderLane(reader, new CardEventDispatcher.Subscriber() {
+            @Override
+            public void cardIn(SmartMifareReader.ReadResult card) {
+                events.add(reader + " in " + card.uid);
+            }
+
+            @Override
+            public void cardOut(String uid) {
+                events.add(reader + " out " + uid);
+            }
+        });
+        lanes.add(lane);
+        lane.start();
+        return lane;
+    }
+
+    @Test
+    void eachLaneReportsItsOwnReader() {
+        lane("Gate-1");
+        lane("Gate-2");
+
+        gate1.tap("04AA0001");
+        gate2.tap("04BB0002");
+        await(() -> events.contains("Gate-1 in 04AA0001") && events.contains("Gate-2 in 04BB0002"));
+
+        gate2.lift();
+        await(() -> events.contains("Gate-2 out 04BB0002"));
+        assertFalse(events.contains("Gate-1 out 04AA0001"), "card still on Gate-1");
+
+        gate1.lift();
+        await(() -> events.contains("Gate-1 out 04AA0001"));
+        assertEquals(4, events.size(), events.toString());
+    }
+
+    @Test
+    void eachTapIsOneInAndOneOut() {
+        lane("Gate-1");
+
+        gate1.tap("04AA0001");
+        await(() -> events.contains("Gate-1 in 04AA0001"));
+        gate1.lift();
+        await(() -> events.contains("Gate-1 out 04AA0001"));
+        gate1.tap("04AA0001"); // straight back: a lane does not debounce
+        await(() -> events.size() == 3);
+        gate1.lift();
+        await(() -> events.size() == 4);
+
+        assertEquals(List.of("Gate-1 in 04AA0001", "Gate-1 out 04AA0001", "Gate-1 in 04AA0001",
+                "Gate-1 out 04AA0001"), events);
+    }
+
+    @Test
+    void laneSurvivesUnplugAndReplug() {
+        ReaderLane lane = lane("Gate-2");
+        gate2.tap("04BB0002");
+        await(() -> events.contains("Gate-2 in 04BB0002"));
+
+        // pulled out with the card on it
+        gate2.attached = false;
+        attached.remove(gate2);
+        sleep(ReaderSession.WATCH_INTERVAL_MS + 500);
+        assertTrue(lane.isRunning());
+
+        // plugged back in: a new terminal object under the same name
+        FakeCardTerminal again = new FakeCardTerminal("Gate-2");
+        attached.add(again);
+        again.tap("04CC0003");
+        await(() -> events.contains("Gate-2 in 04CC0003"));
+    }
+
+    @Test
+    void stopWaitsForTheLaneThread() {
+        ReaderLane lane = lane("Gate-1");
+        await(lane::isRunning);
+        lane.stop();
+        assertTrue(lane.awaitStopped(2_000));
+        assertFalse(lane.isRunning());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 3 * ReaderSession.WATCH_INTERVAL_MS + 2_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("condition not met in time");
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package repository;
+
+import java.util.Set;
+
+/** PendingUploads batches for tests that run without the .accdb. */
+public final class Batches {
+
+    private Batches() {
+    }
+
+    public static PendingUploads.Batch of(long[] ids, String[] cardUids) {
+        PendingUploads.Batch b = new PendingUploads.Batch();
+        b.rows = ids.length;
+        b.ids = ids.clone();
+        b.cardUids = cardUids.clone();
+        for (long id : ids)
+            b.lastId = Math.max(b.lastId, id);
+        return b;
+    }
+
+    /** The ids markUploaded would set uploadstatus = 1 on. */
+    public static long[] toMark(PendingUploads.Batch b, Set<String> failedCardUids) {
+        return PendingUploads.toMark(b, failedCardUids);
+    }
+}
@@ -0,0 +1,230 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import javax.smartcardio.CardTerminal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dto.AttendanceRequest;
+import dto.AttendanceResult;
+import nfc.CardEventDispatcher;
+import nfc.DebounceStore;
+import nfc.FakeCardTerminal;
+import nfc.ReaderSession;
+
+/**
+ * GateLanes on two simulated readers, with the marking stubbed out: taps
+ * carry their gate's binding, the same card straight back on one reader is
+ * dropped but not on another, marking and listener failures do not stop a
+ * gate, and a gate on the primary reader keeps the attendance screen's
+ * dispatcher off it until stop() has let go.
+ */
+class GateLanesTest {
+
+    private static final long LIFT_MS = 600; // a lane notices a lifted card within two wait slices
+
+    private final List<CardTerminal> attached = new CopyOnWriteArrayList<>();
+    private final List<AttendanceRequest> marked = new CopyOnWriteArrayList<>();
+    private final List<String> taps = new CopyOnWriteArrayList<>(); // "reader uid success message"
+    private FakeCardTerminal gate1; // primary: first in the list
+    private FakeCardTerminal gate2;
+    private GateLanes lanes;
+    private GateLanes.Marker marker;
+    private GateLanes.Listener listener;
+    private long gateWindow;
+
+    @BeforeEach
+    void setUp() {
+        gate1 = new FakeCardTerminal("Gate-1");
+        gate2 = new FakeCardTerminal("Gate-2");
+        attached.add(gate1);
+        attached.add(gate2);
+        ReaderSession.useProvider(() -> attached);
+        gateWindow = DebounceStore.window(DebounceStore.Mode.GATE);
+        DebounceStore.clear();
+
+        marker = req -> {
+            marked.add(req);
+            return AttendanceResult.success();
+        };
+        listener = (gate, uid, result) -> taps.add(gate.readerName + " " + uid + " " + result.success
+                + " " + result.message);
+        lanes = new GateLanes((gate, uid, result) -> listener.onTap(gate, uid, result),
+                req -> marker.mark(req));
+    }
+
+    @AfterEach
+    void tearDown() {
+        lanes.stop();
+        DebounceStore.setWindow(DebounceStore.Mode.GATE, gateWindow);
+        DebounceStore.clear();
+        ReaderSession.useProvider(null);
+    }
+
+    private static GateLanes.Gate gate(String reader, int eventId, String location, String mode) {
+        GateLanes.Gate g = new GateLanes.Gate();
+        g.readerName = reader;
+        g.eventId = eventId;
+        g.eventName = "Event " + eventId;
+        g.location = location;
+        g.mode = mode;
+        return g;
+    }
+
+    private void tapAndLift(FakeCardTerminal reader, String uid, BooleanSupplier seen) {
+        reader.tap(uid);
+        await(seen);
+        reader.lift();
+        sleep(LIFT_MS);
+    }
+
+    @Test
+    void tapsAreMarkedWithTheirGatesBinding() {
+        lanes.start(List.of(gate("Gate-1", 7, "Main Gate", "ENTRY"), gate("Gate-2", 7, "Main Gate", "EXIT")));
+
+        gate1.tap("04AA0001");
+        gate2.tap("04BB0002");
+        await(() -> taps.size() == 2);
+
+        AttendanceRequest in = find("04AA0001");
+        assertEquals(7, in.eventId);
+        assertEquals("Event 7", in.eventName);
+        assertEquals("Main Gate", in.location);
+        assertEquals("ENTRY", in.mode);
+        assertEquals("EXIT", find("04BB0002").mode);
+        assertTrue(taps.contains("Gate-1 04AA0001 true Attendance marked"), taps.toString());
+        assertTrue(taps.contains("Gate-2 04BB0002 true Attendance marked"), taps.toString());
+    }
+
+    @Test
+    void sameCardStraightBackIsDebouncedPerReader() {
+        DebounceStore.setWindow(DebounceStore.Mode.GATE, 10_000);
+        lanes.start(List.of(gate("Gate-1", 1, "A", "ENTRY"), gate("Gate-2", 1, "B", "EXIT")));
+
+        tapAndLift(gate1, "04AA0001", () -> marked.size() == 1);
+        gate1.tap("04AA0001"); // put straight back: read, but not marked
+        sleep(1_000);
+        gate1.lift();
+        gate2.tap("04AA0001"); // same card, other gate
+        await(() -> marked.size() == 2);
+
+        assertEquals("Gate-1 04AA0001 true Attendance marked", taps.get(0));
+        assertEquals("Gate-2 04AA0001 true Attendance marked", taps.get(1));
+        assertEquals(2, taps.size(), taps.toString());
+        assertEquals(1, DebounceStore.stats(DebounceStore.Mode.GATE).suppressed);
+    }
+
+    @Test
+    void markingFailureIsReportedAsDenied() {
+        marker = req -> {
+            throw new IllegalStateException("db locked");
+        };
+        lanes.start(List.of(gate("Gate-2", 1, "A", "ENTRY")));
+
+        gate2.tap("04BB0002");
+        await(() -> taps.size() == 1);
+        assertEquals("Gate-2 04BB0002 false Error: db locked", taps.get(0));
+    }
+
+    @Test
+    void listenerFailureDoesNotStopTheGate() {
+        listener = (gate, uid, result) -> {
+            taps.add(uid);
+            if (taps.size() == 1)
+                throw new IllegalStateException("screen gone");
+        };
+        lanes.start(List.of(gate("Gate-2", 1, "A", "ENTRY")));
+
+        tapAndLift(gate2, "04BB0002", () -> taps.size() == 1);
+        gate2.tap("04CC0003");
+        await(() -> taps.size() == 2);
+        assertTrue(lanes.isRunning());
+    }
+
+    @Test
+    void gateOnThePrimaryReaderSuspendsTheDispatcherUntilStop() {
+        List<String> screen = new CopyOnWriteArrayList<>();
+        try (CardEventDispatcher.Subscription sub = CardEventDispatcher.subscribe(card -> screen.add(card.uid))) {
+            assertEquals("Gate-1", ReaderSession.terminal().getName());
+            lanes.start(List.of(gate("Gate-1", 1, "A", "ENTRY")));
+
+            tapAndLift(gate1, "04AA0001", () -> taps.size() == 1);
+            assertTrue(screen.isEmpty(), "dispatcher read the gate's card: " + screen);
+
+            lanes.stop();
+            assertFalse(lanes.isRunning());
+            assertFalse(laneThreadAlive("Gate-1"), "stop() returned before the lane let go");
+
+            gate1.tap("04CC0003");
+            await(() -> screen.contains("04CC0003"));
+            gate1.lift();
+            assertEquals(1, taps.size(), "a stopped gate still marked");
+        }
+    }
+
+    @Test
+    void gateOnAnotherReaderLeavesTheDispatcherAlone() {
+        List<String> screen = new CopyOnWriteArrayList<>();
+        try (CardEventDispatcher.Subscription sub = CardEventDispatcher.subscribe(card -> screen.add(card.uid))) {
+            lanes.start(List.of(gate("Gate-2", 1, "A", "ENTRY")));
+
+            gate1.tap("04AA0001");
+            gate2.tap("04BB0002");
+            await(() -> screen.contains("04AA0001") && taps.size() == 1);
+            assertFalse(screen.contains("04BB0002"));
+            gate1.lift();
+        }
+    }
+
+    @Test
+    void startReplacesRunningLanes() {
+        lanes.start(List.of(gate("Gate-1", 1, "A", "ENTRY"), gate("Gate-2", 1, "B", "ENTRY")));
+        lanes.start(List.of(gate("Gate-2", 2, "B", "EXIT")));
+        assertFalse(laneThreadAlive("Gate-1"));
+
+        gate1.tap("04AA0001");
+        gate2.tap("04BB0002");
+        await(() -> marked.size() == 1);
+        sleep(500);
+        assertEquals(1, marked.size());
+        assertEquals(2, marked.get(0).eventId);
+
+        lanes.stop();
+        assertFalse(laneThreadAlive("Gate-2"));
+    }
+
+    private AttendanceRequest find(String uid) {
+        return marked.stream().filter(r -> r.cardUid.equals(uid)).findFirst().orElseThrow();
+    }
+
+    private static boolean laneThreadAlive(String reader) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(t -> t.isAlive() && t.getName().equals("nfc-lane-" + reader));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 8_000; // covers a reader re-lookup
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("condition not met in time");
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stand-alone benchmark: FieldNormalizer against the original AccessDb
+ * phone/DOB helpers (copied below as they were).
+ *
+ * Run with
+ * {@code java -cp target/test-classes:target/classes:<deps> util.FieldNormalizerBenchmark [rows] [rounds]}
+ * (compiled by {@code mvn test-compile}; test sources stay out of the jar).
+ * Every input is first checked to give the same output from both
+ * implementations; then each variant gets warm-up rounds and timed rounds
+ * and the best round is reported, JMH-style "best of N" without the harness.
+ */
+public final class FieldNormalizerBenchmark {
+
+    private FieldNormalizerBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<String> dobs = new ArrayList<>(rows);
+        List<String> phones = new ArrayList<>(rows);
+        Random rnd = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            dobs.add(sampleDob(rnd));
+            phones.add(samplePhone(rnd));
+        }
+
+        int mismatches = 0;
+        for (int i = 0; i < rows; i++) {
+            if (!java.util.Objects.equals(legacyDob(dobs.get(i)), FieldNormalizer.normalizeDob(dobs.get(i)))) {
+                if (mismatches++ < 10)
+                    System.out.println("DOB mismatch: '" + dobs.get(i) + "'");
+            }
+            if (!legacyPhone(phones.get(i)).equals(FieldNormalizer.normalizePhone(phones.get(i)))) {
+                if (mismatches++ < 10)
+                    System.out.println("phone mismatch: '" + phones.get(i) + "'");
+            }
+        }
+        System.out.printf("%d rows checked, %d mismatch(es)%n", rows, mismatches);
+
+        run("dob    legacy       ", rounds, () -> dobs.forEach(FieldNormalizerBenchmark::legacyDob));
+        run("dob    FieldNormalizer", rounds, () -> dobs.forEach(FieldNormalizer::normalizeDob));
+        run("phone  legacy       ", rounds, () -> phones.forEach(FieldNormalizerBenchmark::legacyPhone));
+        run("phone  FieldNormalizer", rounds, () -> phones.forEach(FieldNormalizer::normalizePhone));
+        List<String[]> pairs = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+            pairs.add(new String[] { dobs.get(i), phones.get(i) });
+        run("rows   sequential   ", rounds, () -> pairs.stream().map(FieldNormalizerBenchmark::both).toList());
+        run("rows   mapAll       ", rounds, () -> FieldNormalizer.mapAll(pairs, FieldNormalizerBenchmark::both));
+    }
+
+    private static String both(String[] pair) {
+        return FieldNormalizer.normalizeDob(pair[0]) + FieldNormalizer.normalizePhone(pair[1]);
+    }
+
+    private static void run(String label, int rounds, Runnable body) {
+        for (int i = 0; i < Math.max(2, rounds); i++)
+            body.run(); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf("%s  best %8.2f ms%n", label, best / 1e6);
+    }
+
+    /* ================= INPUTS ================= */
+
+    private static String sampleDob(Random rnd) {
+        int y = 1950 + rnd.nextInt(60), m = 1 + rnd.nextInt(12), d = 1 + rnd.nextInt(31);
+        return switch (rnd.nextInt(9)) {
+            case 0 -> String.format("%04d-%02d-%02d", y, m, d);
+            case 1 -> String.format("%02d/%02d/%04d", d, m, y);
+            case 2 -> String.format("%d/%d/%04d", d, m, y);
+            case 3 -> String.format("%02d-%02d-%04d", d, m, y);
+            case 4 -> String.format("%02d.%02d.%04d", d, m, y);
+            case 5 -> String.format("%d/%d/%04d", m, d + 12 > 31 ? d : d + 12, y);
+            case 6 -> " " + String.format("%d-%d-%04d", d, m, y) + " ";
+            case 7 -> rnd.nextBoolean() ? "" : "unknown";
+            default -> String.format("%04d/%02d/%02d", y, m, d);
+        };
+    }
+
+    private static String samplePhone(Random rnd) {
+        long n = 6_000_000_000L + (long) (rnd.nextDouble() * 3_999_999_999L);
+        return switch (rnd.nextInt(6)) {
+            case 0 -> Long.toString(n);
+            case 1 -> "+91 " + n;
+            case 2 -> "0" + n;
+            case 3 -> "0091-" + n;
+            case 4 -> "9191" + n;
+            default -> "(" + (n / 10_000_000) + ") " + (n % 10_000_000);
+        };
+    }
+
+    /* ================= ORIGINAL HELPERS ================= */
+
+    static String legacyDob(String raw) {
+        if (raw == null)
+            return null;
+        String s = raw.trim();
+        if (s.isEmpty())
+            return null;
+        String[] patterns = {
+                "yyyy-MM-dd", "dd/MM/yyyy", "dd-MM-yyyy", "MM/dd/yyyy",
+                "dd.MM.yyyy", "d/M/yyyy", "d-M-yyyy", "M/d/yyyy"
+        };
+        for (String p : patterns) {
+            try {
+                var fmt = java.time.format.DateTimeFormatter.ofPattern(p);
+                var d = java.time.LocalDate.parse(s, fmt);
+                return d.toString();
+            } catch (Exception ignore) {
+            }
+        }
+        try {
+            return java.time.LocalDate.parse(s).toString();
+        } catch (Exception ignore) {
+        }
+        return null;
+    }
+
+    static String legacyPhone(String raw) {
+        if (raw == null)
+            return "";
+        String d = raw.replaceAll("\\D+", "");
+        while (d.startsWith("00"))
+            d = d.substring(2);
+        if (d.startsWith("0"))
+            d = d.substring(1);
+        if (d.startsWith("9191") && d.length() == 13)
+            d = d.substring(2);
+        if (d.length() == 12 && d.startsWith("91"))
+            return "+" + d;
+        if (d.length() == 10)
+            return "+91" + d;
+        if (d.startsWith("91") && d.length() > 12)
+            d = d.substring(0, 12);
+        return d.isEmpty() ? "" : "+" + d;
+    }
+}